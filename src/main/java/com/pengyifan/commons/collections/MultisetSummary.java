@@ -0,0 +1,269 @@
+package com.pengyifan.commons.collections;
+
+import com.google.common.collect.Multiset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Collector;
+
+/**
+ * The statistics of the counts of a multiset, computed in a single pass over its entries: the
+ * elements with the largest and smallest counts, the largest and smallest counts, the total count,
+ * the number of distinct elements, and a histogram of the counts over given thresholds.
+ * <p>
+ * The methods of {@link Multisets} each make one or two passes over the multiset. When several of
+ * them are needed, a summary reads every count only once:
+ * <p>
+ * <pre>
+ * MultisetSummary&lt;String&gt; summary = MultisetSummary.of(words, 10, 100);
+ * Set&lt;String&gt; frequent = summary.argmaxSet();
+ * int rare = summary.histogram()[0]; // elements seen fewer than 10 times
+ * </pre>
+ * <p>
+ * {@link #parallelOf(Multiset, int...)} splits the entries on the common fork-join pool and merges
+ * the partial summaries, which pays off for multisets with millions of distinct elements.
+ *
+ * @param <E> the type of the elements
+ * @author "Yifan Peng"
+ * @since 0.3.0
+ */
+public final class MultisetSummary<E> {
+
+  private final int[] thresholds;
+  private final int[] histogram;
+  private List<E> argmaxList;
+  private List<E> argminList;
+  private int max;
+  private int min;
+  private long totalCount;
+  private int distinctCount;
+
+  private MultisetSummary(int[] thresholds) {
+    this.thresholds = thresholds;
+    this.histogram = new int[thresholds.length + 1];
+    this.argmaxList = new ArrayList<>();
+    this.argminList = new ArrayList<>();
+    this.max = Integer.MIN_VALUE;
+    this.min = Integer.MAX_VALUE;
+    this.totalCount = 0;
+    this.distinctCount = 0;
+  }
+
+  /**
+   * Returns the summary of the given multiset.
+   *
+   * @param multiset   multiset
+   * @param thresholds the bounds of the histogram of the counts, in any order
+   * @return the summary of the multiset
+   */
+  public static <E> MultisetSummary<E> of(Multiset<E> multiset, int... thresholds) {
+    MultisetSummary<E> summary = new MultisetSummary<>(sort(thresholds));
+    for (Multiset.Entry<E> entry : multiset.entrySet()) {
+      summary.accept(entry);
+    }
+    return summary;
+  }
+
+  /**
+   * Returns the summary of the given multiset, computed in parallel.
+   *
+   * @param multiset   multiset
+   * @param thresholds the bounds of the histogram of the counts, in any order
+   * @return the summary of the multiset
+   */
+  public static <E> MultisetSummary<E> parallelOf(Multiset<E> multiset, int... thresholds) {
+    return multiset.entrySet().parallelStream().collect(toSummary(thresholds));
+  }
+
+  /**
+   * Returns a {@link Collector} that summarizes the multiset entries it is given.
+   *
+   * @param thresholds the bounds of the histogram of the counts, in any order
+   * @param <E>        the type of the elements
+   * @return a {@link Collector} which summarizes the entries
+   */
+  public static <E> Collector<Multiset.Entry<E>, ?, MultisetSummary<E>> toSummary(
+      int... thresholds) {
+    int[] sorted = sort(thresholds);
+    return Collector.of(
+        () -> new MultisetSummary<>(sorted),
+        MultisetSummary::accept,
+        MultisetSummary::combine,
+        Collector.Characteristics.IDENTITY_FINISH,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Returns an element with the largest count. If there are several max counts, random value is
+   * returned.
+   *
+   * @return an element with the largest count, or empty if the multiset is empty
+   */
+  public Optional<E> argmax() {
+    return argmaxList.isEmpty() ? Optional.empty() : Optional.ofNullable(argmaxList.get(0));
+  }
+
+  /**
+   * Returns the elements with the largest count. Returns empty set if the multiset is empty.
+   *
+   * @return the set of elements with the largest count
+   */
+  public Set<E> argmaxSet() {
+    return Collections.unmodifiableSet(new HashSet<>(argmaxList));
+  }
+
+  /**
+   * Returns an element with the smallest count. If there are several min counts, random value is
+   * returned.
+   *
+   * @return an element with the smallest count, or empty if the multiset is empty
+   */
+  public Optional<E> argmin() {
+    return argminList.isEmpty() ? Optional.empty() : Optional.ofNullable(argminList.get(0));
+  }
+
+  /**
+   * Returns the elements with the smallest count. Returns empty set if the multiset is empty.
+   *
+   * @return the set of elements with the smallest count
+   */
+  public Set<E> argminSet() {
+    return Collections.unmodifiableSet(new HashSet<>(argminList));
+  }
+
+  /**
+   * Returns the mean of all the counts (total count/distinct element size), 0 if the multiset is
+   * empty.
+   */
+  public double averageCount() {
+    return distinctCount == 0 ? 0 : ((double) totalCount) / distinctCount;
+  }
+
+  /**
+   * Returns the number of distinct elements.
+   */
+  public int distinctCount() {
+    return distinctCount;
+  }
+
+  /**
+   * Returns the number of distinct elements whose counts are at or above the given threshold,
+   * which must be one of the thresholds of this summary.
+   *
+   * @param threshold one of the thresholds
+   * @return the number of elements whose counts are at or above the threshold
+   * @throws IllegalArgumentException if the threshold is not one of the thresholds
+   */
+  public int countAbove(int threshold) {
+    int i = Arrays.binarySearch(thresholds, threshold);
+    if (i < 0) {
+      throw new IllegalArgumentException("Not a threshold: " + threshold);
+    }
+    int count = 0;
+    for (int j = i + 1; j < histogram.length; j++) {
+      count += histogram[j];
+    }
+    return count;
+  }
+
+  /**
+   * Returns the histogram of the counts over the sorted thresholds t<sub>0</sub> &lt; ... &lt;
+   * t<sub>m-1</sub>. Element i of the histogram is the number of distinct elements whose counts
+   * are at or above t<sub>i-1</sub> and below t<sub>i</sub>; the first element counts those below
+   * t<sub>0</sub> and the last element counts those at or above t<sub>m-1</sub>.
+   *
+   * @return the histogram of the counts, of length m + 1
+   */
+  public int[] histogram() {
+    return histogram.clone();
+  }
+
+  /**
+   * Returns the largest count, or empty if the multiset is empty.
+   */
+  public OptionalInt max() {
+    return distinctCount == 0 ? OptionalInt.empty() : OptionalInt.of(max);
+  }
+
+  /**
+   * Returns the smallest count, or empty if the multiset is empty.
+   */
+  public OptionalInt min() {
+    return distinctCount == 0 ? OptionalInt.empty() : OptionalInt.of(min);
+  }
+
+  /**
+   * Returns the sorted thresholds of the histogram, without duplicates.
+   */
+  public int[] thresholds() {
+    return thresholds.clone();
+  }
+
+  /**
+   * Returns the total count, i.e., the size of the multiset.
+   */
+  public long totalCount() {
+    return totalCount;
+  }
+
+  @Override
+  public String toString() {
+    return "MultisetSummary{distinct=" + distinctCount + ", total=" + totalCount + ", min=" + min()
+        + ", max=" + max() + ", histogram=" + Arrays.toString(histogram) + "}";
+  }
+
+  private void accept(Multiset.Entry<E> entry) {
+    int count = entry.getCount();
+    E element = entry.getElement();
+    if (count > max) {
+      max = count;
+      argmaxList = new ArrayList<>();
+    }
+    if (count == max) {
+      argmaxList.add(element);
+    }
+    if (count < min) {
+      min = count;
+      argminList = new ArrayList<>();
+    }
+    if (count == min) {
+      argminList.add(element);
+    }
+    totalCount += count;
+    distinctCount++;
+    // the number of thresholds at or below the count
+    int i = Arrays.binarySearch(thresholds, count);
+    histogram[i >= 0 ? i + 1 : -i - 1]++;
+  }
+
+  private MultisetSummary<E> combine(MultisetSummary<E> other) {
+    if (other.max > max) {
+      max = other.max;
+      argmaxList = other.argmaxList;
+    } else if (other.max == max) {
+      argmaxList.addAll(other.argmaxList);
+    }
+    if (other.min < min) {
+      min = other.min;
+      argminList = other.argminList;
+    } else if (other.min == min) {
+      argminList.addAll(other.argminList);
+    }
+    totalCount += other.totalCount;
+    distinctCount += other.distinctCount;
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] += other.histogram[i];
+    }
+    return this;
+  }
+
+  private static int[] sort(int[] thresholds) {
+    return Arrays.stream(thresholds).sorted().distinct().toArray();
+  }
+}
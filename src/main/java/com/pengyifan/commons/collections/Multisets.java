@@ -1,8 +1,9 @@
 package com.pengyifan.commons.collections;
 
 import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
 
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
@@ -11,6 +12,10 @@ import java.util.stream.Collectors;
 /**
  * Provides static utility methods for creating and working with {@link
  * com.google.common.collect.Multiset} instances.
+ * <p>
+ * Each method makes its own pass over the multiset. To compute several statistics at once, use
+ * {@link MultisetSummary}. The <code>elements*View</code> methods return live views instead of
+ * copying the matching elements.
  *
  * @author "Yifan Peng"
  * @since 0.3.0
@@ -24,14 +29,9 @@ public abstract class Multisets {
    * @return the element in this multiset with the largest count
    */
   public static <E> Optional<E> argmax(Multiset<E> multiset) {
-    OptionalInt maybeMax = max(multiset);
-    if (maybeMax.isPresent()) {
-      return multiset.elementSet().stream()
-          .filter(e -> multiset.count(e) == maybeMax.getAsInt())
-          .findAny();
-    } else {
-      return Optional.empty();
-    }
+    return multiset.entrySet().stream()
+        .max(Comparator.comparingInt(Multiset.Entry::getCount))
+        .map(Multiset.Entry::getElement);
   }
 
   /**
@@ -42,12 +42,7 @@ public abstract class Multisets {
    * @return the set of elements in this multiset with the largest count
    */
   public static <E> Set<E> argmaxSet(Multiset<E> multiset) {
-    OptionalInt maybeMax = max(multiset);
-    if (maybeMax.isPresent()) {
-      return elementsAt(multiset, maybeMax.getAsInt());
-    } else {
-      return Collections.emptySet();
-    }
+    return Sets.newHashSet(MultisetSummary.of(multiset).argmaxSet());
   }
 
   /**
@@ -58,14 +53,9 @@ public abstract class Multisets {
    * @return the element in this multiset with the smallest count
    */
   public static <E> Optional<E> argmin(Multiset<E> multiset) {
-    OptionalInt maybeMin = min(multiset);
-    if (maybeMin.isPresent()) {
-      return multiset.elementSet().stream()
-          .filter(e -> multiset.count(e) == maybeMin.getAsInt())
-          .findAny();
-    } else {
-      return Optional.empty();
-    }
+    return multiset.entrySet().stream()
+        .min(Comparator.comparingInt(Multiset.Entry::getCount))
+        .map(Multiset.Entry::getElement);
   }
 
   /**
@@ -76,12 +66,7 @@ public abstract class Multisets {
    * @return the set of elements in this multiset with the smallest count
    */
   public static <E> Set<E> argminSet(Multiset<E> multiset) {
-    OptionalInt maybeMin = min(multiset);
-    if (maybeMin.isPresent()) {
-      return elementsAt(multiset, maybeMin.getAsInt());
-    } else {
-      return Collections.emptySet();
-    }
+    return Sets.newHashSet(MultisetSummary.of(multiset).argminSet());
   }
 
   /**
@@ -104,8 +89,9 @@ public abstract class Multisets {
    * @return the set of elements whose counts are at or above the given count
    */
   public static <E> Set<E> elementsAbove(Multiset<E> multiset, int count) {
-    return multiset.elementSet().stream()
-        .filter(e -> multiset.count(e) >= count)
+    return multiset.entrySet().stream()
+        .filter(e -> e.getCount() >= count)
+        .map(Multiset.Entry::getElement)
         .collect(Collectors.toSet());
   }
 
@@ -118,8 +104,9 @@ public abstract class Multisets {
    * @return the set of elements that have exactly the given count
    */
   public static <E> Set<E> elementsAt(Multiset<E> multiset, int count) {
-    return multiset.elementSet().stream()
-        .filter(e -> multiset.count(e) == count)
+    return multiset.entrySet().stream()
+        .filter(e -> e.getCount() == count)
+        .map(Multiset.Entry::getElement)
         .collect(Collectors.toSet());
   }
 
@@ -132,11 +119,50 @@ public abstract class Multisets {
    * @return the set of elements whose counts are at or below the given count
    */
   public static <E> Set<E> elementsBelow(final Multiset<E> multiset, final int count) {
-    return multiset.elementSet().stream()
-        .filter(e -> multiset.count(e) <= count)
+    return multiset.entrySet().stream()
+        .filter(e -> e.getCount() <= count)
+        .map(Multiset.Entry::getElement)
         .collect(Collectors.toSet());
   }
 
+  /**
+   * Returns a live view of the elements whose counts are at or above the given count. The view
+   * reflects later changes to the multiset, and its size and iteration cost a pass over the
+   * multiset.
+   *
+   * @param multiset multiset
+   * @param count    count
+   * @return a view of the elements whose counts are at or above the given count
+   */
+  public static <E> Set<E> elementsAboveView(Multiset<E> multiset, int count) {
+    return Sets.filter(multiset.elementSet(), e -> multiset.count(e) >= count);
+  }
+
+  /**
+   * Returns a live view of the elements that have exactly the given count. The view reflects later
+   * changes to the multiset, and its size and iteration cost a pass over the multiset.
+   *
+   * @param multiset multiset
+   * @param count    count
+   * @return a view of the elements that have exactly the given count
+   */
+  public static <E> Set<E> elementsAtView(Multiset<E> multiset, int count) {
+    return Sets.filter(multiset.elementSet(), e -> multiset.count(e) == count);
+  }
+
+  /**
+   * Returns a live view of the elements whose counts are at or below the given count. The view
+   * reflects later changes to the multiset, and its size and iteration cost a pass over the
+   * multiset.
+   *
+   * @param multiset multiset
+   * @param count    count
+   * @return a view of the elements whose counts are at or below the given count
+   */
+  public static <E> Set<E> elementsBelowView(Multiset<E> multiset, int count) {
+    return Sets.filter(multiset.elementSet(), e -> multiset.count(e) <= count);
+  }
+
   /**
    * Returns the largest count in this multiset.
    *
@@ -144,8 +170,8 @@ public abstract class Multisets {
    * @return the largest count in this multiset
    */
   public static <E> OptionalInt max(final Multiset<E> multiset) {
-    return multiset.elementSet().stream()
-        .mapToInt(multiset::count)
+    return multiset.entrySet().stream()
+        .mapToInt(Multiset.Entry::getCount)
         .max();
   }
 
@@ -156,8 +182,8 @@ public abstract class Multisets {
    * @return the smallest count in this multiset
    */
   public static <E> OptionalInt min(final Multiset<E> multiset) {
-    return multiset.elementSet().stream()
-        .mapToInt(multiset::count)
+    return multiset.entrySet().stream()
+        .mapToInt(Multiset.Entry::getCount)
         .min();
   }
 }
@@ -0,0 +1,152 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter that estimates the counts of a stream within a fixed memory
+ * budget.
+ * <p>
+ * Only the keys that are (or were) frequent are kept, so {@link #keySet()},
+ * {@link #entrySet()}, {@link #argmax()} and {@link #keysAbove(int)} only see
+ * those monitored keys. {@link #getCount(Object)} may overestimate the true
+ * count by at most {@link #errorBound()}; see the subclasses for the exact
+ * guarantees. {@link #totalCount()} is exact.
+ * <p>
+ * Counts can only grow: negative increments, {@link #setCount(Object, int)},
+ * {@link #remove(Object)} and the other methods that lower a count throw
+ * {@link UnsupportedOperationException} or {@link IllegalArgumentException}.
+ *
+ * @author Yifan Peng
+ */
+public abstract class ApproximateCounter<K> extends Counter<K> {
+
+  /**
+   * Returns the largest amount by which {@link #getCount(Object)} may
+   * overestimate the true count of a key.
+   *
+   * @return the maximum overestimate of a count
+   */
+  public abstract int errorBound();
+
+  @Override
+  public Cursor<K> cursor() {
+    return new KeyLookupCursor<>(keySet().iterator(), this::getCount);
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new Iterator<Map.Entry<K, Integer>>() {
+
+          private final Iterator<K> inner = keySet().iterator();
+
+          @Override
+          public boolean hasNext() {
+            return inner.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Integer> next() {
+            return new Map.Entry<K, Integer>() {
+
+              private final K key = inner.next();
+
+              @Override
+              public K getKey() {
+                return key;
+              }
+
+              @Override
+              public Integer getValue() {
+                return getCount(key);
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return ApproximateCounter.this.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    for (K key : keySet()) {
+      action.accept(key, getCount(key));
+    }
+  }
+
+  /**
+   * Adds the given count to the estimated count for the given key.
+   *
+   * @param key   the object to search for
+   * @param count the number of copies to add
+   * @return the estimated count of the key after the increment
+   * @throws IllegalArgumentException if the count is negative
+   */
+  @Override
+  public int incrementCount(K key, int count) {
+    checkArgument(count >= 0, "The count is negative: %s", count);
+    totalCount += count;
+    return offer(key, count);
+  }
+
+  /**
+   * Adds the given non-negative count to the estimated count for the given key
+   * and returns the new estimate. {@link #totalCount} has already been updated.
+   */
+  abstract int offer(K key, int count);
+
+  @Override
+  public int remove(K key) {
+    throw new UnsupportedOperationException("remove() is not supported.");
+  }
+
+  @Override
+  public void removeAll(Collection<K> c) {
+    throw new UnsupportedOperationException("removeAll() is not supported.");
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    throw new UnsupportedOperationException("removeZeroCounts() is not supported.");
+  }
+
+  @Override
+  public void setCount(K key, int count) {
+    throw new UnsupportedOperationException("setCount() is not supported.");
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    return new KeyLookupSpliterator<>(keySet().spliterator(), this::getCount);
+  }
+
+  @Override
+  public void substractAll(Counter<K> counter) {
+    throw new UnsupportedOperationException("substractAll() is not supported.");
+  }
+}
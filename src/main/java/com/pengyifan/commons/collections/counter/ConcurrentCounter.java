@@ -0,0 +1,265 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A thread-safe Counter that can be incremented from many threads at once.
+ * <p>
+ * Every key owns a {@link LongAdder} cell in a {@link ConcurrentHashMap}, and
+ * the total count is the sum of the cells, computed in O(size) when it is
+ * read. Incrementing a key
+ * that has been seen before takes no lock: the cell is found by a lock-free
+ * read and the adder spreads contended updates over several internal cells,
+ * so counting scales with the number of threads even for frequent keys such
+ * as stop words.
+ * <p>
+ * Reads are weakly consistent. {@link #getCount(Object)} and
+ * {@link #totalCount()} return a sum that may or may not include increments
+ * made concurrently, and the key set and entry set reflect the state of the
+ * counter at some point at or since the creation of the iterator. Methods such
+ * as {@link #argmax()} and {@link #keysAbove(int)} read every count exactly
+ * once and are therefore consistent with one another while the counter is
+ * quiescent. If a consistent view is needed while other threads keep
+ * counting, use {@link #snapshot()}.
+ * <p>
+ * {@link #setCount(Object, int)}, {@link #remove(Object)} and
+ * {@link #removeZeroCounts()} replace or remove the cell of a key atomically.
+ * An increment of the same key made concurrently may land on the old cell and
+ * be lost, as if it had happened just before the replacement or removal. It is
+ * lost from the total as well, since the total is derived from the cells, so
+ * {@link #totalCount()} always equals the sum of the counts once the counter
+ * is quiescent. Null keys are not permitted.
+ *
+ * @author Yifan Peng
+ */
+public class ConcurrentCounter<K> extends Counter<K> {
+
+  private final ConcurrentHashMap<K, LongAdder> cells;
+
+  /**
+   * Constructs a new (empty) Counter.
+   */
+  public ConcurrentCounter() {
+    cells = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Constructs a new (empty) Counter that can hold the expected number of keys
+   * without resizing.
+   *
+   * @param expectedSize the expected number of keys
+   */
+  public ConcurrentCounter(int expectedSize) {
+    cells = new ConcurrentHashMap<>(expectedSize);
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   *
+   * @param counter
+   */
+  public ConcurrentCounter(Counter<K> counter) {
+    this(counter.size());
+    addAll(counter);
+  }
+
+  @Override
+  public void clear() {
+    cells.clear();
+  }
+
+  @Override
+  public Object clone() {
+    return new ConcurrentCounter<>(this);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return cells.containsKey(key);
+  }
+
+  @Override
+  public Cursor<K> cursor() {
+    return new KeyLookupCursor<>(cells.keySet().iterator(), this::getCount);
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new Iterator<Map.Entry<K, Integer>>() {
+
+          private final Iterator<Map.Entry<K, LongAdder>> inner = cells.entrySet()
+              .iterator();
+
+          @Override
+          public boolean hasNext() {
+            return inner.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Integer> next() {
+            return new Map.Entry<K, Integer>() {
+
+              private final Map.Entry<K, LongAdder> e = inner.next();
+
+              @Override
+              public K getKey() {
+                return e.getKey();
+              }
+
+              @Override
+              public Integer getValue() {
+                return (int) e.getValue().sum();
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                int old = getValue();
+                setCount(e.getKey(), value);
+                return old;
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return cells.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    cells.forEach((key, cell) -> action.accept(key, (int) cell.sum()));
+  }
+
+  @Override
+  public int getCount(K key) {
+    LongAdder cell = cells.get(key);
+    return cell == null ? 0 : (int) cell.sum();
+  }
+
+  /**
+   * Adds the given count to the current count for the given key. The returned
+   * count includes this increment and possibly some of the increments made
+   * concurrently by other threads.
+   *
+   * @param key   the object to search for
+   * @param count the number of copies to add
+   * @return the count of the key after the increment
+   * @throws NullPointerException if the key is null
+   */
+  @Override
+  public int incrementCount(K key, int count) {
+    LongAdder cell = cell(key);
+    cell.add(count);
+    return (int) cell.sum();
+  }
+
+  /**
+   * Returns an unmodifiable, weakly consistent view of the keys in this
+   * counter.
+   *
+   * @return the set of unique elements in this counter
+   */
+  @Override
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(cells.keySet());
+  }
+
+  @Override
+  public int remove(K key) {
+    LongAdder cell = cells.remove(key);
+    if (cell == null) {
+      return Integer.MIN_VALUE;
+    }
+    return (int) cell.sum();
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    for (Map.Entry<K, LongAdder> e : cells.entrySet()) {
+      if (e.getValue().sum() == 0) {
+        // only if the cell has not been replaced in the meantime
+        cells.remove(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Replaces the cell of the key by a new cell with the given count.
+   */
+  @Override
+  public void setCount(K key, int count) {
+    checkNotNull(key, "The key is null");
+    LongAdder cell = new LongAdder();
+    cell.add(count);
+    cells.put(key, cell);
+  }
+
+  @Override
+  public int size() {
+    return cells.size();
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    return new KeyLookupSpliterator<>(cells.keySet().spliterator(), this::getCount);
+  }
+
+  /**
+   * Returns a copy of this counter in which every count has been read
+   * exactly once. Queries on the copy are consistent with one another no
+   * matter how this counter is updated afterwards.
+   *
+   * @return a copy of this counter
+   */
+  public HashCounter<K> snapshot() {
+    HashCounter<K> snapshot = new HashCounter<>(cells.size());
+    cells.forEach((key, cell) -> snapshot.incrementCount(key, (int) cell.sum()));
+    return snapshot;
+  }
+
+  /**
+   * Returns the sum of the counts, in O(size).
+   *
+   * @return the sum of the counts
+   */
+  @Override
+  public int totalCount() {
+    long sum = 0;
+    for (LongAdder cell : cells.values()) {
+      sum += cell.sum();
+    }
+    return (int) sum;
+  }
+
+  private LongAdder cell(K key) {
+    checkNotNull(key, "The key is null");
+    // Lock-free read first, computeIfAbsent locks the bin even on a hit
+    LongAdder cell = cells.get(key);
+    if (cell == null) {
+      cell = cells.computeIfAbsent(key, k -> new LongAdder());
+    }
+    return cell;
+  }
+}
@@ -0,0 +1,149 @@
+package com.pengyifan.commons.collections.counter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An indexed binary min-heap of keys ordered by count. Every key is stored
+ * once; its slot can be found in O(1) and its count can be raised in
+ * O(log n).
+ */
+class CountHeap<K> {
+
+  static class Slot<K> {
+
+    private K key;
+    private int count;
+    private int error;
+    private int index;
+
+    K key() {
+      return key;
+    }
+
+    int count() {
+      return count;
+    }
+
+    int error() {
+      return error;
+    }
+  }
+
+  private final Map<K, Slot<K>> index;
+  private Slot<K>[] heap;
+  private int size;
+
+  CountHeap(int capacity) {
+    index = new HashMap<>((int) (capacity / 0.75f) + 1);
+    heap = newArray(Math.max(1, capacity));
+    size = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> Slot<K>[] newArray(int size) {
+    return (Slot<K>[]) new Slot<?>[size];
+  }
+
+  /**
+   * Adds a key that is not in this heap.
+   */
+  void add(K key, int count, int error) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    Slot<K> slot = new Slot<>();
+    slot.key = key;
+    slot.count = count;
+    slot.error = error;
+    slot.index = size;
+    heap[size++] = slot;
+    index.put(key, slot);
+    siftUp(slot.index);
+  }
+
+  void clear() {
+    Arrays.fill(heap, 0, size, null);
+    index.clear();
+    size = 0;
+  }
+
+  Slot<K> get(K key) {
+    return index.get(key);
+  }
+
+  /**
+   * Raises the count of the key in the slot.
+   */
+  void increase(Slot<K> slot, int count) {
+    slot.count = count;
+    siftDown(slot.index);
+  }
+
+  Set<K> keySet() {
+    return Collections.unmodifiableSet(index.keySet());
+  }
+
+  Slot<K> peek() {
+    return size == 0 ? null : heap[0];
+  }
+
+  /**
+   * Replaces the key with the smallest count by a new key.
+   */
+  void replaceMin(K key, int count, int error) {
+    Slot<K> slot = heap[0];
+    index.remove(slot.key);
+    slot.key = key;
+    slot.count = count;
+    slot.error = error;
+    index.put(key, slot);
+    siftDown(0);
+  }
+
+  int size() {
+    return size;
+  }
+
+  Slot<K> slot(int i) {
+    return heap[i];
+  }
+
+  private void siftDown(int i) {
+    Slot<K> slot = heap[i];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < size && heap[right].count < heap[child].count) {
+        child = right;
+      }
+      if (slot.count <= heap[child].count) {
+        break;
+      }
+      heap[i] = heap[child];
+      heap[i].index = i;
+      i = child;
+    }
+    heap[i] = slot;
+    slot.index = i;
+  }
+
+  private void siftUp(int i) {
+    Slot<K> slot = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent].count <= slot.count) {
+        break;
+      }
+      heap[i] = heap[parent];
+      heap[i].index = i;
+      i = parent;
+    }
+    heap[i] = slot;
+    slot.index = i;
+  }
+}
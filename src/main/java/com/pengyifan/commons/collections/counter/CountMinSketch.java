@@ -0,0 +1,259 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An approximate Counter based on the Count-Min sketch of Cormode and
+ * Muthukrishnan (2005) with conservative update (Estan and Varghese, 2002).
+ * <p>
+ * The sketch is a <code>depth x width</code> table of counts. Every key is
+ * hashed to one cell per row and its estimate is the smallest of those cells.
+ * Conservative update only raises the cells that are below the new estimate,
+ * which lowers the error compared with the plain sketch. With
+ * <code>width = ceil(e / epsilon)</code> and
+ * <code>depth = ceil(ln(1 / delta))</code>, for a stream of total count
+ * <i>N</i>:
+ * <ul>
+ * <li>{@link #getCount(Object)} never underestimates the true count;</li>
+ * <li>with probability at least 1 - delta it overestimates the true count by
+ * at most {@link #errorBound()} = epsilon * <i>N</i>.</li>
+ * </ul>
+ * The estimates are available for any key. In addition, the
+ * <code>topK</code> keys with the largest estimates seen so far are tracked
+ * and form the {@link #keySet()} used by {@link #argmax()},
+ * {@link #keysAbove(int)} and the other key queries.
+ * <p>
+ * Memory is fixed at <code>depth * width</code> ints plus the
+ * <code>topK</code> tracked keys, and each increment costs O(depth +
+ * log topK). Sketches with the same dimensions and seed can be combined with
+ * {@link #merge}; the sum of two conservatively updated sketches still never
+ * underestimates a count.
+ *
+ * @author Yifan Peng
+ */
+public class CountMinSketch<K> extends ApproximateCounter<K> {
+
+  private static final int DEFAULT_SEED = 0x2545F491;
+
+  private final int depth;
+  private final int width;
+  private final int seed;
+  private final int topK;
+  private final int[] table;
+  private final CountHeap<K> heavyHitters;
+
+  /**
+   * Constructs a new (empty) sketch with the given error bounds.
+   *
+   * @param epsilon the relative error of an estimate, as a fraction of the
+   *                total count
+   * @param delta   the probability that an estimate exceeds the error
+   * @param topK    the number of heavy hitters to track
+   * @throws IllegalArgumentException if epsilon or delta is not in (0, 1), or
+   *                                  topK is negative
+   */
+  public static <K> CountMinSketch<K> withError(double epsilon, double delta, int topK) {
+    checkArgument(epsilon > 0 && epsilon < 1, "epsilon is not in (0, 1): %s", epsilon);
+    checkArgument(delta > 0 && delta < 1, "delta is not in (0, 1): %s", delta);
+    int width = (int) Math.ceil(Math.E / epsilon);
+    int depth = (int) Math.ceil(Math.log(1 / delta));
+    return new CountMinSketch<>(depth, width, topK);
+  }
+
+  /**
+   * Constructs a new (empty) sketch with the given dimensions.
+   *
+   * @param depth the number of rows (hash functions)
+   * @param width the number of cells per row
+   * @param topK  the number of heavy hitters to track
+   * @throws IllegalArgumentException if depth or width is not positive, or
+   *                                  topK is negative
+   */
+  public CountMinSketch(int depth, int width, int topK) {
+    this(depth, width, topK, DEFAULT_SEED);
+  }
+
+  /**
+   * Constructs a new (empty) sketch with the given dimensions and hash seed.
+   * Only sketches with the same seed can be merged.
+   *
+   * @param depth the number of rows (hash functions)
+   * @param width the number of cells per row
+   * @param topK  the number of heavy hitters to track
+   * @param seed  the seed of the hash functions
+   * @throws IllegalArgumentException if depth or width is not positive, or
+   *                                  topK is negative
+   */
+  public CountMinSketch(int depth, int width, int topK, int seed) {
+    checkArgument(depth > 0, "The depth is not positive: %s", depth);
+    checkArgument(width > 0, "The width is not positive: %s", width);
+    checkArgument(topK >= 0, "topK is negative: %s", topK);
+    checkArgument((long) depth * width <= Integer.MAX_VALUE, "The sketch is too large");
+    this.depth = depth;
+    this.width = width;
+    this.topK = topK;
+    this.seed = seed;
+    this.table = new int[depth * width];
+    this.heavyHitters = new CountHeap<>(topK);
+    totalCount = 0;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(table, 0);
+    heavyHitters.clear();
+    totalCount = 0;
+  }
+
+  @Override
+  public Object clone() {
+    CountMinSketch<K> copy = new CountMinSketch<>(depth, width, topK, seed);
+    copy.merge(this);
+    return copy;
+  }
+
+  /**
+   * Returns true if the key is one of the tracked heavy hitters.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return heavyHitters.get(key) != null;
+  }
+
+  /**
+   * Returns the number of rows (hash functions).
+   */
+  public int depth() {
+    return depth;
+  }
+
+  /**
+   * Returns epsilon * totalCount, where epsilon = e / width. With probability
+   * at least 1 - exp(-depth), an estimate exceeds the true count by at most
+   * this value.
+   *
+   * @return the probabilistic maximum overestimate of a count
+   */
+  @Override
+  public int errorBound() {
+    return (int) Math.ceil(Math.E / width * totalCount);
+  }
+
+  /**
+   * Returns the estimated count of the key, which is at least its true count.
+   */
+  @Override
+  public int getCount(K key) {
+    int h = hash(key);
+    int h2 = secondHash(h);
+    int min = Integer.MAX_VALUE;
+    for (int i = 0; i < depth; i++) {
+      min = Math.min(min, table[cell(i, h, h2)]);
+    }
+    return min;
+  }
+
+  /**
+   * Returns the tracked heavy hitters.
+   */
+  @Override
+  public Set<K> keySet() {
+    return heavyHitters.keySet();
+  }
+
+  /**
+   * Adds the counts of another sketch to this one, as if this sketch had also
+   * seen the stream of the other one. The heavy hitters of both sketches are
+   * re-estimated against the merged table.
+   *
+   * @param other a sketch with the same dimensions and seed
+   * @throws IllegalArgumentException if the dimensions or seeds differ
+   */
+  public void merge(CountMinSketch<K> other) {
+    checkArgument(depth == other.depth && width == other.width && seed == other.seed,
+        "The sketches have different dimensions or seeds");
+    checkArgument(topK == other.topK, "The sketches track different numbers of keys");
+    Set<K> candidates = new HashSet<>(keySet());
+    candidates.addAll(other.keySet());
+    for (int i = 0; i < table.length; i++) {
+      table[i] += other.table[i];
+    }
+    totalCount += other.totalCount;
+    heavyHitters.clear();
+    for (K key : candidates) {
+      track(key, getCount(key));
+    }
+  }
+
+  /**
+   * Returns the number of tracked heavy hitters.
+   */
+  @Override
+  public int size() {
+    return heavyHitters.size();
+  }
+
+  /**
+   * Returns the number of cells per row.
+   */
+  public int width() {
+    return width;
+  }
+
+  @Override
+  int offer(K key, int count) {
+    int h = hash(key);
+    int h2 = secondHash(h);
+    int min = Integer.MAX_VALUE;
+    for (int i = 0; i < depth; i++) {
+      min = Math.min(min, table[cell(i, h, h2)]);
+    }
+    int estimate = min + count;
+    // conservative update: only raise the cells below the new estimate
+    for (int i = 0; i < depth; i++) {
+      int c = cell(i, h, h2);
+      if (table[c] < estimate) {
+        table[c] = estimate;
+      }
+    }
+    track(key, estimate);
+    return estimate;
+  }
+
+  private void track(K key, int estimate) {
+    CountHeap.Slot<K> slot = heavyHitters.get(key);
+    if (slot != null) {
+      heavyHitters.increase(slot, estimate);
+    } else if (heavyHitters.size() < topK) {
+      heavyHitters.add(key, estimate, 0);
+    } else if (topK > 0 && heavyHitters.peek().count() < estimate) {
+      heavyHitters.replaceMin(key, estimate, 0);
+    }
+  }
+
+  /**
+   * Returns the cell of the i-th row, using double hashing (Kirsch and
+   * Mitzenmacher, 2006) to derive the row hashes from two hash values.
+   */
+  private int cell(int i, int h1, int h2) {
+    int h = h1 + i * h2;
+    return i * width + (h & Integer.MAX_VALUE) % width;
+  }
+
+  private int hash(K key) {
+    int h = (key == null ? 0 : key.hashCode()) ^ seed;
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int secondHash(int h) {
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    // odd, so that the row hashes differ
+    return h | 1;
+  }
+}
@@ -1,13 +1,21 @@
 package com.pengyifan.commons.collections.counter;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
 
 /**
  * Defines a collection that counts the number of times an object appears in
@@ -27,6 +35,14 @@ import java.util.Set;
  * <p>
  * TODO: whether to use AtomicInteger or to create a mutable Integer remains a
  * question
+ * <p>
+ * The default implementation stores the counts in {@link #map}. Subclasses that
+ * use a different storage must override {@link #clear()},
+ * {@link #containsKey(Object)}, {@link #entrySet()}, {@link #getCount(Object)},
+ * {@link #incrementCount(Object, int)}, {@link #keySet()},
+ * {@link #remove(Object)}, {@link #setCount(Object, int)}, {@link #size()},
+ * {@link #cursor()}, {@link #forEach(ObjIntConsumer)} and
+ * {@link #spliterator()}; all other methods are written in terms of these.
  *
  * @author Yifan Peng
  * @version 10/12/2013
@@ -53,6 +69,82 @@ public abstract class Counter<K> {
     }
   }
 
+  /**
+   * A cursor over the keys and counts of a Counter. Unlike an iterator of
+   * entries, it does not create an object per key: {@link #advance()} moves to
+   * the next key, and {@link #key()} and {@link #count()} read the current
+   * one.
+   * <p>
+   * <pre>
+   * Counter.Cursor&lt;String&gt; cursor = counter.cursor();
+   * while (cursor.advance()) {
+   *   weights[index(cursor.key())] = cursor.count() * idf;
+   * }
+   * </pre>
+   * Modifying the counter by adding or removing a key invalidates any cursor
+   * created before the modification.
+   */
+  public interface Cursor<K> {
+
+    /**
+     * Moves to the next key.
+     *
+     * @return false if there are no more keys
+     */
+    boolean advance();
+
+    /**
+     * Returns the current key.
+     *
+     * @throws NoSuchElementException if the cursor is not on a key
+     */
+    K key();
+
+    /**
+     * Returns the count of the current key.
+     *
+     * @throws NoSuchElementException if the cursor is not on a key
+     */
+    int count();
+  }
+
+  /**
+   * A {@link Spliterator} over the keys of a Counter that can also pass the
+   * count of every key, without creating an object per key. The ranges
+   * returned by {@link #trySplit()} can be traversed in parallel.
+   */
+  public interface CountSpliterator<K> extends Spliterator<K> {
+
+    /**
+     * If a remaining key exists, performs the given action on it and its count,
+     * returning true; else returns false.
+     */
+    boolean tryAdvance(ObjIntConsumer<? super K> action);
+
+    /**
+     * Performs the given action on each remaining key and its count,
+     * sequentially in the current thread.
+     */
+    default void forEachRemaining(ObjIntConsumer<? super K> action) {
+      while (tryAdvance(action)) {
+        ;
+      }
+    }
+
+    @Override
+    default boolean tryAdvance(Consumer<? super K> action) {
+      return tryAdvance((key, count) -> action.accept(key));
+    }
+
+    @Override
+    default void forEachRemaining(Consumer<? super K> action) {
+      forEachRemaining((key, count) -> action.accept(key));
+    }
+
+    @Override
+    CountSpliterator<K> trySplit();
+  }
+
   protected Map<K, MutableInteger> map;
   protected int totalCount;
 
@@ -63,10 +155,7 @@ public abstract class Counter<K> {
    * @param counter
    */
   public void addAll(Counter<K> counter) {
-    for (K key : map.keySet()) {
-      int count = counter.getCount(key);
-      incrementCount(key, count);
-    }
+    counter.forEach(this::incrementCount);
   }
 
   /**
@@ -163,7 +252,7 @@ public abstract class Counter<K> {
    * Returns the mean of all the counts (totalCount/size).
    */
   public double averageCount() {
-    return ((double) totalCount()) / map.size();
+    return ((double) totalCount()) / size();
   }
 
   /**
@@ -178,6 +267,43 @@ public abstract class Counter<K> {
     return map.containsKey(key);
   }
 
+  /**
+   * Returns a cursor over the keys and counts in this Counter, which does not
+   * create an object per key.
+   *
+   * @return a cursor over the keys and counts in this Counter
+   */
+  public Cursor<K> cursor() {
+    return new Cursor<K>() {
+
+      private final Iterator<Entry<K, MutableInteger>> inner = map.entrySet()
+          .iterator();
+      private Entry<K, MutableInteger> curr;
+
+      @Override
+      public boolean advance() {
+        curr = inner.hasNext() ? inner.next() : null;
+        return curr != null;
+      }
+
+      @Override
+      public K key() {
+        if (curr == null) {
+          throw new NoSuchElementException();
+        }
+        return curr.getKey();
+      }
+
+      @Override
+      public int count() {
+        if (curr == null) {
+          throw new NoSuchElementException();
+        }
+        return curr.getValue().get();
+      }
+    };
+  }
+
   /**
    * Subtracts 1 from the count for the given key. If the key hasn't been seen
    * before, it is assumed to have count 0, and thus this method will set its
@@ -267,6 +393,18 @@ public abstract class Counter<K> {
     };
   }
 
+  /**
+   * Performs the given action on every key and its count, without boxing the
+   * count or creating an entry per key.
+   *
+   * @param action the action to be performed on every key and count
+   */
+  public void forEach(ObjIntConsumer<? super K> action) {
+    for (Entry<K, MutableInteger> entry : map.entrySet()) {
+      action.accept(entry.getKey(), entry.getValue().get());
+    }
+  }
+
   /**
    * Returns the current count for the given key, which is 0 if it hasn't been
    * seen before. This is a convenient version of <code>get</code> that casts
@@ -386,6 +524,73 @@ public abstract class Counter<K> {
     return map.keySet();
   }
 
+  /**
+   * Returns the n keys with the smallest counts and their counts, the smallest
+   * count first. Ties are broken arbitrarily. If this counter has fewer than n
+   * keys, all of them are returned.
+   * <p>
+   * The keys are visited once and a bounded heap of n counts is kept, so this
+   * costs O(size() log n) instead of sorting every key.
+   *
+   * @param n the number of keys to return
+   * @return the n least common keys and their counts
+   * @throws IllegalArgumentException if n is negative
+   */
+  public List<Map.Entry<K, Integer>> leastCommon(int n) {
+    return topCounts(n, false);
+  }
+
+  /**
+   * Returns the n keys with the largest counts and their counts, the largest
+   * count first. Ties are broken arbitrarily. If this counter has fewer than n
+   * keys, all of them are returned.
+   * <p>
+   * The keys are visited once and a bounded heap of n counts is kept, so this
+   * costs O(size() log n) instead of sorting every key.
+   *
+   * @param n the number of keys to return
+   * @return the n most common keys and their counts
+   * @throws IllegalArgumentException if n is negative
+   */
+  public List<Map.Entry<K, Integer>> mostCommon(int n) {
+    return topCounts(n, true);
+  }
+
+  /**
+   * Same as {@link #leastCommon(int)}, but the keys are visited in parallel on
+   * the common fork-join pool. Each split of {@link #spliterator()} keeps its
+   * own bounded heap and the heaps are merged pairwise.
+   *
+   * @param n the number of keys to return
+   * @return the n least common keys and their counts
+   * @throws IllegalArgumentException if n is negative
+   */
+  public List<Map.Entry<K, Integer>> parallelLeastCommon(int n) {
+    checkArgument(n >= 0, "n is negative: %s", n);
+    return TopCounts.parallel(spliterator(), Math.min(n, size()), false);
+  }
+
+  /**
+   * Same as {@link #mostCommon(int)}, but the keys are visited in parallel on
+   * the common fork-join pool. Each split of {@link #spliterator()} keeps its
+   * own bounded heap and the heaps are merged pairwise.
+   *
+   * @param n the number of keys to return
+   * @return the n most common keys and their counts
+   * @throws IllegalArgumentException if n is negative
+   */
+  public List<Map.Entry<K, Integer>> parallelMostCommon(int n) {
+    checkArgument(n >= 0, "n is negative: %s", n);
+    return TopCounts.parallel(spliterator(), Math.min(n, size()), true);
+  }
+
+  private List<Map.Entry<K, Integer>> topCounts(int n, boolean largest) {
+    checkArgument(n >= 0, "n is negative: %s", n);
+    TopCounts<K> top = new TopCounts<>(Math.min(n, size()), largest);
+    forEach(top);
+    return top.toList();
+  }
+
   /**
    * Returns an unmodifiable view of the underlying map's key set.
    *
@@ -488,6 +693,17 @@ public abstract class Counter<K> {
     return map.size();
   }
 
+  /**
+   * Returns a {@link CountSpliterator} over the keys and counts in this
+   * Counter, which splits for parallel traversal and does not create an object
+   * per key.
+   *
+   * @return a spliterator over the keys and counts in this Counter
+   */
+  public CountSpliterator<K> spliterator() {
+    return new EntrySpliterator<>(map.entrySet().spliterator());
+  }
+
   /**
    * Subtracts the counts in the given Counter from the counts in this Counter.
    * To copy the values from another Counter rather than subtracting them, use
@@ -495,10 +711,7 @@ public abstract class Counter<K> {
    * @param counter
    */
   public void substractAll(Counter<K> counter) {
-    for (K key : map.keySet()) {
-      int count = counter.getCount(key);
-      decrementCount(key, count);
-    }
+    counter.forEach(this::decrementCount);
   }
 
   /**
@@ -573,13 +786,146 @@ public abstract class Counter<K> {
    */
   @Override
   public int hashCode() {
-    int total = 0;
-    for (final Entry<K, MutableInteger> entry : map.entrySet()) {
-      final K key = entry.getKey();
-      final MutableInteger count = entry.getValue();
-      total += (key == null ? 0 : key.hashCode()) ^ count.get();
+    int[] total = new int[]{0};
+    forEach((key, count) -> total[0] += (key == null ? 0 : key.hashCode()) ^ count);
+    return total[0];
+  }
+
+  /**
+   * A {@link CountSpliterator} over the entries of the underlying map.
+   */
+  private static class EntrySpliterator<K> implements CountSpliterator<K>,
+      Consumer<Entry<K, MutableInteger>> {
+
+    private final Spliterator<Entry<K, MutableInteger>> inner;
+    private ObjIntConsumer<? super K> action;
+
+    EntrySpliterator(Spliterator<Entry<K, MutableInteger>> inner) {
+      this.inner = inner;
+    }
+
+    @Override
+    public void accept(Entry<K, MutableInteger> entry) {
+      action.accept(entry.getKey(), entry.getValue().get());
+    }
+
+    @Override
+    public boolean tryAdvance(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      return inner.tryAdvance(this);
+    }
+
+    @Override
+    public void forEachRemaining(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      inner.forEachRemaining(this);
+    }
+
+    @Override
+    public CountSpliterator<K> trySplit() {
+      Spliterator<Entry<K, MutableInteger>> prefix = inner.trySplit();
+      return prefix == null ? null : new EntrySpliterator<>(prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+      return inner.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      // the order of the entries is not a comparator of the keys
+      return inner.characteristics() & ~Spliterator.SORTED;
+    }
+  }
+
+  /**
+   * A {@link Cursor} over the keys of a key iterator, which looks up the count
+   * of every key.
+   */
+  static class KeyLookupCursor<K> implements Cursor<K> {
+
+    private final Iterator<K> inner;
+    private final ToIntFunction<? super K> counts;
+    private K curr;
+    private boolean valid;
+
+    KeyLookupCursor(Iterator<K> inner, ToIntFunction<? super K> counts) {
+      this.inner = inner;
+      this.counts = counts;
+    }
+
+    @Override
+    public boolean advance() {
+      valid = inner.hasNext();
+      curr = valid ? inner.next() : null;
+      return valid;
+    }
+
+    @Override
+    public K key() {
+      if (!valid) {
+        throw new NoSuchElementException();
+      }
+      return curr;
+    }
+
+    @Override
+    public int count() {
+      if (!valid) {
+        throw new NoSuchElementException();
+      }
+      return counts.applyAsInt(curr);
+    }
+  }
+
+  /**
+   * A {@link CountSpliterator} over the keys of a key spliterator, which looks
+   * up the count of every key.
+   */
+  static class KeyLookupSpliterator<K> implements CountSpliterator<K>, Consumer<K> {
+
+    private final Spliterator<K> inner;
+    private final ToIntFunction<? super K> counts;
+    private ObjIntConsumer<? super K> action;
+
+    KeyLookupSpliterator(Spliterator<K> inner, ToIntFunction<? super K> counts) {
+      this.inner = inner;
+      this.counts = counts;
+    }
+
+    @Override
+    public void accept(K key) {
+      action.accept(key, counts.applyAsInt(key));
+    }
+
+    @Override
+    public boolean tryAdvance(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      return inner.tryAdvance(this);
+    }
+
+    @Override
+    public void forEachRemaining(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      inner.forEachRemaining(this);
+    }
+
+    @Override
+    public CountSpliterator<K> trySplit() {
+      Spliterator<K> prefix = inner.trySplit();
+      return prefix == null ? null : new KeyLookupSpliterator<>(prefix, counts);
+    }
+
+    @Override
+    public long estimateSize() {
+      return inner.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return inner.characteristics();
     }
-    return total;
   }
 
 }
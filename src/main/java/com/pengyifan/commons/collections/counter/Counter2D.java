@@ -0,0 +1,305 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts pairs of objects, such as bigrams or co-occurrences, and keeps the
+ * marginal count of every row and column.
+ * <p>
+ * Every row key and column key is interned to an int id the first time it is
+ * seen. The counts of a row are kept in a primitive map from column ids to
+ * counts, so counting a pair allocates nothing once both keys have been seen,
+ * and all the columns of a row can be visited without looking at the other
+ * rows. The row totals, column totals and the grand total are updated with
+ * every count.
+ * <p>
+ * Null keys are permitted. The row key set and column key set are
+ * unmodifiable views.
+ *
+ * @param <A> the type of the row keys
+ * @param <B> the type of the column keys
+ * @author Yifan Peng
+ */
+public class Counter2D<A, B> {
+
+  private final Map<A, Integer> rowIds;
+  private final Map<B, Integer> columnIds;
+  private final List<B> columnKeys;
+  private final List<IntIntHashMap> rows;
+  private int[] rowTotals;
+  private int[] columnTotals;
+  private int totalCount;
+  private int size;
+
+  /**
+   * Constructs a new (empty) Counter2D.
+   */
+  public Counter2D() {
+    rowIds = new HashMap<>();
+    columnIds = new HashMap<>();
+    columnKeys = new ArrayList<>();
+    rows = new ArrayList<>();
+    rowTotals = new int[16];
+    columnTotals = new int[16];
+    totalCount = 0;
+    size = 0;
+  }
+
+  /**
+   * Removes all pairs from this counter.
+   */
+  public void clear() {
+    rowIds.clear();
+    columnIds.clear();
+    columnKeys.clear();
+    rows.clear();
+    rowTotals = new int[16];
+    columnTotals = new int[16];
+    totalCount = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns the column keys that have been seen.
+   *
+   * @return the set of column keys
+   */
+  public Set<B> columnKeySet() {
+    return Collections.unmodifiableSet(columnIds.keySet());
+  }
+
+  /**
+   * Returns the sum of the counts in the column of the given key.
+   *
+   * @param b the column key
+   * @return the marginal count of the column
+   */
+  public int columnTotal(B b) {
+    Integer column = columnIds.get(b);
+    return column == null ? 0 : columnTotals[column];
+  }
+
+  /**
+   * Returns the conditional probability P(b|a) of every column in the row of
+   * the given key, i.e., the count of (a, b) divided by the total count of the
+   * row. The map is empty if the row is absent or its total is 0.
+   *
+   * @param a the row key
+   * @return the conditional distribution of the columns given the row
+   */
+  public Map<B, Double> conditional(A a) {
+    Map<B, Double> conditional = new HashMap<>();
+    Integer row = rowIds.get(a);
+    if (row != null && rowTotals[row] != 0) {
+      double rowTotal = rowTotals[row];
+      forEachInRow(a, (b, count) -> conditional.put(b, count / rowTotal));
+    }
+    return conditional;
+  }
+
+  /**
+   * Returns true if the pair has been counted.
+   *
+   * @param a the row key
+   * @param b the column key
+   * @return true if the pair is in this counter
+   */
+  public boolean containsKey(A a, B b) {
+    Integer row = rowIds.get(a);
+    Integer column = columnIds.get(b);
+    return row != null && column != null && rows.get(row).containsKey(column);
+  }
+
+  /**
+   * Performs the given action on every column key in the row of the given key
+   * and its count, without allocating a map.
+   *
+   * @param a      the row key
+   * @param action the action to perform on the column keys and their counts
+   */
+  public void forEachInRow(A a, ObjIntConsumer<? super B> action) {
+    Integer row = rowIds.get(a);
+    if (row != null) {
+      rows.get(row).forEach((column, count) -> action.accept(columnKeys.get(column), count));
+    }
+  }
+
+  /**
+   * Returns the count of the given pair, 0 if it has not been counted.
+   *
+   * @param a the row key
+   * @param b the column key
+   * @return the count of the pair
+   */
+  public int getCount(A a, B b) {
+    Integer row = rowIds.get(a);
+    if (row == null) {
+      return 0;
+    }
+    Integer column = columnIds.get(b);
+    return column == null ? 0 : rows.get(row).get(column);
+  }
+
+  /**
+   * Adds 1 to the count of the given pair.
+   *
+   * @param a the row key
+   * @param b the column key
+   * @return the count of the pair after the increment
+   */
+  public int incrementCount(A a, B b) {
+    return incrementCount(a, b, 1);
+  }
+
+  /**
+   * Adds the given count to the count of the given pair.
+   *
+   * @param a     the row key
+   * @param b     the column key
+   * @param count the count to add
+   * @return the count of the pair after the increment
+   */
+  public int incrementCount(A a, B b, int count) {
+    int row = rowId(a);
+    int column = columnId(b);
+    IntIntHashMap cells = rows.get(row);
+    int before = cells.size();
+    int newCount = cells.addTo(column, count);
+    size += cells.size() - before;
+    rowTotals[row] += count;
+    columnTotals[column] += count;
+    totalCount += count;
+    return newCount;
+  }
+
+  /**
+   * Returns a copy of the row of the given key as a Counter of column keys.
+   * The counter is empty if the row is absent.
+   *
+   * @param a the row key
+   * @return the counts of the columns in the row
+   */
+  public Counter<B> row(A a) {
+    Integer row = rowIds.get(a);
+    HashCounter<B> counter = new HashCounter<>(row == null ? 0 : rows.get(row).size());
+    forEachInRow(a, counter::incrementCount);
+    return counter;
+  }
+
+  /**
+   * Returns the row keys that have been seen.
+   *
+   * @return the set of row keys
+   */
+  public Set<A> rowKeySet() {
+    return Collections.unmodifiableSet(rowIds.keySet());
+  }
+
+  /**
+   * Returns the sum of the counts in the row of the given key.
+   *
+   * @param a the row key
+   * @return the marginal count of the row
+   */
+  public int rowTotal(A a) {
+    Integer row = rowIds.get(a);
+    return row == null ? 0 : rowTotals[row];
+  }
+
+  /**
+   * Sets the count of the given pair.
+   *
+   * @param a     the row key
+   * @param b     the column key
+   * @param count the new count
+   */
+  public void setCount(A a, B b, int count) {
+    incrementCount(a, b, count - getCount(a, b));
+  }
+
+  /**
+   * Returns the number of distinct pairs that have been counted.
+   *
+   * @return the number of pairs
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the k column keys with the largest counts in the row of the given
+   * key and their counts, the largest count first. Ties are broken
+   * arbitrarily.
+   *
+   * @param a the row key
+   * @param k the number of columns to return
+   * @return the k most common columns in the row
+   * @throws IllegalArgumentException if k is negative
+   */
+  public List<Map.Entry<B, Integer>> topColumns(A a, int k) {
+    checkArgument(k >= 0, "k is negative: %s", k);
+    Integer row = rowIds.get(a);
+    if (row == null) {
+      return new ArrayList<>();
+    }
+    TopCounts<B> top = new TopCounts<>(Math.min(k, rows.get(row).size()), true);
+    forEachInRow(a, top);
+    return top.toList();
+  }
+
+  /**
+   * Returns the sum of the counts of all pairs.
+   *
+   * @return the total count
+   */
+  public int totalCount() {
+    return totalCount;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (A a : rowIds.keySet()) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(a).append('=').append(row(a));
+    }
+    return sb.append('}').toString();
+  }
+
+  private int columnId(B b) {
+    Integer column = columnIds.get(b);
+    if (column == null) {
+      column = columnKeys.size();
+      columnIds.put(b, column);
+      columnKeys.add(b);
+      if (column == columnTotals.length) {
+        columnTotals = Arrays.copyOf(columnTotals, column * 2);
+      }
+    }
+    return column;
+  }
+
+  private int rowId(A a) {
+    Integer row = rowIds.get(a);
+    if (row == null) {
+      row = rows.size();
+      rowIds.put(a, row);
+      rows.add(new IntIntHashMap());
+      if (row == rowTotals.length) {
+        rowTotals = Arrays.copyOf(rowTotals, row * 2);
+      }
+    }
+    return row;
+  }
+}
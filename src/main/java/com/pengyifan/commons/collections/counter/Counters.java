@@ -0,0 +1,166 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Provides static utility methods for combining {@link Counter} instances.
+ * <p>
+ * The following are examples of counting the tokens of a stream and merging
+ * per-file counters:
+ * <p>
+ * <pre>
+ * // Count tokens in parallel, each worker thread fills its own counter
+ * Counter&lt;String&gt; counter = tokens.parallelStream()
+ *     .collect(Counters.toCounter());
+ *
+ * // Merge the counters of many files on all cores
+ * Counter&lt;String&gt; merged = Counters.merge(counters, OpenHashCounter::new);
+ * </pre>
+ *
+ * @author Yifan Peng
+ */
+public final class Counters {
+
+  private Counters() throws InstantiationException {
+    throw new InstantiationException("This class is not for instantiation");
+  }
+
+  /**
+   * Returns a new {@link HashCounter} with the sum of the counts in the given
+   * counters. See {@link #merge(List, IntFunction)}.
+   *
+   * @param counters the counters to merge, which are not modified
+   * @return a new counter with the sum of the counts
+   */
+  public static <K> Counter<K> merge(List<? extends Counter<K>> counters) {
+    return merge(counters, HashCounter::new);
+  }
+
+  /**
+   * Returns a new counter with the sum of the counts in the given counters.
+   * <p>
+   * The counters are merged in a balanced tree on the common fork-join pool,
+   * so N counters are combined in O(log N) rounds instead of N sequential
+   * <code>addAll</code> calls. Every leaf of the tree adds a few consecutive
+   * counters into a new counter, created by the factory with the size of the
+   * largest of them: the counters usually share most of their keys, so the sum
+   * of their sizes would overestimate the union. Every inner node then adds
+   * the smaller partial result into the larger one, which grows as needed, so
+   * every input is copied only once.
+   *
+   * @param counters the counters to merge, which are not modified
+   * @param factory  creates an empty counter that can hold the given number of
+   *                 keys, e.g. <code>OpenHashCounter::new</code>
+   * @return a new counter with the sum of the counts
+   */
+  public static <K, C extends Counter<K>> C merge(List<? extends Counter<K>> counters,
+      IntFunction<C> factory) {
+    checkNotNull(counters, "The counters are null");
+    checkNotNull(factory, "The factory is null");
+    if (counters.isEmpty()) {
+      return factory.apply(0);
+    }
+    return ForkJoinPool.commonPool().invoke(
+        new MergeTask<>(counters, factory, 0, counters.size()));
+  }
+
+  /**
+   * Returns a {@link Collector} that counts the input elements in a new
+   * {@link HashCounter}.
+   *
+   * @param <K> the type of the input elements
+   * @return a {@link Collector} which counts the input elements
+   */
+  public static <K> Collector<K, ?, Counter<K>> toCounter() {
+    return toCounter(HashCounter::new);
+  }
+
+  /**
+   * Returns a {@link Collector} that counts the input elements in a new counter
+   * created by the supplier.
+   * <p>
+   * In a parallel stream, every worker thread counts into its own counter and
+   * the partial counters are combined by adding the smaller one into the
+   * larger one, so the elements are never counted under a lock.
+   *
+   * @param <K>      the type of the input elements
+   * @param <C>      the type of the resulting counter
+   * @param supplier a supplier providing a new empty counter
+   * @return a {@link Collector} which counts the input elements
+   */
+  public static <K, C extends Counter<K>> Collector<K, ?, C> toCounter(Supplier<C> supplier) {
+    return Collector.of(
+        supplier,
+        Counter<K>::incrementCount,
+        (left, right) -> {
+          if (left.size() < right.size()) {
+            right.addAll(left);
+            return right;
+          } else {
+            left.addAll(right);
+            return left;
+          }
+        },
+        Collector.Characteristics.IDENTITY_FINISH,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Merges the counters in [from, to).
+   */
+  private static class MergeTask<K, C extends Counter<K>> extends RecursiveTask<C> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The largest number of counters added sequentially into one new counter
+     */
+    private static final int LEAF_SIZE = 4;
+
+    private final List<? extends Counter<K>> counters;
+    private final IntFunction<C> factory;
+    private final int from;
+    private final int to;
+
+    MergeTask(List<? extends Counter<K>> counters, IntFunction<C> factory, int from, int to) {
+      this.counters = counters;
+      this.factory = factory;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected C compute() {
+      if (to - from <= LEAF_SIZE) {
+        int size = 0;
+        for (int i = from; i < to; i++) {
+          size = Math.max(size, counters.get(i).size());
+        }
+        C result = factory.apply(size);
+        for (int i = from; i < to; i++) {
+          result.addAll(counters.get(i));
+        }
+        return result;
+      }
+      int mid = (from + to) >>> 1;
+      MergeTask<K, C> right = new MergeTask<>(counters, factory, mid, to);
+      right.fork();
+      C left = new MergeTask<>(counters, factory, from, mid).compute();
+      C other = right.join();
+      // both partial results are new, so the larger one is reused
+      if (left.size() < other.size()) {
+        other.addAll(left);
+        return other;
+      }
+      left.addAll(other);
+      return left;
+    }
+  }
+}
@@ -0,0 +1,400 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter whose counts decay exponentially over time, so that recent
+ * increments weigh more than old ones. An increment made one half-life ago
+ * counts for half as much as an increment made now.
+ * <p>
+ * Decaying every count at every tick would cost O(size). Instead, following
+ * the forward decay of Cormode et al. (2009), an increment made at time t is
+ * stored with the weight count * exp(lambda * (t - t0)) relative to a landmark
+ * time t0, and a stored weight is scaled back by exp(-lambda * (now - t0))
+ * when it is read. The weights grow with time, so once in a while they are
+ * renormalized to a new landmark in one pass. The same pass drops the keys
+ * whose decayed weight has fallen below 0.5, i.e., whose count rounds to 0. A
+ * pass is made when the scale would exceed exp(64) or when the number of keys
+ * has doubled since the last pass, which is amortized O(1) per increment.
+ * <p>
+ * {@link #getCount(Object)} and {@link #totalCount()} round the decayed
+ * weights to the nearest int; {@link #getWeight(Object)} and
+ * {@link #totalWeight()} return them exactly. {@link #argmax()} and
+ * {@link #argmin()} compare the exact weights. The key set is unmodifiable.
+ *
+ * @author Yifan Peng
+ */
+public class DecayingCounter<K> extends Counter<K> {
+
+  private static class Weight {
+
+    private double value;
+
+    Weight(double value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * The largest exponent of the scale before the weights are renormalized
+   */
+  private static final double MAX_EXPONENT = 64;
+
+  /**
+   * Weights below this are dropped when renormalizing
+   */
+  private static final double MIN_WEIGHT = 0.5;
+
+  private static final int MIN_PRUNE_SIZE = 16;
+
+  private final Map<K, Weight> weights;
+  /**
+   * lambda = ln(2) / half-life
+   */
+  private final double lambda;
+  private final LongSupplier clock;
+  /**
+   * The landmark time of the stored weights
+   */
+  private long landmark;
+  /**
+   * The sum of the stored weights
+   */
+  private double total;
+  /**
+   * The number of keys after the last renormalization
+   */
+  private int prunedSize;
+
+  /**
+   * Constructs a new (empty) Counter whose counts halve every given number of
+   * milliseconds, using the system clock.
+   *
+   * @param halfLifeMillis the half-life of a count in milliseconds
+   * @throws IllegalArgumentException if the half-life is not positive
+   */
+  public DecayingCounter(long halfLifeMillis) {
+    this(halfLifeMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a new (empty) Counter whose counts halve every given amount of
+   * time, measured by the given clock.
+   *
+   * @param halfLife the half-life of a count, in the unit of the clock
+   * @param clock    returns the current time
+   * @throws IllegalArgumentException if the half-life is not positive
+   */
+  public DecayingCounter(long halfLife, LongSupplier clock) {
+    checkArgument(halfLife > 0, "The half-life is not positive: %s", halfLife);
+    this.weights = new HashMap<>();
+    this.lambda = Math.log(2) / halfLife;
+    this.clock = checkNotNull(clock, "The clock is null");
+    this.landmark = clock.getAsLong();
+    this.total = 0;
+    this.prunedSize = 0;
+  }
+
+  /**
+   * Constructs a copy of the given counter with the same half-life and clock.
+   */
+  private DecayingCounter(DecayingCounter<K> other) {
+    this.weights = new HashMap<>();
+    for (Map.Entry<K, Weight> e : other.weights.entrySet()) {
+      weights.put(e.getKey(), new Weight(e.getValue().value));
+    }
+    this.lambda = other.lambda;
+    this.clock = other.clock;
+    this.landmark = other.landmark;
+    this.total = other.total;
+    this.prunedSize = other.prunedSize;
+  }
+
+  @Override
+  public K argmax() {
+    double max = Double.NEGATIVE_INFINITY;
+    K argmax = null;
+    for (Map.Entry<K, Weight> e : weights.entrySet()) {
+      if (argmax == null || e.getValue().value > max) {
+        max = e.getValue().value;
+        argmax = e.getKey();
+      }
+    }
+    return argmax;
+  }
+
+  @Override
+  public K argmin() {
+    double min = Double.POSITIVE_INFINITY;
+    K argmin = null;
+    for (Map.Entry<K, Weight> e : weights.entrySet()) {
+      if (argmin == null || e.getValue().value < min) {
+        min = e.getValue().value;
+        argmin = e.getKey();
+      }
+    }
+    return argmin;
+  }
+
+  @Override
+  public void clear() {
+    weights.clear();
+    total = 0;
+    prunedSize = 0;
+    landmark = clock.getAsLong();
+  }
+
+  @Override
+  public Object clone() {
+    return new DecayingCounter<>(this);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return weights.containsKey(key);
+  }
+
+  @Override
+  public Cursor<K> cursor() {
+    return new KeyLookupCursor<>(weights.keySet().iterator(), this::getCount);
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new Iterator<Map.Entry<K, Integer>>() {
+
+          private final Iterator<K> inner = weights.keySet().iterator();
+
+          @Override
+          public boolean hasNext() {
+            return inner.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Integer> next() {
+            return new Map.Entry<K, Integer>() {
+
+              private final K key = inner.next();
+
+              @Override
+              public K getKey() {
+                return key;
+              }
+
+              @Override
+              public Integer getValue() {
+                return getCount(key);
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                int old = getCount(key);
+                setCount(key, value);
+                return old;
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return weights.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    double decay = decay();
+    for (Map.Entry<K, Weight> e : weights.entrySet()) {
+      action.accept(e.getKey(), round(e.getValue().value * decay));
+    }
+  }
+
+  /**
+   * Returns the decayed count of the given key, rounded to the nearest int.
+   *
+   * @param key the object to search for
+   * @return the decayed count of the key, zero if not found
+   */
+  @Override
+  public int getCount(K key) {
+    return round(getWeight(key));
+  }
+
+  /**
+   * Returns the exact decayed count of the given key.
+   *
+   * @param key the object to search for
+   * @return the decayed count of the key, zero if not found
+   */
+  public double getWeight(K key) {
+    Weight weight = weights.get(key);
+    return weight == null ? 0 : weight.value * decay();
+  }
+
+  /**
+   * Adds the given count, as of now, to the decayed count of the given key.
+   *
+   * @param key   the object to search for
+   * @param count the number of copies to add
+   * @return the decayed count of the key after the increment, rounded
+   */
+  @Override
+  public int incrementCount(K key, int count) {
+    double scale = scale();
+    Weight weight = weights.get(key);
+    if (weight == null) {
+      weight = new Weight(0);
+      weights.put(key, weight);
+    }
+    weight.value += count * scale;
+    total += count * scale;
+    int newCount = round(weight.value / scale);
+    if (weights.size() >= Math.max(MIN_PRUNE_SIZE, 2 * prunedSize)) {
+      renormalize(clock.getAsLong());
+    }
+    return newCount;
+  }
+
+  /**
+   * Returns an unmodifiable view of the keys in this counter.
+   *
+   * @return the set of unique elements in this counter
+   */
+  @Override
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(weights.keySet());
+  }
+
+  @Override
+  public int remove(K key) {
+    Weight weight = weights.remove(key);
+    if (weight == null) {
+      return Integer.MIN_VALUE;
+    }
+    total -= weight.value;
+    return round(weight.value * decay());
+  }
+
+  /**
+   * Removes the keys whose decayed count rounds to 0.
+   */
+  @Override
+  public void removeZeroCounts() {
+    double decay = decay();
+    Iterator<Weight> itr = weights.values().iterator();
+    while (itr.hasNext()) {
+      Weight weight = itr.next();
+      if (round(weight.value * decay) == 0) {
+        itr.remove();
+        total -= weight.value;
+      }
+    }
+  }
+
+  @Override
+  public void setCount(K key, int count) {
+    double scale = scale();
+    Weight weight = weights.get(key);
+    if (weight == null) {
+      weight = new Weight(0);
+      weights.put(key, weight);
+    }
+    total += count * scale - weight.value;
+    weight.value = count * scale;
+  }
+
+  @Override
+  public int size() {
+    return weights.size();
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    return new KeyLookupSpliterator<>(weights.keySet().spliterator(), this::getCount);
+  }
+
+  /**
+   * Returns the sum of the decayed counts, rounded to the nearest int.
+   *
+   * @return the sum of the decayed counts
+   */
+  @Override
+  public int totalCount() {
+    return round(totalWeight());
+  }
+
+  /**
+   * Returns the exact sum of the decayed counts.
+   *
+   * @return the sum of the decayed counts
+   */
+  public double totalWeight() {
+    return total * decay();
+  }
+
+  /**
+   * Returns the factor that turns a stored weight into a decayed count now.
+   */
+  private double decay() {
+    return Math.exp(-lambda * (clock.getAsLong() - landmark));
+  }
+
+  /**
+   * Returns the factor that turns a count now into a stored weight,
+   * renormalizing the stored weights first if the factor would be too large.
+   */
+  private double scale() {
+    long now = clock.getAsLong();
+    if (lambda * (now - landmark) > MAX_EXPONENT) {
+      renormalize(now);
+    }
+    return Math.exp(lambda * (now - landmark));
+  }
+
+  /**
+   * Moves the landmark to the given time and drops the keys whose decayed
+   * count has fallen below {@link #MIN_WEIGHT}.
+   */
+  private void renormalize(long now) {
+    double decay = Math.exp(-lambda * (now - landmark));
+    total = 0;
+    Iterator<Weight> itr = weights.values().iterator();
+    while (itr.hasNext()) {
+      Weight weight = itr.next();
+      weight.value *= decay;
+      if (Math.abs(weight.value) < MIN_WEIGHT) {
+        itr.remove();
+      } else {
+        total += weight.value;
+      }
+    }
+    landmark = now;
+    prunedSize = weights.size();
+  }
+
+  private static int round(double value) {
+    return (int) Math.round(value);
+  }
+}
@@ -16,6 +16,17 @@ public class HashCounter<K> extends Counter<K> {
     totalCount = 0;
   }
 
+  /**
+   * Constructs a new (empty) Counter that can hold the expected number of keys
+   * without rehashing.
+   *
+   * @param expectedSize the expected number of keys
+   */
+  public HashCounter(int expectedSize) {
+    map = new HashMap<>((int) (expectedSize / 0.75f) + 1);
+    totalCount = 0;
+  }
+
   /**
    * Constructs a new Counter with the contents of the given Counter.
    * 
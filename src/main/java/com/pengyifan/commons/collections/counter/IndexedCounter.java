@@ -0,0 +1,548 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter that keeps its keys grouped by count, so that the queries on the
+ * extreme counts do not scan the whole map.
+ * <p>
+ * Keys with the same count share a bucket, and the buckets form a doubly
+ * linked list ordered by count, as in the O(1) LFU cache of Shah, Mitra and
+ * Matani (2010). Every key knows its bucket, and a bucket can also be found by
+ * its count. As a result:
+ * <ul>
+ * <li>{@link #max()}, {@link #min()}, {@link #argmax()} and {@link #argmin()}
+ * are O(1);</li>
+ * <li>{@link #keysAt(int)}, {@link #keysAbove(int)}, {@link #keysBelow(int)},
+ * {@link #argmaxSet()}, {@link #argminSet()}, {@link #mostCommon(int)} and
+ * {@link #leastCommon(int)} are O(size of the result);</li>
+ * <li>incrementing or decrementing a count by 1 is O(1). Changing it by more
+ * costs O(1) if some key already has the new count, and otherwise the number
+ * of distinct counts between the old and the new count.</li>
+ * </ul>
+ * The price is a few more objects per key than {@link HashCounter}. The key
+ * set is unmodifiable; use {@link #remove(Object)} instead.
+ *
+ * @author Yifan Peng
+ */
+public class IndexedCounter<K> extends Counter<K> {
+
+  private static class Node<K> {
+
+    private final K key;
+    private Bucket<K> bucket;
+    private Node<K> prev;
+    private Node<K> next;
+
+    Node(K key) {
+      this.key = key;
+    }
+  }
+
+  private static class Bucket<K> {
+
+    private final int count;
+    private Node<K> head;
+    private Bucket<K> lower;
+    private Bucket<K> higher;
+
+    Bucket(int count) {
+      this.count = count;
+    }
+  }
+
+  private final Map<K, Node<K>> nodes;
+  private final Map<Integer, Bucket<K>> buckets;
+  /**
+   * The bucket with the smallest count
+   */
+  private Bucket<K> lowest;
+  /**
+   * The bucket with the largest count
+   */
+  private Bucket<K> highest;
+
+  /**
+   * Constructs a new (empty) Counter.
+   */
+  public IndexedCounter() {
+    nodes = new HashMap<>();
+    buckets = new HashMap<>();
+    totalCount = 0;
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   *
+   * @param counter
+   */
+  public IndexedCounter(Counter<K> counter) {
+    this();
+    addAll(counter);
+  }
+
+  @Override
+  public K argmax() {
+    return highest == null ? null : highest.head.key;
+  }
+
+  @Override
+  public Set<K> argmaxSet() {
+    return highest == null ? new HashSet<>() : keys(highest);
+  }
+
+  @Override
+  public K argmin() {
+    return lowest == null ? null : lowest.head.key;
+  }
+
+  @Override
+  public Set<K> argminSet() {
+    return lowest == null ? new HashSet<>() : keys(lowest);
+  }
+
+  @Override
+  public void clear() {
+    nodes.clear();
+    buckets.clear();
+    lowest = null;
+    highest = null;
+    totalCount = 0;
+  }
+
+  @Override
+  public Object clone() {
+    return new IndexedCounter<>(this);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return nodes.containsKey(key);
+  }
+
+  @Override
+  public Cursor<K> cursor() {
+    return new Cursor<K>() {
+
+      private final Iterator<Node<K>> inner = nodes.values().iterator();
+      private Node<K> curr;
+
+      @Override
+      public boolean advance() {
+        curr = inner.hasNext() ? inner.next() : null;
+        return curr != null;
+      }
+
+      @Override
+      public K key() {
+        if (curr == null) {
+          throw new NoSuchElementException();
+        }
+        return curr.key;
+      }
+
+      @Override
+      public int count() {
+        if (curr == null) {
+          throw new NoSuchElementException();
+        }
+        return curr.bucket.count;
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new Iterator<Map.Entry<K, Integer>>() {
+
+          private final Iterator<Node<K>> inner = nodes.values().iterator();
+
+          @Override
+          public boolean hasNext() {
+            return inner.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Integer> next() {
+            return new Map.Entry<K, Integer>() {
+
+              private final Node<K> node = inner.next();
+
+              @Override
+              public K getKey() {
+                return node.key;
+              }
+
+              @Override
+              public Integer getValue() {
+                return node.bucket.count;
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                int old = node.bucket.count;
+                setCount(node.key, value);
+                return old;
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return nodes.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    for (Node<K> node : nodes.values()) {
+      action.accept(node.key, node.bucket.count);
+    }
+  }
+
+  @Override
+  public int getCount(K key) {
+    Node<K> node = nodes.get(key);
+    return node == null ? 0 : node.bucket.count;
+  }
+
+  @Override
+  public int incrementCount(K key, int count) {
+    Node<K> node = nodes.get(key);
+    int newCount;
+    if (node == null) {
+      node = new Node<>(key);
+      nodes.put(key, node);
+      newCount = count;
+      link(node, findOrCreate(newCount, lowest));
+    } else {
+      newCount = node.bucket.count + count;
+      move(node, newCount);
+    }
+    totalCount += count;
+    return newCount;
+  }
+
+  /**
+   * Returns an unmodifiable view of the keys in this counter.
+   *
+   * @return the set of unique elements in this counter
+   */
+  @Override
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(nodes.keySet());
+  }
+
+  @Override
+  public Set<K> keysAbove(int countThreshold) {
+    Set<K> keys = new HashSet<>();
+    for (Bucket<K> b = highest; b != null && b.count >= countThreshold; b = b.lower) {
+      addKeys(b, keys);
+    }
+    return keys;
+  }
+
+  @Override
+  public Set<K> keysAt(int count) {
+    Bucket<K> bucket = buckets.get(count);
+    return bucket == null ? new HashSet<>() : keys(bucket);
+  }
+
+  @Override
+  public Set<K> keysBelow(int countThreshold) {
+    Set<K> keys = new HashSet<>();
+    for (Bucket<K> b = lowest; b != null && b.count <= countThreshold; b = b.higher) {
+      addKeys(b, keys);
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the n keys with the smallest counts by walking the buckets upward
+   * from the lowest count. This is O(n).
+   */
+  @Override
+  public List<Map.Entry<K, Integer>> leastCommon(int n) {
+    checkArgument(n >= 0, "n is negative: %s", n);
+    List<Map.Entry<K, Integer>> entries = new ArrayList<>(Math.min(n, size()));
+    for (Bucket<K> b = lowest; b != null && entries.size() < n; b = b.higher) {
+      addEntries(b, entries, n);
+    }
+    return entries;
+  }
+
+  @Override
+  public int max() {
+    return highest == null ? Integer.MIN_VALUE : highest.count;
+  }
+
+  @Override
+  public int min() {
+    return lowest == null ? Integer.MAX_VALUE : lowest.count;
+  }
+
+  /**
+   * Returns the n keys with the largest counts by walking the buckets downward
+   * from the highest count. This is O(n).
+   */
+  @Override
+  public List<Map.Entry<K, Integer>> mostCommon(int n) {
+    checkArgument(n >= 0, "n is negative: %s", n);
+    List<Map.Entry<K, Integer>> entries = new ArrayList<>(Math.min(n, size()));
+    for (Bucket<K> b = highest; b != null && entries.size() < n; b = b.lower) {
+      addEntries(b, entries, n);
+    }
+    return entries;
+  }
+
+  /**
+   * Same as {@link #leastCommon(int)}; the bucket walk is already O(n).
+   */
+  @Override
+  public List<Map.Entry<K, Integer>> parallelLeastCommon(int n) {
+    return leastCommon(n);
+  }
+
+  /**
+   * Same as {@link #mostCommon(int)}; the bucket walk is already O(n).
+   */
+  @Override
+  public List<Map.Entry<K, Integer>> parallelMostCommon(int n) {
+    return mostCommon(n);
+  }
+
+  @Override
+  public int remove(K key) {
+    Node<K> node = nodes.remove(key);
+    if (node == null) {
+      return Integer.MIN_VALUE;
+    }
+    int count = node.bucket.count;
+    unlink(node);
+    totalCount -= count;
+    return count;
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    Bucket<K> bucket = buckets.get(0);
+    if (bucket != null) {
+      for (K key : keys(bucket)) {
+        remove(key);
+      }
+    }
+  }
+
+  @Override
+  public void setCount(K key, int count) {
+    incrementCount(key, count - getCount(key));
+  }
+
+  @Override
+  public int size() {
+    return nodes.size();
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    return new NodeSpliterator<>(nodes.values().spliterator());
+  }
+
+  /**
+   * Adds the keys of the bucket and their count to the list until it holds n
+   * entries.
+   */
+  private void addEntries(Bucket<K> bucket, List<Map.Entry<K, Integer>> entries, int n) {
+    for (Node<K> node = bucket.head; node != null && entries.size() < n; node = node.next) {
+      entries.add(new AbstractMap.SimpleImmutableEntry<>(node.key, bucket.count));
+    }
+  }
+
+  private void addKeys(Bucket<K> bucket, Set<K> keys) {
+    for (Node<K> n = bucket.head; n != null; n = n.next) {
+      keys.add(n.key);
+    }
+  }
+
+  private Set<K> keys(Bucket<K> bucket) {
+    Set<K> keys = new HashSet<>();
+    addKeys(bucket, keys);
+    return keys;
+  }
+
+  /**
+   * Moves the node to the bucket of the new count.
+   */
+  private void move(Node<K> node, int count) {
+    Bucket<K> from = node.bucket;
+    if (from.count == count) {
+      return;
+    }
+    Bucket<K> to = findOrCreate(count, from);
+    unlink(node);
+    link(node, to);
+  }
+
+  /**
+   * Returns the bucket of the count, creating it if necessary. The search for
+   * the place of a new bucket starts at the given bucket.
+   */
+  private Bucket<K> findOrCreate(int count, Bucket<K> start) {
+    Bucket<K> bucket = buckets.get(count);
+    if (bucket != null) {
+      return bucket;
+    }
+    bucket = new Bucket<>(count);
+    buckets.put(count, bucket);
+    if (start == null) {
+      // the first bucket
+      lowest = bucket;
+      highest = bucket;
+      return bucket;
+    }
+    // find the neighbors of the new bucket
+    Bucket<K> lower;
+    Bucket<K> higher;
+    if (start.count < count) {
+      lower = start;
+      while (lower.higher != null && lower.higher.count < count) {
+        lower = lower.higher;
+      }
+      higher = lower.higher;
+    } else {
+      higher = start;
+      while (higher.lower != null && higher.lower.count > count) {
+        higher = higher.lower;
+      }
+      lower = higher.lower;
+    }
+    bucket.lower = lower;
+    bucket.higher = higher;
+    if (lower == null) {
+      lowest = bucket;
+    } else {
+      lower.higher = bucket;
+    }
+    if (higher == null) {
+      highest = bucket;
+    } else {
+      higher.lower = bucket;
+    }
+    return bucket;
+  }
+
+  private void link(Node<K> node, Bucket<K> bucket) {
+    node.bucket = bucket;
+    node.prev = null;
+    node.next = bucket.head;
+    if (bucket.head != null) {
+      bucket.head.prev = node;
+    }
+    bucket.head = node;
+  }
+
+  /**
+   * Unlinks the node from its bucket and drops the bucket if it becomes empty.
+   */
+  private void unlink(Node<K> node) {
+    Bucket<K> bucket = node.bucket;
+    if (node.prev == null) {
+      bucket.head = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next != null) {
+      node.next.prev = node.prev;
+    }
+    node.bucket = null;
+    node.prev = null;
+    node.next = null;
+
+    if (bucket.head == null) {
+      buckets.remove(bucket.count);
+      if (bucket.lower == null) {
+        lowest = bucket.higher;
+      } else {
+        bucket.lower.higher = bucket.higher;
+      }
+      if (bucket.higher == null) {
+        highest = bucket.lower;
+      } else {
+        bucket.higher.lower = bucket.lower;
+      }
+    }
+  }
+
+  /**
+   * A {@link CountSpliterator} over the nodes of the key map.
+   */
+  private static class NodeSpliterator<K> implements CountSpliterator<K>, Consumer<Node<K>> {
+
+    private final Spliterator<Node<K>> inner;
+    private ObjIntConsumer<? super K> action;
+
+    NodeSpliterator(Spliterator<Node<K>> inner) {
+      this.inner = inner;
+    }
+
+    @Override
+    public void accept(Node<K> node) {
+      action.accept(node.key, node.bucket.count);
+    }
+
+    @Override
+    public boolean tryAdvance(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      return inner.tryAdvance(this);
+    }
+
+    @Override
+    public void forEachRemaining(ObjIntConsumer<? super K> action) {
+      this.action = action;
+      inner.forEachRemaining(this);
+    }
+
+    @Override
+    public CountSpliterator<K> trySplit() {
+      Spliterator<Node<K>> prefix = inner.trySplit();
+      return prefix == null ? null : new NodeSpliterator<>(prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+      return inner.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return inner.characteristics() | DISTINCT;
+    }
+  }
+}
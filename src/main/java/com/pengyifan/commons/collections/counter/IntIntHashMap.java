@@ -0,0 +1,123 @@
+package com.pengyifan.commons.collections.counter;
+
+import java.util.Arrays;
+
+/**
+ * A map from non-negative int keys to int values, backed by an open-addressing
+ * hash table with linear probing. Absent keys map to 0. Entries are never
+ * removed, which keeps probing free of tombstones.
+ */
+class IntIntHashMap {
+
+  interface Visitor {
+
+    void accept(int key, int value);
+  }
+
+  private static final float LOAD_FACTOR = 0.75f;
+
+  /**
+   * Marks a free slot in {@link #keys}
+   */
+  private static final int FREE = -1;
+
+  private int[] keys;
+  private int[] values;
+  private int mask;
+  private int maxFill;
+  private int size;
+
+  IntIntHashMap() {
+    allocate(4);
+  }
+
+  /**
+   * Adds the delta to the value of the key and returns the new value.
+   */
+  int addTo(int key, int delta) {
+    int pos = findOrInsert(key);
+    values[pos] += delta;
+    return values[pos];
+  }
+
+  boolean containsKey(int key) {
+    return find(key) >= 0;
+  }
+
+  void forEach(Visitor visitor) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE) {
+        visitor.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  int get(int key) {
+    int pos = find(key);
+    return pos < 0 ? 0 : values[pos];
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int find(int key) {
+    int pos = mix(key) & mask;
+    int curr;
+    while ((curr = keys[pos]) != FREE) {
+      if (curr == key) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int findOrInsert(int key) {
+    int pos = mix(key) & mask;
+    int curr;
+    while ((curr = keys[pos]) != FREE) {
+      if (curr == key) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    if (size >= maxFill) {
+      rehash(keys.length * 2);
+      return findOrInsert(key);
+    }
+    keys[pos] = key;
+    values[pos] = 0;
+    size++;
+    return pos;
+  }
+
+  private void rehash(int newLength) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(newLength);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != FREE) {
+        int pos = mix(oldKeys[i]) & mask;
+        while (keys[pos] != FREE) {
+          pos = (pos + 1) & mask;
+        }
+        keys[pos] = oldKeys[i];
+        values[pos] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int length) {
+    keys = new int[length];
+    Arrays.fill(keys, FREE);
+    values = new int[length];
+    mask = length - 1;
+    maxFill = Math.min((int) Math.ceil(length * LOAD_FACTOR), length - 1);
+  }
+
+  private static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
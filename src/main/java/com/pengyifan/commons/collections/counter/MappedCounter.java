@@ -0,0 +1,553 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * A read-only Counter of strings that answers queries directly from a
+ * memory-mapped snapshot file.
+ * <p>
+ * A snapshot is written with {@link #write(Counter, File)} and opened with
+ * {@link #open(File)}. Opening a snapshot only maps the file, so it takes
+ * milliseconds regardless of the number of keys, and the operating system
+ * pages in the parts that are actually read. {@link #getCount(Object)} binary
+ * searches a block index and then scans one block, which is O(log n). Iterating
+ * the key set or entry set decodes the file sequentially in key order.
+ * <p>
+ * The file starts with a fixed header, followed by the entries sorted by the
+ * UTF-8 bytes of their keys and grouped into blocks of {@value #BLOCK_SIZE},
+ * followed by the offset of every block:
+ * <pre>
+ * header : magic(int) version(int) size(int) blockCount(int)
+ *          maxKeyLength(int) totalCount(int) indexOffset(long)
+ * block  : keyLength(varint) key(bytes) count(zigzag varint)
+ *          { prefixLength(varint) suffixLength(varint) suffix(bytes)
+ *            count(zigzag varint) }
+ * index  : blockOffset(int) * blockCount
+ * </pre>
+ * Keys after the first of a block are front-coded against the previous key.
+ * Because the file is mapped as a single buffer, a snapshot cannot exceed 2 GB.
+ * <p>
+ * All the methods that modify the counter throw
+ * {@link UnsupportedOperationException}. The counter can be safely shared by
+ * multiple threads.
+ *
+ * @author Yifan Peng
+ */
+public class MappedCounter extends Counter<String> {
+
+  private static final int MAGIC = 0x5059434E;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  static final int BLOCK_SIZE = 16;
+
+  private static final Comparator<byte[]> BYTE_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int blockCount;
+  private final int maxKeyLength;
+  private final int indexOffset;
+
+  private MappedCounter(ByteBuffer buffer) {
+    checkArgument(buffer.getInt(0) == MAGIC, "Not a counter snapshot");
+    checkArgument(buffer.getInt(4) == VERSION, "Unsupported version: %s", buffer.getInt(4));
+    this.buffer = buffer;
+    this.size = buffer.getInt(8);
+    this.blockCount = buffer.getInt(12);
+    this.maxKeyLength = buffer.getInt(16);
+    this.totalCount = buffer.getInt(20);
+    this.indexOffset = (int) buffer.getLong(24);
+  }
+
+  /**
+   * Maps a snapshot file written by {@link #write(Counter, File)}.
+   *
+   * @param file the snapshot file
+   * @return a read-only counter backed by the file
+   * @throws IOException              if an I/O error occurs
+   * @throws IllegalArgumentException if the file is not a snapshot
+   */
+  public static MappedCounter open(File file)
+      throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      checkArgument(channel.size() <= Integer.MAX_VALUE, "The snapshot exceeds 2 GB: %s", file);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new MappedCounter(buffer);
+    }
+  }
+
+  /**
+   * Writes the counts of the counter to a snapshot file.
+   *
+   * @param counter the counter to write, which must not contain a null key
+   * @param file    the snapshot file
+   * @throws IOException              if an I/O error occurs
+   * @throws IllegalArgumentException if the snapshot would exceed 2 GB
+   */
+  public static void write(Counter<String> counter, File file)
+      throws IOException {
+    List<Map.Entry<byte[], Integer>> entries = new ArrayList<>(counter.size());
+    for (Map.Entry<String, Integer> entry : counter.entrySet()) {
+      checkNotNull(entry.getKey(), "The counter contains a null key");
+      entries.add(new AbstractMap.SimpleImmutableEntry<>(
+          entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+    }
+    entries.sort((e1, e2) -> BYTE_ORDER.compare(e1.getKey(), e2.getKey()));
+
+    int blockCount = (entries.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    int[] blockOffsets = new int[blockCount];
+    int maxKeyLength = 0;
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel channel = raf.getChannel()) {
+      channel.truncate(0);
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel)));
+      out.write(new byte[HEADER_SIZE]);
+      byte[] prev = null;
+      for (int i = 0; i < entries.size(); i++) {
+        byte[] key = entries.get(i).getKey();
+        maxKeyLength = Math.max(maxKeyLength, key.length);
+        if (i % BLOCK_SIZE == 0) {
+          blockOffsets[i / BLOCK_SIZE] = out.size();
+          writeVarint(out, key.length);
+          out.write(key);
+        } else {
+          int prefix = commonPrefix(prev, key);
+          writeVarint(out, prefix);
+          writeVarint(out, key.length - prefix);
+          out.write(key, prefix, key.length - prefix);
+        }
+        int count = entries.get(i).getValue();
+        writeVarint(out, (count << 1) ^ (count >> 31));
+        prev = key;
+        // DataOutputStream.size() wraps around after 2 GB
+        checkArgument(out.size() >= 0, "The snapshot exceeds 2 GB");
+      }
+      int indexOffset = out.size();
+      for (int offset : blockOffsets) {
+        out.writeInt(offset);
+      }
+      checkArgument(out.size() >= 0, "The snapshot exceeds 2 GB");
+      out.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(entries.size())
+          .putInt(blockCount)
+          .putInt(maxKeyLength)
+          .putInt(counter.totalCount())
+          .putLong(indexOffset);
+      header.flip();
+      channel.write(header, 0);
+    }
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  @Override
+  public Object clone() {
+    return this;
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return find(key) != null;
+  }
+
+  @Override
+  public Cursor<String> cursor() {
+    return new Cursor<String>() {
+
+      private final BlockSpliterator inner = new BlockSpliterator(0, blockCount);
+      private String key;
+      private int count;
+
+      @Override
+      public boolean advance() {
+        if (inner.index >= inner.end) {
+          key = null;
+          return false;
+        }
+        key = inner.readKey();
+        count = inner.readCount();
+        return true;
+      }
+
+      @Override
+      public String key() {
+        if (key == null) {
+          throw new NoSuchElementException();
+        }
+        return key;
+      }
+
+      @Override
+      public int count() {
+        if (key == null) {
+          throw new NoSuchElementException();
+        }
+        return count;
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<String, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<String, Integer>> iterator() {
+        return new SnapshotIterator<Map.Entry<String, Integer>>() {
+
+          @Override
+          Map.Entry<String, Integer> next(String key, int count) {
+            return new AbstractMap.SimpleImmutableEntry<>(key, count);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Performs the given action on every key and its count in the order of the
+   * UTF-8 bytes of the keys.
+   */
+  @Override
+  public void forEach(ObjIntConsumer<? super String> action) {
+    new BlockSpliterator(0, blockCount).forEachRemaining(action);
+  }
+
+  @Override
+  public int getCount(String key) {
+    Integer count = find(key);
+    return count == null ? 0 : count;
+  }
+
+  @Override
+  public int incrementCount(String key, int count) {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  /**
+   * Returns an unmodifiable view of the keys in this counter, iterated in the
+   * order of their UTF-8 bytes.
+   */
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof String && containsKey((String) o);
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+        return new SnapshotIterator<String>() {
+
+          @Override
+          String next(String key, int count) {
+            return key;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public int remove(String key) {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  @Override
+  public void removeAll(Collection<String> c) {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  @Override
+  public void setCount(String key, int count) {
+    throw new UnsupportedOperationException("The counter is read-only.");
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a spliterator that splits at block boundaries, so every part
+   * decodes its own range of the file.
+   */
+  @Override
+  public CountSpliterator<String> spliterator() {
+    return new BlockSpliterator(0, blockCount);
+  }
+
+  /**
+   * Returns the count of the key, or null if it is not in the snapshot.
+   */
+  private Integer find(String key) {
+    if (key == null || size == 0) {
+      return null;
+    }
+    byte[] target = key.getBytes(StandardCharsets.UTF_8);
+    if (target.length > maxKeyLength) {
+      return null;
+    }
+    // find the last block whose first key is <= target
+    int lo = 0;
+    int hi = blockCount - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (compareFirstKey(mid, target) <= 0) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    // scan the block
+    byte[] curr = new byte[maxKeyLength];
+    int[] pos = new int[]{blockOffset(lo)};
+    int length = 0;
+    int end = Math.min(BLOCK_SIZE, size - lo * BLOCK_SIZE);
+    for (int i = 0; i < end; i++) {
+      length = readKey(pos, curr, i == 0);
+      int count = readCount(pos);
+      int cmp = compare(curr, length, target);
+      if (cmp == 0) {
+        return count;
+      } else if (cmp > 0) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private int blockOffset(int block) {
+    return buffer.getInt(indexOffset + block * 4);
+  }
+
+  /**
+   * Compares the first key of the block with the target without copying it.
+   */
+  private int compareFirstKey(int block, byte[] target) {
+    int[] pos = new int[]{blockOffset(block)};
+    int length = readVarint(pos);
+    int n = Math.min(length, target.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = UnsignedBytes.compare(buffer.get(pos[0] + i), target[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - target.length;
+  }
+
+  private static int compare(byte[] key, int length, byte[] target) {
+    int n = Math.min(length, target.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = UnsignedBytes.compare(key[i], target[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - target.length;
+  }
+
+  /**
+   * Reads the key at pos[0] into buf, which holds the previous key, and returns
+   * the length of the key.
+   */
+  private int readKey(int[] pos, byte[] buf, boolean first) {
+    int prefix = first ? 0 : readVarint(pos);
+    int suffix = readVarint(pos);
+    for (int i = 0; i < suffix; i++) {
+      buf[prefix + i] = buffer.get(pos[0] + i);
+    }
+    pos[0] += suffix;
+    return prefix + suffix;
+  }
+
+  private int readCount(int[] pos) {
+    int n = readVarint(pos);
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private int readVarint(int[] pos) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get(pos[0]++);
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static void writeVarint(DataOutputStream out, int value)
+      throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int commonPrefix(byte[] a, byte[] b) {
+    int n = Math.min(a.length, b.length);
+    int i = 0;
+    while (i < n && a[i] == b[i]) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Decodes the entries of the blocks in [block, endBlock) sequentially.
+   */
+  private class BlockSpliterator implements CountSpliterator<String> {
+
+    private final int[] pos = new int[1];
+    private final byte[] curr = new byte[maxKeyLength];
+    private int index;
+    private final int end;
+
+    BlockSpliterator(int block, int endBlock) {
+      this.pos[0] = block < blockCount ? blockOffset(block) : 0;
+      this.index = block * BLOCK_SIZE;
+      this.end = Math.min(endBlock * BLOCK_SIZE, size);
+    }
+
+    String readKey() {
+      int length = MappedCounter.this.readKey(pos, curr, index % BLOCK_SIZE == 0);
+      index++;
+      return new String(curr, 0, length, StandardCharsets.UTF_8);
+    }
+
+    int readCount() {
+      return MappedCounter.this.readCount(pos);
+    }
+
+    @Override
+    public boolean tryAdvance(ObjIntConsumer<? super String> action) {
+      if (index >= end) {
+        return false;
+      }
+      String key = readKey();
+      action.accept(key, readCount());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(ObjIntConsumer<? super String> action) {
+      while (index < end) {
+        String key = readKey();
+        action.accept(key, readCount());
+      }
+    }
+
+    @Override
+    public CountSpliterator<String> trySplit() {
+      // only split at the start of a block
+      if (index % BLOCK_SIZE != 0) {
+        return null;
+      }
+      int block = index / BLOCK_SIZE;
+      int endBlock = (end + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      int mid = (block + endBlock) >>> 1;
+      if (mid <= block) {
+        return null;
+      }
+      BlockSpliterator prefix = new BlockSpliterator(block, mid);
+      index = mid * BLOCK_SIZE;
+      pos[0] = blockOffset(mid);
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | DISTINCT | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+    }
+  }
+
+  /**
+   * Decodes the entries sequentially from the start of the data section.
+   */
+  private abstract class SnapshotIterator<V> implements Iterator<V> {
+
+    private final BlockSpliterator inner = new BlockSpliterator(0, blockCount);
+
+    abstract V next(String key, int count);
+
+    @Override
+    public boolean hasNext() {
+      return inner.index < inner.end;
+    }
+
+    @Override
+    public V next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String key = inner.readKey();
+      return next(key, inner.readCount());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove() is not supported.");
+    }
+  }
+}
@@ -0,0 +1,548 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter backed by an open-addressing hash table of object keys and
+ * primitive int counts.
+ * <p>
+ * Keys and counts are kept in two parallel arrays and collisions are resolved
+ * by linear probing. Removal shifts the following entries of the probe
+ * sequence back instead of leaving tombstones, so the table never needs to be
+ * cleaned up. Compared with {@link HashCounter}, no {@code HashMap.Node} and no
+ * {@code MutableInteger} are allocated per key, which cuts the memory per key
+ * by a factor of 3-5 and removes most of the GC pressure when counting large
+ * vocabularies.
+ * <p>
+ * The key set and entry set are views backed by the table. Their iterators
+ * are fail-fast and support <code>remove()</code>.
+ *
+ * @author Yifan Peng
+ */
+public class OpenHashCounter<K> extends Counter<K> {
+
+  private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+  private static final float LOAD_FACTOR = 0.75f;
+
+  /**
+   * Stands for the null key in {@link #keys}, where null marks a free slot.
+   */
+  private static final Object NULL_KEY = new Object();
+
+  private Object[] keys;
+  private int[] counts;
+  private int mask;
+  private int maxFill;
+  private int size;
+  private int modCount;
+
+  /**
+   * Constructs a new (empty) Counter.
+   */
+  public OpenHashCounter() {
+    this(DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Constructs a new (empty) Counter that can hold the expected number of keys
+   * without rehashing.
+   *
+   * @param expectedSize the expected number of keys
+   * @throws IllegalArgumentException if the expected size is negative
+   */
+  public OpenHashCounter(int expectedSize) {
+    checkArgument(expectedSize >= 0, "The expected size is negative: %s",
+        expectedSize);
+    allocate(tableSize(expectedSize));
+    totalCount = 0;
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   *
+   * @param counter
+   */
+  public OpenHashCounter(Counter<K> counter) {
+    this(counter.size());
+    addAll(counter);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(counts, 0);
+    size = 0;
+    totalCount = 0;
+    modCount++;
+  }
+
+  @Override
+  public Object clone() {
+    return new OpenHashCounter<>(this);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return find(key) >= 0;
+  }
+
+  @Override
+  public Cursor<K> cursor() {
+    return new Cursor<K>() {
+
+      private int pos = -1;
+      private final int expectedModCount = modCount;
+
+      @Override
+      public boolean advance() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        while (++pos < keys.length) {
+          if (keys[pos] != null) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public K key() {
+        checkPosition();
+        return unmask(keys[pos]);
+      }
+
+      @Override
+      public int count() {
+        checkPosition();
+        return counts[pos];
+      }
+
+      private void checkPosition() {
+        if (pos < 0 || pos >= keys.length) {
+          throw new NoSuchElementException();
+        }
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new TableIterator<Map.Entry<K, Integer>>() {
+
+          @Override
+          Map.Entry<K, Integer> next(final K key) {
+            return new Map.Entry<K, Integer>() {
+
+              @Override
+              public K getKey() {
+                return key;
+              }
+
+              @Override
+              public Integer getValue() {
+                return getCount(key);
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                int old = getCount(key);
+                setCount(key, value);
+                return old;
+              }
+            };
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    Object[] keys = this.keys;
+    int[] counts = this.counts;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        action.accept(unmask(keys[i]), counts[i]);
+      }
+    }
+  }
+
+  @Override
+  public int getCount(K key) {
+    int pos = find(key);
+    return pos < 0 ? 0 : counts[pos];
+  }
+
+  @Override
+  public int incrementCount(K key, int count) {
+    int pos = findOrInsert(key);
+    totalCount += count;
+    counts[pos] += count;
+    return counts[pos];
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return new AbstractSet<K>() {
+
+      @Override
+      public boolean contains(Object o) {
+        @SuppressWarnings("unchecked")
+        K key = (K) o;
+        return containsKey(key);
+      }
+
+      @Override
+      public Iterator<K> iterator() {
+        return new TableIterator<K>() {
+
+          @Override
+          K next(K key) {
+            return key;
+          }
+        };
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        @SuppressWarnings("unchecked")
+        K key = (K) o;
+        if (!containsKey(key)) {
+          return false;
+        }
+        OpenHashCounter.this.remove(key);
+        return true;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public int remove(K key) {
+    int pos = find(key);
+    if (pos < 0) {
+      return Integer.MIN_VALUE;
+    }
+    int count = counts[pos];
+    totalCount -= count;
+    shiftKeys(pos, -1, null);
+    return count;
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    Iterator<K> itr = keySet().iterator();
+    while (itr.hasNext()) {
+      if (getCount(itr.next()) == 0) {
+        itr.remove();
+      }
+    }
+  }
+
+  @Override
+  public void setCount(K key, int count) {
+    int pos = findOrInsert(key);
+    totalCount += count - counts[pos];
+    counts[pos] = count;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    return new TableSpliterator(0, keys.length, size);
+  }
+
+  /**
+   * Returns the position of the key in the table, or -1 if it is absent.
+   */
+  private int find(Object key) {
+    Object k = mask(key);
+    int pos = mix(k.hashCode()) & mask;
+    Object curr;
+    while ((curr = keys[pos]) != null) {
+      if (curr.equals(k)) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the position of the key in the table, inserting it with count 0 if
+   * it is absent.
+   */
+  private int findOrInsert(K key) {
+    Object k = mask(key);
+    int pos = mix(k.hashCode()) & mask;
+    Object curr;
+    while ((curr = keys[pos]) != null) {
+      if (curr.equals(k)) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    if (size >= maxFill) {
+      rehash(keys.length * 2);
+      return findOrInsert(key);
+    }
+    keys[pos] = k;
+    counts[pos] = 0;
+    size++;
+    modCount++;
+    return pos;
+  }
+
+  /**
+   * Removes the entry at the given position and shifts the following entries
+   * of the probe sequence back, so that no tombstone is left behind.
+   *
+   * @param pos     the position of the entry to remove
+   * @param visited entries at or after this position have already been
+   *                returned by an iterator walking the table downwards, or -1
+   *                if there is no such iterator
+   * @param wrapped collects the keys that are moved from the part of the table
+   *                not yet visited into the visited part, may be null if
+   *                visited is -1
+   */
+  private void shiftKeys(int pos, int visited, List<Object> wrapped) {
+    int last;
+    int slot;
+    Object curr;
+    for (; ; ) {
+      last = pos;
+      pos = (pos + 1) & mask;
+      for (; ; ) {
+        if ((curr = keys[pos]) == null) {
+          keys[last] = null;
+          counts[last] = 0;
+          size--;
+          modCount++;
+          return;
+        }
+        slot = mix(curr.hashCode()) & mask;
+        if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+          break;
+        }
+        pos = (pos + 1) & mask;
+      }
+      if (visited >= 0 && pos < visited && last >= visited) {
+        wrapped.add(curr);
+      }
+      keys[last] = curr;
+      counts[last] = counts[pos];
+    }
+  }
+
+  private void rehash(int newLength) {
+    Object[] oldKeys = keys;
+    int[] oldCounts = counts;
+    allocate(newLength);
+    for (int i = 0; i < oldKeys.length; i++) {
+      Object k = oldKeys[i];
+      if (k != null) {
+        int pos = mix(k.hashCode()) & mask;
+        while (keys[pos] != null) {
+          pos = (pos + 1) & mask;
+        }
+        keys[pos] = k;
+        counts[pos] = oldCounts[i];
+      }
+    }
+  }
+
+  private void allocate(int length) {
+    keys = new Object[length];
+    counts = new int[length];
+    mask = length - 1;
+    maxFill = Math.min((int) Math.ceil(length * LOAD_FACTOR), length - 1);
+  }
+
+  /**
+   * Returns the smallest power of two table length that holds the expected
+   * number of keys within the load factor.
+   */
+  private static int tableSize(int expectedSize) {
+    long length = Math.max(2, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+    length = Long.highestOneBit(length - 1) << 1;
+    checkArgument(length <= 1 << 30, "Too large: %s", expectedSize);
+    return (int) length;
+  }
+
+  /**
+   * Spreads the bits of the hash code so that keys with similar hash codes do
+   * not fall into the same probe sequence.
+   */
+  private static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static Object mask(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> K unmask(Object key) {
+    return key == NULL_KEY ? null : (K) key;
+  }
+
+  /**
+   * Walks the slots in [pos, end) and splits by halving the range.
+   */
+  private class TableSpliterator implements CountSpliterator<K> {
+
+    private final Object[] keys = OpenHashCounter.this.keys;
+    private final int[] counts = OpenHashCounter.this.counts;
+    private int pos;
+    private final int end;
+    private long est;
+
+    TableSpliterator(int pos, int end, long est) {
+      this.pos = pos;
+      this.end = end;
+      this.est = est;
+    }
+
+    @Override
+    public boolean tryAdvance(ObjIntConsumer<? super K> action) {
+      while (pos < end) {
+        int i = pos++;
+        if (keys[i] != null) {
+          action.accept(unmask(keys[i]), counts[i]);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(ObjIntConsumer<? super K> action) {
+      for (; pos < end; pos++) {
+        if (keys[pos] != null) {
+          action.accept(unmask(keys[pos]), counts[pos]);
+        }
+      }
+    }
+
+    @Override
+    public CountSpliterator<K> trySplit() {
+      int mid = (pos + end) >>> 1;
+      if (mid - pos < 64) {
+        return null;
+      }
+      TableSpliterator prefix = new TableSpliterator(pos, mid, est >>> 1);
+      pos = mid;
+      est -= prefix.est;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return est;
+    }
+
+    @Override
+    public int characteristics() {
+      return DISTINCT;
+    }
+  }
+
+  /**
+   * Walks the table from the last slot down to the first. Keys that are moved
+   * past the cursor by a removal are remembered and returned at the end.
+   */
+  private abstract class TableIterator<V> implements Iterator<V> {
+
+    private int pos = keys.length;
+    private int last = -1;
+    private int remaining = size;
+    private int expectedModCount = modCount;
+    private List<Object> wrapped;
+    private Object lastWrapped;
+
+    abstract V next(K key);
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public V next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      remaining--;
+      if (pos < 0) {
+        last = -1;
+        lastWrapped = wrapped.remove(wrapped.size() - 1);
+        return next(unmask(lastWrapped));
+      }
+      while (--pos >= 0) {
+        if (keys[pos] != null) {
+          last = pos;
+          return next(unmask(keys[pos]));
+        }
+      }
+      // the rest are the keys moved behind the cursor
+      last = -1;
+      lastWrapped = wrapped.remove(wrapped.size() - 1);
+      return next(unmask(lastWrapped));
+    }
+
+    @Override
+    public void remove() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (last >= 0) {
+        totalCount -= counts[last];
+        if (wrapped == null) {
+          wrapped = new ArrayList<>(2);
+        }
+        shiftKeys(last, last, wrapped);
+        last = -1;
+      } else if (lastWrapped != null) {
+        OpenHashCounter.this.remove(unmask(lastWrapped));
+        lastWrapped = null;
+      } else {
+        throw new IllegalStateException();
+      }
+      expectedModCount = modCount;
+    }
+  }
+}
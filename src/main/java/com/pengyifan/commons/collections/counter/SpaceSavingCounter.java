@@ -0,0 +1,208 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An approximate Counter that keeps the top-k keys of a stream with the
+ * Space-Saving algorithm of Metwally, Agrawal and El Abbadi (2005).
+ * <p>
+ * At most <code>capacity</code> keys are monitored. When a new key arrives
+ * and the counter is full, the key with the smallest count is evicted and the
+ * new key inherits that count as its error. For a stream of total count
+ * <i>N</i> this guarantees:
+ * <ul>
+ * <li>the count of a monitored key overestimates its true count by at most
+ * its {@link #getError(Object) error}, which is at most
+ * {@link #errorBound()} &lt;= <i>N</i>/capacity;</li>
+ * <li>every key whose true count exceeds {@link #errorBound()} is monitored,
+ * so {@link #keysAbove(int)} misses no key above that threshold;</li>
+ * <li>an unmonitored key has a true count of at most {@link #errorBound()},
+ * though {@link #getCount(Object)} returns 0 for it.</li>
+ * </ul>
+ * Memory is fixed at <code>capacity</code> slots and each increment costs
+ * O(log capacity).
+ * <p>
+ * Counters with the same capacity can be combined with {@link #merge}, which
+ * keeps the guarantees above for the concatenated stream (Agarwal et al.,
+ * Mergeable Summaries, 2012).
+ *
+ * @author Yifan Peng
+ */
+public class SpaceSavingCounter<K> extends ApproximateCounter<K> {
+
+  private final int capacity;
+  private final CountHeap<K> heap;
+
+  /**
+   * Constructs a new (empty) Counter that monitors at most the given number of
+   * keys.
+   *
+   * @param capacity the maximum number of monitored keys
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  public SpaceSavingCounter(int capacity) {
+    checkArgument(capacity > 0, "The capacity is not positive: %s", capacity);
+    this.capacity = capacity;
+    this.heap = new CountHeap<>(capacity);
+    totalCount = 0;
+  }
+
+  /**
+   * Returns the maximum number of monitored keys.
+   *
+   * @return the maximum number of monitored keys
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  @Override
+  public void clear() {
+    heap.clear();
+    totalCount = 0;
+  }
+
+  @Override
+  public Object clone() {
+    SpaceSavingCounter<K> copy = new SpaceSavingCounter<>(capacity);
+    copy.merge(this);
+    return copy;
+  }
+
+  /**
+   * Returns true if the key is monitored.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    return heap.get(key) != null;
+  }
+
+  /**
+   * Returns the smallest monitored count if this counter is full, and 0
+   * otherwise. Every monitored count overestimates the true count by at most
+   * this value, which never exceeds totalCount/capacity.
+   *
+   * @return the maximum overestimate of a count
+   */
+  @Override
+  public int errorBound() {
+    if (heap.size() < capacity) {
+      return 0;
+    }
+    return heap.peek().count();
+  }
+
+  /**
+   * Returns the estimated count of a monitored key, which is at least its true
+   * count, or 0 if the key is not monitored.
+   */
+  @Override
+  public int getCount(K key) {
+    CountHeap.Slot<K> slot = heap.get(key);
+    return slot == null ? 0 : slot.count();
+  }
+
+  /**
+   * Returns how much the count of the key may overestimate its true count, or
+   * 0 if the key is not monitored.
+   *
+   * @param key the object to search for
+   * @return the maximum overestimate of the count of the key
+   */
+  public int getError(K key) {
+    CountHeap.Slot<K> slot = heap.get(key);
+    return slot == null ? 0 : slot.error();
+  }
+
+  /**
+   * Returns the smallest number of times the key is guaranteed to have been
+   * counted, i.e. its count minus its error.
+   *
+   * @param key the object to search for
+   * @return a lower bound of the true count of the key
+   */
+  public int getGuaranteedCount(K key) {
+    CountHeap.Slot<K> slot = heap.get(key);
+    return slot == null ? 0 : slot.count() - slot.error();
+  }
+
+  /**
+   * Returns the monitored keys.
+   */
+  @Override
+  public Set<K> keySet() {
+    return heap.keySet();
+  }
+
+  /**
+   * Adds the counts of another Space-Saving counter to this one, as if this
+   * counter had also seen the stream of the other one.
+   *
+   * @param other a counter with the same capacity
+   * @throws IllegalArgumentException if the capacities differ
+   */
+  public void merge(SpaceSavingCounter<K> other) {
+    checkArgument(capacity == other.capacity, "The capacities differ: %s vs %s",
+        capacity, other.capacity);
+    int thisMin = errorBound();
+    int otherMin = other.errorBound();
+
+    Map<K, int[]> merged = new HashMap<>();
+    for (int i = 0; i < heap.size(); i++) {
+      CountHeap.Slot<K> slot = heap.slot(i);
+      CountHeap.Slot<K> otherSlot = other.heap.get(slot.key());
+      if (otherSlot == null) {
+        merged.put(slot.key(), new int[]{slot.count() + otherMin, slot.error() + otherMin});
+      } else {
+        merged.put(slot.key(), new int[]{slot.count() + otherSlot.count(),
+            slot.error() + otherSlot.error()});
+      }
+    }
+    for (int i = 0; i < other.heap.size(); i++) {
+      CountHeap.Slot<K> otherSlot = other.heap.slot(i);
+      if (!merged.containsKey(otherSlot.key())) {
+        merged.put(otherSlot.key(), new int[]{otherSlot.count() + thisMin,
+            otherSlot.error() + thisMin});
+      }
+    }
+
+    List<Map.Entry<K, int[]>> entries = new ArrayList<>(merged.entrySet());
+    entries.sort((e1, e2) -> Integer.compare(e2.getValue()[0], e1.getValue()[0]));
+    heap.clear();
+    for (int i = 0; i < entries.size() && i < capacity; i++) {
+      Map.Entry<K, int[]> entry = entries.get(i);
+      heap.add(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+    }
+    totalCount += other.totalCount;
+  }
+
+  @Override
+  int offer(K key, int count) {
+    CountHeap.Slot<K> slot = heap.get(key);
+    if (slot != null) {
+      heap.increase(slot, slot.count() + count);
+      return slot.count();
+    } else if (heap.size() < capacity) {
+      heap.add(key, count, 0);
+      return count;
+    } else {
+      int min = heap.peek().count();
+      heap.replaceMin(key, min + count, min);
+      return min + count;
+    }
+  }
+
+  /**
+   * Returns the number of monitored keys.
+   */
+  @Override
+  public int size() {
+    return heap.size();
+  }
+}
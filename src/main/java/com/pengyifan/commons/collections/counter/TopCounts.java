@@ -0,0 +1,167 @@
+package com.pengyifan.commons.collections.counter;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps the n keys with the largest (or smallest) counts seen so far in a
+ * bounded binary heap of primitive counts. Offering m keys costs O(m log n).
+ */
+class TopCounts<K> implements ObjIntConsumer<K> {
+
+  /**
+   * Splits of at most this many keys are not split further.
+   */
+  private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+  private final int n;
+  private final boolean largest;
+  /**
+   * A min-heap of priorities: the count if the largest counts are kept, and
+   * the negated count otherwise.
+   */
+  private final long[] priorities;
+  private final Object[] keys;
+  private int size;
+
+  TopCounts(int n, boolean largest) {
+    this.n = n;
+    this.largest = largest;
+    this.priorities = new long[n];
+    this.keys = new Object[n];
+    this.size = 0;
+  }
+
+  /**
+   * Returns the n keys of the spliterator with the largest (or smallest)
+   * counts. The spliterator is split recursively on the common fork-join pool
+   * and the heaps of the splits are merged.
+   */
+  static <K> List<Map.Entry<K, Integer>> parallel(Counter.CountSpliterator<K> spliterator,
+      int n, boolean largest) {
+    return new TopCountsTask<>(spliterator, n, largest).invoke().toList();
+  }
+
+  @Override
+  public void accept(K key, int count) {
+    long priority = largest ? count : -(long) count;
+    if (size < n) {
+      priorities[size] = priority;
+      keys[size] = key;
+      siftUp(size++);
+    } else if (n > 0 && priority > priorities[0]) {
+      priorities[0] = priority;
+      keys[0] = key;
+      siftDown(0, size);
+    }
+  }
+
+  /**
+   * Offers all the keys kept by the other heap to this one.
+   */
+  void addAll(TopCounts<K> other) {
+    for (int i = 0; i < other.size; i++) {
+      @SuppressWarnings("unchecked")
+      K key = (K) other.keys[i];
+      accept(key, other.count(i));
+    }
+  }
+
+  /**
+   * Returns the kept keys and their counts, the largest (or smallest) count
+   * first. This heap is emptied.
+   */
+  List<Map.Entry<K, Integer>> toList() {
+    List<Map.Entry<K, Integer>> list = new ArrayList<>(size);
+    // pop the heap: the root is the n-th best entry, so the entries come worst first
+    for (int end = size - 1; end >= 0; end--) {
+      @SuppressWarnings("unchecked")
+      K key = (K) keys[0];
+      list.add(new AbstractMap.SimpleImmutableEntry<>(key, count(0)));
+      priorities[0] = priorities[end];
+      keys[0] = keys[end];
+      keys[end] = null;
+      siftDown(0, end);
+    }
+    size = 0;
+    Collections.reverse(list);
+    return list;
+  }
+
+  private int count(int i) {
+    return (int) (largest ? priorities[i] : -priorities[i]);
+  }
+
+  private void siftDown(int i, int end) {
+    long priority = priorities[i];
+    Object key = keys[i];
+    int half = end >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < end && priorities[right] < priorities[child]) {
+        child = right;
+      }
+      if (priority <= priorities[child]) {
+        break;
+      }
+      priorities[i] = priorities[child];
+      keys[i] = keys[child];
+      i = child;
+    }
+    priorities[i] = priority;
+    keys[i] = key;
+  }
+
+  private void siftUp(int i) {
+    long priority = priorities[i];
+    Object key = keys[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (priorities[parent] <= priority) {
+        break;
+      }
+      priorities[i] = priorities[parent];
+      keys[i] = keys[parent];
+      i = parent;
+    }
+    priorities[i] = priority;
+    keys[i] = key;
+  }
+
+  private static class TopCountsTask<K> extends RecursiveTask<TopCounts<K>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Counter.CountSpliterator<K> spliterator;
+    private final int n;
+    private final boolean largest;
+
+    TopCountsTask(Counter.CountSpliterator<K> spliterator, int n, boolean largest) {
+      this.spliterator = spliterator;
+      this.n = n;
+      this.largest = largest;
+    }
+
+    @Override
+    protected TopCounts<K> compute() {
+      Counter.CountSpliterator<K> prefix;
+      if (spliterator.estimateSize() > SEQUENTIAL_THRESHOLD
+          && (prefix = spliterator.trySplit()) != null) {
+        TopCountsTask<K> left = new TopCountsTask<>(prefix, n, largest);
+        left.fork();
+        TopCounts<K> top = compute();
+        top.addAll(left.join());
+        return top;
+      }
+      TopCounts<K> top = new TopCounts<>(n, largest);
+      spliterator.forEachRemaining(top);
+      return top;
+    }
+  }
+}
@@ -0,0 +1,542 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter of strings backed by a trie that keeps the total count of every
+ * subtree, so that the counts of all the keys sharing a prefix can be summed
+ * and enumerated without scanning the other keys.
+ * <p>
+ * The trie is stored as parallel arrays indexed by node: the char label, the
+ * parent, the first child, the next sibling, the count of the key ending at
+ * the node and the total count of its subtree. The siblings are kept sorted by
+ * label, so keys are visited in the order of {@link String#compareTo(String)}
+ * like in a {@link TreeCounter}. A node costs 23 bytes and a key shares the
+ * nodes of its prefix with the other keys, instead of an entry, a
+ * {@code MutableInteger} and a {@code String} per key in a {@code TreeMap}.
+ * <p>
+ * {@link #prefixCount(String)} costs O(|P|) and
+ * {@link #keysWithPrefix(String)} costs O(|P| + size of the result), with the
+ * child lookup of each character being linear in the number of distinct next
+ * characters. Nodes freed by {@link #remove(String)} are reused.
+ * <p>
+ * Null keys are not permitted. The key set is unmodifiable and its iterators
+ * are fail-fast; use {@link #remove(String)} instead.
+ *
+ * @author Yifan Peng
+ */
+public class TrieCounter extends Counter<String> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private static final int NIL = -1;
+
+  private static final int ROOT = 0;
+
+  private char[] labels;
+  private int[] parents;
+  private int[] firstChildren;
+  private int[] nextSiblings;
+  /**
+   * The count of the key ending at the node, 0 if there is no such key
+   */
+  private int[] counts;
+  /**
+   * The sum of the counts of the keys ending in the subtree of the node
+   */
+  private int[] totals;
+  /**
+   * Whether a key ends at the node
+   */
+  private boolean[] terminals;
+  /**
+   * The number of nodes ever allocated, including the freed ones
+   */
+  private int nodeCount;
+  /**
+   * The head of the list of freed nodes, linked by {@link #nextSiblings}
+   */
+  private int free;
+  private int size;
+  private int modCount;
+
+  /**
+   * Constructs a new (empty) Counter.
+   */
+  public TrieCounter() {
+    allocate(DEFAULT_CAPACITY);
+    totalCount = 0;
+  }
+
+  /**
+   * Constructs a new Counter with the contents of the given Counter.
+   *
+   * @param counter
+   */
+  public TrieCounter(Counter<String> counter) {
+    this();
+    addAll(counter);
+  }
+
+  @Override
+  public void clear() {
+    allocate(DEFAULT_CAPACITY);
+    size = 0;
+    totalCount = 0;
+    modCount++;
+  }
+
+  @Override
+  public Object clone() {
+    return new TrieCounter(this);
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    int node = find(key);
+    return node != NIL && terminals[node];
+  }
+
+  @Override
+  public Cursor<String> cursor() {
+    return new TrieCursor();
+  }
+
+  @Override
+  public Set<Map.Entry<String, Integer>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<String, Integer>> iterator() {
+        return new TrieIterator<Map.Entry<String, Integer>>() {
+
+          @Override
+          Map.Entry<String, Integer> next(final String key) {
+            return new Map.Entry<String, Integer>() {
+
+              @Override
+              public String getKey() {
+                return key;
+              }
+
+              @Override
+              public Integer getValue() {
+                return getCount(key);
+              }
+
+              @Override
+              public Integer setValue(Integer value) {
+                int old = getCount(key);
+                setCount(key, value);
+                return old;
+              }
+            };
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super String> action) {
+    walk(ROOT, new StringBuilder(), action);
+  }
+
+  /**
+   * Performs the given action on every key that starts with the given prefix
+   * and its count, in the order of {@link String#compareTo(String)}.
+   *
+   * @param prefix the prefix of the keys
+   * @param action the action to perform on the keys and their counts
+   */
+  public void forEachWithPrefix(String prefix, ObjIntConsumer<? super String> action) {
+    int node = find(prefix);
+    if (node != NIL) {
+      walk(node, new StringBuilder(prefix), action);
+    }
+  }
+
+  @Override
+  public int getCount(String key) {
+    int node = find(key);
+    return node == NIL ? 0 : counts[node];
+  }
+
+  @Override
+  public int incrementCount(String key, int count) {
+    int node = insert(key);
+    addToPath(node, count);
+    counts[node] += count;
+    totalCount += count;
+    return counts[node];
+  }
+
+  /**
+   * Returns an unmodifiable view of the keys in this counter, in the order of
+   * {@link String#compareTo(String)}.
+   *
+   * @return the set of unique elements in this counter
+   */
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof String && containsKey((String) o);
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+        return new TrieIterator<String>() {
+
+          @Override
+          String next(String key) {
+            return key;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Returns the keys that start with the given prefix, in the order of
+   * {@link String#compareTo(String)}. The prefix itself is included if it is a
+   * key.
+   *
+   * @param prefix the prefix of the keys
+   * @return the keys that start with the prefix
+   */
+  public List<String> keysWithPrefix(String prefix) {
+    List<String> keys = new ArrayList<>();
+    forEachWithPrefix(prefix, (key, count) -> keys.add(key));
+    return keys;
+  }
+
+  /**
+   * Returns the total count of the keys that start with the given prefix. The
+   * count of the prefix itself is included if it is a key.
+   *
+   * @param prefix the prefix of the keys
+   * @return the sum of the counts of the keys that start with the prefix
+   */
+  public int prefixCount(String prefix) {
+    int node = find(prefix);
+    return node == NIL ? 0 : totals[node];
+  }
+
+  @Override
+  public int remove(String key) {
+    int node = find(key);
+    if (node == NIL || !terminals[node]) {
+      return Integer.MIN_VALUE;
+    }
+    int count = counts[node];
+    addToPath(node, -count);
+    totalCount -= count;
+    counts[node] = 0;
+    terminals[node] = false;
+    size--;
+    modCount++;
+    prune(node);
+    return count;
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    List<String> zeros = new ArrayList<>();
+    forEach((key, count) -> {
+      if (count == 0) {
+        zeros.add(key);
+      }
+    });
+    for (String key : zeros) {
+      remove(key);
+    }
+  }
+
+  @Override
+  public void setCount(String key, int count) {
+    int node = insert(key);
+    int delta = count - counts[node];
+    addToPath(node, delta);
+    counts[node] = count;
+    totalCount += delta;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public CountSpliterator<String> spliterator() {
+    return new KeyLookupSpliterator<>(keySet().spliterator(), this::getCount);
+  }
+
+  /**
+   * Returns the node of the key, or {@link #NIL} if no key starts with it.
+   */
+  private int find(String key) {
+    if (key == null) {
+      return NIL;
+    }
+    int node = ROOT;
+    for (int i = 0; i < key.length() && node != NIL; i++) {
+      node = child(node, key.charAt(i));
+    }
+    return node;
+  }
+
+  /**
+   * Returns the node of the key, creating the missing nodes on its path and
+   * marking it as a key with count 0 if it is absent.
+   */
+  private int insert(String key) {
+    checkNotNull(key, "The key is null");
+    int node = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      node = childOrCreate(node, key.charAt(i));
+    }
+    if (!terminals[node]) {
+      terminals[node] = true;
+      size++;
+      modCount++;
+    }
+    return node;
+  }
+
+  private void addToPath(int node, int delta) {
+    for (; node != NIL; node = parents[node]) {
+      totals[node] += delta;
+    }
+  }
+
+  private int child(int node, char label) {
+    for (int c = firstChildren[node]; c != NIL && labels[c] <= label; c = nextSiblings[c]) {
+      if (labels[c] == label) {
+        return c;
+      }
+    }
+    return NIL;
+  }
+
+  private int childOrCreate(int node, char label) {
+    int prev = NIL;
+    int c = firstChildren[node];
+    while (c != NIL && labels[c] < label) {
+      prev = c;
+      c = nextSiblings[c];
+    }
+    if (c != NIL && labels[c] == label) {
+      return c;
+    }
+    int child = newNode(node, label);
+    nextSiblings[child] = c;
+    if (prev == NIL) {
+      firstChildren[node] = child;
+    } else {
+      nextSiblings[prev] = child;
+    }
+    return child;
+  }
+
+  /**
+   * Frees the node and its ancestors as long as they are neither keys nor
+   * prefixes of other keys.
+   */
+  private void prune(int node) {
+    while (node != ROOT && !terminals[node] && firstChildren[node] == NIL) {
+      int parent = parents[node];
+      if (firstChildren[parent] == node) {
+        firstChildren[parent] = nextSiblings[node];
+      } else {
+        int prev = firstChildren[parent];
+        while (nextSiblings[prev] != node) {
+          prev = nextSiblings[prev];
+        }
+        nextSiblings[prev] = nextSiblings[node];
+      }
+      parents[node] = NIL;
+      nextSiblings[node] = free;
+      free = node;
+      node = parent;
+    }
+  }
+
+  private int newNode(int parent, char label) {
+    int node;
+    if (free != NIL) {
+      node = free;
+      free = nextSiblings[node];
+    } else {
+      if (nodeCount == labels.length) {
+        grow(labels.length * 2);
+      }
+      node = nodeCount++;
+    }
+    labels[node] = label;
+    parents[node] = parent;
+    firstChildren[node] = NIL;
+    nextSiblings[node] = NIL;
+    counts[node] = 0;
+    totals[node] = 0;
+    terminals[node] = false;
+    return node;
+  }
+
+  /**
+   * Returns the node after the given one in the preorder of the subtree of
+   * root, or {@link #NIL} at the end, and keeps the builder holding the labels
+   * on the path to the returned node.
+   */
+  private int next(int node, int root, StringBuilder path) {
+    if (firstChildren[node] != NIL) {
+      node = firstChildren[node];
+      path.append(labels[node]);
+      return node;
+    }
+    while (node != root) {
+      path.setLength(path.length() - 1);
+      if (nextSiblings[node] != NIL) {
+        node = nextSiblings[node];
+        path.append(labels[node]);
+        return node;
+      }
+      node = parents[node];
+    }
+    return NIL;
+  }
+
+  private void walk(int root, StringBuilder path, ObjIntConsumer<? super String> action) {
+    for (int node = root; node != NIL; node = next(node, root, path)) {
+      if (terminals[node]) {
+        action.accept(path.toString(), counts[node]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    labels = new char[capacity];
+    parents = new int[capacity];
+    firstChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    counts = new int[capacity];
+    totals = new int[capacity];
+    terminals = new boolean[capacity];
+    parents[ROOT] = NIL;
+    firstChildren[ROOT] = NIL;
+    nextSiblings[ROOT] = NIL;
+    nodeCount = 1;
+    free = NIL;
+  }
+
+  private void grow(int capacity) {
+    labels = Arrays.copyOf(labels, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    firstChildren = Arrays.copyOf(firstChildren, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    counts = Arrays.copyOf(counts, capacity);
+    totals = Arrays.copyOf(totals, capacity);
+    terminals = Arrays.copyOf(terminals, capacity);
+  }
+
+  /**
+   * Walks the keys in preorder, which is the order of
+   * {@link String#compareTo(String)}.
+   */
+  private class TrieCursor implements Cursor<String> {
+
+    private final StringBuilder path = new StringBuilder();
+    private final int expectedModCount = modCount;
+    private int node = NIL;
+    private boolean done = false;
+
+    @Override
+    public boolean advance() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (done) {
+        return false;
+      }
+      node = node == NIL ? ROOT : next(node, ROOT, path);
+      while (node != NIL && !terminals[node]) {
+        node = next(node, ROOT, path);
+      }
+      done = node == NIL;
+      return !done;
+    }
+
+    @Override
+    public String key() {
+      checkPosition();
+      return path.toString();
+    }
+
+    @Override
+    public int count() {
+      checkPosition();
+      return counts[node];
+    }
+
+    private void checkPosition() {
+      if (node == NIL) {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  private abstract class TrieIterator<T> implements Iterator<T> {
+
+    private final TrieCursor cursor = new TrieCursor();
+    private boolean ready = false;
+    private boolean hasNext;
+
+    @Override
+    public boolean hasNext() {
+      if (!ready) {
+        hasNext = cursor.advance();
+        ready = true;
+      }
+      return hasNext;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      return next(cursor.key());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove() is not supported.");
+    }
+
+    abstract T next(String key);
+  }
+}
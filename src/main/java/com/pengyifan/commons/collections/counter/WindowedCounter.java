@@ -0,0 +1,356 @@
+package com.pengyifan.commons.collections.counter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Counter that only counts the increments made within a sliding time
+ * window, such as the trending terms of the last hour.
+ * <p>
+ * The window is divided into a ring of tumbling buckets of equal length. Every
+ * increment is recorded both in the bucket of the current time and in the
+ * window totals stored in {@link #map}. When the clock moves past the oldest
+ * bucket, its increments are subtracted from the totals and the bucket is
+ * reused for the current time. Every recorded increment is thus expired at
+ * most once, which is amortized O(1) per increment, and the counts can be read
+ * at any time without rebuilding the counter. The window slides in steps of
+ * one bucket, so a count covers bucketCount - 1 full buckets plus the current
+ * partial bucket. {@link #setCount(Object, int)} replaces the history of the
+ * key with the new count, recorded in the current bucket.
+ * <p>
+ * Keys whose count in the window drops to 0 are removed. The read methods of
+ * {@link Counter}, including {@link #argmax()} and {@link #mostCommon(int)},
+ * expire the old buckets first. The key set is unmodifiable.
+ *
+ * @author Yifan Peng
+ */
+public class WindowedCounter<K> extends Counter<K> {
+
+  private final Map<K, MutableInteger>[] buckets;
+  private final long bucketLength;
+  private final LongSupplier clock;
+  /**
+   * The index of the current bucket since the epoch of the clock
+   */
+  private long current;
+
+  /**
+   * Constructs a new (empty) Counter whose window is made of the given number
+   * of buckets of the given length in milliseconds, using the system clock.
+   *
+   * @param bucketCount  the number of buckets in the window
+   * @param bucketMillis the length of a bucket in milliseconds
+   * @throws IllegalArgumentException if the bucket count or the bucket length
+   *                                  is not positive
+   */
+  public WindowedCounter(int bucketCount, long bucketMillis) {
+    this(bucketCount, bucketMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a new (empty) Counter whose window is made of the given number
+   * of buckets of the given length, measured by the given clock.
+   *
+   * @param bucketCount  the number of buckets in the window
+   * @param bucketLength the length of a bucket, in the unit of the clock
+   * @param clock        returns the current time
+   * @throws IllegalArgumentException if the bucket count or the bucket length
+   *                                  is not positive
+   */
+  public WindowedCounter(int bucketCount, long bucketLength, LongSupplier clock) {
+    checkArgument(bucketCount > 0, "The bucket count is not positive: %s", bucketCount);
+    checkArgument(bucketLength > 0, "The bucket length is not positive: %s", bucketLength);
+    this.buckets = newArray(bucketCount);
+    for (int i = 0; i < bucketCount; i++) {
+      buckets[i] = new HashMap<>();
+    }
+    this.bucketLength = bucketLength;
+    this.clock = checkNotNull(clock, "The clock is null");
+    this.current = Math.floorDiv(clock.getAsLong(), bucketLength);
+    map = new HashMap<>();
+    totalCount = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> Map<K, MutableInteger>[] newArray(int size) {
+    return (Map<K, MutableInteger>[]) new Map<?, ?>[size];
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new HashMap<>();
+    }
+    super.clear();
+  }
+
+  @Override
+  public Object clone() {
+    WindowedCounter<K> clone = new WindowedCounter<>(buckets.length, bucketLength, clock);
+    expire();
+    clone.current = current;
+    for (int i = 0; i < buckets.length; i++) {
+      for (Map.Entry<K, MutableInteger> e : buckets[i].entrySet()) {
+        clone.buckets[i].put(e.getKey(), new MutableInteger(e.getValue().get()));
+      }
+    }
+    forEach(clone::incrementTotal);
+    return clone;
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    expire();
+    return super.containsKey(key);
+  }
+
+  @Override
+  public Cursor<K> cursor() {
+    expire();
+    return super.cursor();
+  }
+
+  @Override
+  public Set<Map.Entry<K, Integer>> entrySet() {
+    expire();
+    return new AbstractSet<Map.Entry<K, Integer>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, Integer>> iterator() {
+        return new Iterator<Map.Entry<K, Integer>>() {
+
+          private final Iterator<Map.Entry<K, MutableInteger>> inner = map.entrySet()
+              .iterator();
+          private Map.Entry<K, MutableInteger> last;
+
+          @Override
+          public boolean hasNext() {
+            return inner.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Integer> next() {
+            last = inner.next();
+            return new Map.Entry<K, Integer>() {
+
+              private final Map.Entry<K, MutableInteger> e = last;
+
+              @Override
+              public K getKey() {
+                return e.getKey();
+              }
+
+              @Override
+              public Integer getValue() {
+                return e.getValue().get();
+              }
+
+              /**
+               * Replaces the history of the key with the value. Setting the
+               * value to 0 removes the key, which is only supported for the
+               * last entry returned by the iterator.
+               */
+              @Override
+              public Integer setValue(Integer value) {
+                checkState(value != 0 || e == last,
+                    "Only the last entry can be set to 0");
+                int old = e.getValue().get();
+                forget(e.getKey());
+                totalCount += value - old;
+                if (value == 0) {
+                  inner.remove();
+                } else {
+                  record(e.getKey(), value);
+                  e.getValue().set(value);
+                }
+                return old;
+              }
+            };
+          }
+
+          @Override
+          public void remove() {
+            checkState(last != null, "next() has not been called");
+            inner.remove();
+            forget(last.getKey());
+            totalCount -= last.getValue().get();
+            last = null;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return map.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(ObjIntConsumer<? super K> action) {
+    expire();
+    super.forEach(action);
+  }
+
+  @Override
+  public int getCount(K key) {
+    expire();
+    return super.getCount(key);
+  }
+
+  @Override
+  public int incrementCount(K key, int count) {
+    expire();
+    record(key, count);
+    return incrementTotal(key, count);
+  }
+
+  /**
+   * Returns an unmodifiable view of the keys counted in the window.
+   *
+   * @return the set of unique elements in this counter
+   */
+  @Override
+  public Set<K> keySet() {
+    expire();
+    return Collections.unmodifiableSet(map.keySet());
+  }
+
+  @Override
+  public int remove(K key) {
+    expire();
+    forget(key);
+    return super.remove(key);
+  }
+
+  @Override
+  public void removeZeroCounts() {
+    expire();
+    Iterator<Map.Entry<K, MutableInteger>> itr = map.entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry<K, MutableInteger> e = itr.next();
+      if (e.getValue().get() == 0) {
+        itr.remove();
+        forget(e.getKey());
+      }
+    }
+  }
+
+  /**
+   * Sets the count of the key in the window to the given count, recorded in
+   * the current bucket. The earlier increments of the key are forgotten, so the
+   * count expires with the current bucket.
+   */
+  @Override
+  public void setCount(K key, int count) {
+    remove(key);
+    if (count != 0) {
+      incrementCount(key, count);
+    }
+  }
+
+  @Override
+  public int size() {
+    expire();
+    return super.size();
+  }
+
+  @Override
+  public CountSpliterator<K> spliterator() {
+    expire();
+    return super.spliterator();
+  }
+
+  @Override
+  public int totalCount() {
+    expire();
+    return totalCount;
+  }
+
+  /**
+   * Returns the position in the ring of the bucket with the given index.
+   */
+  private int slot(long bucket) {
+    return (int) Math.floorMod(bucket, (long) buckets.length);
+  }
+
+  /**
+   * Removes the key from every bucket, but not from the window totals.
+   */
+  private void forget(K key) {
+    for (Map<K, MutableInteger> bucket : buckets) {
+      bucket.remove(key);
+    }
+  }
+
+  /**
+   * Adds the count to the bucket of the current time.
+   */
+  private void record(K key, int count) {
+    Map<K, MutableInteger> bucket = buckets[slot(current)];
+    MutableInteger delta = bucket.get(key);
+    if (delta == null) {
+      bucket.put(key, new MutableInteger(count));
+    } else {
+      delta.set(delta.get() + count);
+    }
+  }
+
+  /**
+   * Adds the count to the window total of the key, removing the key if the
+   * total drops to 0.
+   */
+  private int incrementTotal(K key, int count) {
+    MutableInteger total = map.get(key);
+    int newCount = total == null ? count : total.get() + count;
+    if (newCount == 0) {
+      map.remove(key);
+    } else if (total == null) {
+      map.put(key, new MutableInteger(newCount));
+    } else {
+      total.set(newCount);
+    }
+    totalCount += count;
+    return newCount;
+  }
+
+  /**
+   * Subtracts the buckets that have fallen out of the window from the totals
+   * and empties them for reuse.
+   */
+  private void expire() {
+    long now = Math.floorDiv(clock.getAsLong(), bucketLength);
+    if (now <= current) {
+      return;
+    }
+    if (now - current >= buckets.length) {
+      // the whole window has expired
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new HashMap<>();
+      }
+      map.clear();
+      totalCount = 0;
+    } else {
+      for (long b = current + 1; b <= now; b++) {
+        int i = slot(b);
+        if (!buckets[i].isEmpty()) {
+          for (Map.Entry<K, MutableInteger> e : buckets[i].entrySet()) {
+            incrementTotal(e.getKey(), -e.getValue().get());
+          }
+          buckets[i] = new HashMap<>();
+        }
+      }
+    }
+    current = now;
+  }
+}
@@ -0,0 +1,95 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.Objects;
+
+/**
+ * The costs of the edit operations of {@link TreeEditDistance}: deleting a node, inserting a node
+ * and renaming the user object of a node. The costs must not be negative.
+ *
+ * @param <E> the type of the user objects
+ * @author Yifan Peng
+ */
+public interface EditCost<E> {
+
+  /**
+   * Returns the cost of deleting a node of the first tree.
+   *
+   * @param obj the user object of the node
+   * @return the cost of deleting the node
+   */
+  double delete(E obj);
+
+  /**
+   * Returns the cost of inserting a node of the second tree.
+   *
+   * @param obj the user object of the node
+   * @return the cost of inserting the node
+   */
+  double insert(E obj);
+
+  /**
+   * Returns the cost of renaming the user object of a node of the first tree to that of a node
+   * of the second tree.
+   *
+   * @param obj1 the user object of the node of the first tree
+   * @param obj2 the user object of the node of the second tree
+   * @return the cost of renaming the node
+   */
+  double rename(E obj1, E obj2);
+
+  /**
+   * Returns a lower bound of the cost of inserting a node, deleting a node, or renaming a user
+   * object to an unequal one. It is used to skip pairs of trees whose distance exceeds a
+   * threshold. The default is 0, which never skips a pair.
+   *
+   * @return the minimum cost of an operation that changes the user objects of the tree
+   */
+  default double minCost() {
+    return 0;
+  }
+
+  /**
+   * Returns true if deleting costs the same as inserting and renaming costs the same in both
+   * directions, so that the distance is symmetric. The default is false.
+   *
+   * @return true if the distance is symmetric
+   */
+  default boolean isSymmetric() {
+    return false;
+  }
+
+  /**
+   * Returns the unit cost model: every insertion and deletion costs 1, and renaming costs 0 if
+   * the user objects are equal and 1 otherwise.
+   *
+   * @return the unit cost model
+   */
+  static <E> EditCost<E> unit() {
+    return new EditCost<E>() {
+      @Override
+      public double delete(E obj) {
+        return 1;
+      }
+
+      @Override
+      public double insert(E obj) {
+        return 1;
+      }
+
+      @Override
+      public double rename(E obj1, E obj2) {
+        return Objects.equals(obj1, obj2) ? 0 : 1;
+      }
+
+      @Override
+      public double minCost() {
+        return 1;
+      }
+
+      @Override
+      public boolean isSymmetric() {
+        return true;
+      }
+    };
+  }
+}
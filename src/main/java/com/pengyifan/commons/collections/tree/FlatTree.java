@@ -0,0 +1,331 @@
+package com.pengyifan.commons.collections.tree;
+
+import edu.stanford.nlp.util.ErasureUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable snapshot of a {@link Tree}, stored as parallel arrays indexed by the preorder
+ * position of the nodes.
+ * <p>
+ * A node is an int: the root is 0 and the nodes of the subtree rooted at node v are v, v + 1, ...,
+ * v + getSubtreeSize(v) - 1. For every node the snapshot stores the parent, the first child, the
+ * next sibling, the size of its subtree, its level and its user object, and also the postorder of
+ * all the nodes. As a result, the preorder and postorder of a subtree are contiguous ranges, the
+ * leaves are the nodes of size 1, and none of the traversals allocates a node or an iterator per
+ * node. A node costs seven ints and a reference, a fraction of a {@link Tree} node with its child
+ * array.
+ * <p>
+ * The user objects are shared with the tree, not copied. A <code>FlatTree</code> is never
+ * modified after it is created, so it can be shared between threads without synchronization.
+ *
+ * @param <E> the type of the user objects
+ * @author Yifan Peng
+ */
+public final class FlatTree<E> {
+
+  /**
+   * The parent, first child or next sibling of a node that has none
+   */
+  public static final int NONE = -1;
+
+  private final int[] parents;
+  private final int[] firstChildren;
+  private final int[] nextSiblings;
+  private final int[] subtreeSizes;
+  private final int[] levels;
+  /**
+   * The nodes in postorder
+   */
+  private final int[] postorder;
+  /**
+   * The position of the nodes in {@link #postorder}
+   */
+  private final int[] postorderIndices;
+  private final Object[] objects;
+
+  private FlatTree(int size) {
+    parents = new int[size];
+    firstChildren = new int[size];
+    nextSiblings = new int[size];
+    subtreeSizes = new int[size];
+    levels = new int[size];
+    postorder = new int[size];
+    postorderIndices = new int[size];
+    objects = new Object[size];
+  }
+
+  /**
+   * Returns a snapshot of the subtree rooted at the given node. The node becomes the root of the
+   * snapshot.
+   *
+   * @param root the root of the subtree
+   * @return a snapshot of the subtree
+   * @throws NullPointerException if the root is null
+   */
+  public static <E, T extends Tree<E, T>> FlatTree<E> of(T root) {
+    checkNotNull(root, "The root is null");
+    int size = 0;
+    for (Iterator<T> itr = root.preorderIterator(); itr.hasNext(); itr.next()) {
+      size++;
+    }
+    FlatTree<E> flat = new FlatTree<>(size);
+    Arrays.fill(flat.firstChildren, NONE);
+    Arrays.fill(flat.nextSiblings, NONE);
+    // the last child seen of every node, children are visited from left to right
+    int[] lastChildren = new int[size];
+
+    // the nodes to visit and their parents, the stack never holds more than all the nodes
+    Deque<T> nodes = new ArrayDeque<>();
+    int[] parentStack = new int[size];
+    int top = 0;
+    nodes.push(root);
+    parentStack[top++] = NONE;
+    int v = 0;
+    while (!nodes.isEmpty()) {
+      T node = nodes.pop();
+      int parent = parentStack[--top];
+      flat.objects[v] = node.getObject();
+      flat.parents[v] = parent;
+      if (parent != NONE) {
+        if (flat.firstChildren[parent] == NONE) {
+          flat.firstChildren[parent] = v;
+        } else {
+          flat.nextSiblings[lastChildren[parent]] = v;
+        }
+        lastChildren[parent] = v;
+        flat.levels[v] = flat.levels[parent] + 1;
+      }
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        nodes.push(node.getChild(i));
+        parentStack[top++] = v;
+      }
+      v++;
+    }
+
+    for (v = size - 1; v >= 0; v--) {
+      flat.subtreeSizes[v]++;
+      if (v > 0) {
+        flat.subtreeSizes[flat.parents[v]] += flat.subtreeSizes[v];
+      }
+    }
+    // post(v) = pre(v) + size(v) - 1 - level(v)
+    for (v = 0; v < size; v++) {
+      int post = v + flat.subtreeSizes[v] - 1 - flat.levels[v];
+      flat.postorder[post] = v;
+      flat.postorderIndices[v] = post;
+    }
+    return flat;
+  }
+
+  /**
+   * Returns the nodes of the subtree rooted at the given node in breadth-first order.
+   *
+   * @param node a node
+   * @return the nodes of the subtree in breadth-first order
+   */
+  public IntStream breadthFirst(int node) {
+    checkElementIndex(node, size());
+    int[] queue = new int[subtreeSizes[node]];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = node;
+    while (head < tail) {
+      for (int c = firstChildren[queue[head++]]; c != NONE; c = nextSiblings[c]) {
+        queue[tail++] = c;
+      }
+    }
+    return Arrays.stream(queue);
+  }
+
+  /**
+   * Returns the number of children of the given node.
+   *
+   * @param node a node
+   * @return the number of children of the node
+   */
+  public int getChildCount(int node) {
+    checkElementIndex(node, size());
+    int count = 0;
+    for (int c = firstChildren[node]; c != NONE; c = nextSiblings[c]) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the first child of the given node, or {@link #NONE} if it is a leaf.
+   *
+   * @param node a node
+   * @return the first child of the node
+   */
+  public int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  /**
+   * Returns the objects of the leaves of the subtree rooted at the given node, from left to right.
+   *
+   * @param node a node
+   * @return the objects of the leaves of the subtree
+   */
+  public List<E> getLeafObjects(int node) {
+    List<E> objects = new ArrayList<>();
+    leaves(node).forEach(leaf -> objects.add(getObject(leaf)));
+    return objects;
+  }
+
+  /**
+   * Returns the number of levels above the given node -- the distance from the root to the node.
+   *
+   * @param node a node
+   * @return the level of the node
+   */
+  public int getLevel(int node) {
+    return levels[node];
+  }
+
+  /**
+   * Returns the next sibling of the given node, or {@link #NONE} if it is the last child of its
+   * parent or the root.
+   *
+   * @param node a node
+   * @return the next sibling of the node
+   */
+  public int getNextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  /**
+   * Returns the user object of the given node.
+   *
+   * @param node a node
+   * @return the user object of the node
+   */
+  public E getObject(int node) {
+    return ErasureUtils.uncheckedCast(objects[node]);
+  }
+
+  /**
+   * Returns the parent of the given node, or {@link #NONE} if it is the root.
+   *
+   * @param node a node
+   * @return the parent of the node
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Returns the number of nodes in the subtree rooted at the given node, including the node.
+   *
+   * @param node a node
+   * @return the size of the subtree of the node
+   */
+  public int getSubtreeSize(int node) {
+    return subtreeSizes[node];
+  }
+
+  /**
+   * Returns true if the second node is in the subtree of the first one. A node is in its own
+   * subtree.
+   *
+   * @param ancestor a node
+   * @param node     a node
+   * @return true if the node is in the subtree of the ancestor
+   */
+  public boolean isAncestor(int ancestor, int node) {
+    return ancestor <= node && node < ancestor + subtreeSizes[ancestor];
+  }
+
+  /**
+   * Returns true if the given node has no children.
+   *
+   * @param node a node
+   * @return true if the node is a leaf
+   */
+  public boolean isLeaf(int node) {
+    return subtreeSizes[node] == 1;
+  }
+
+  /**
+   * Returns the leaves of the subtree rooted at the given node, from left to right.
+   *
+   * @param node a node
+   * @return the leaves of the subtree
+   */
+  public IntStream leaves(int node) {
+    return preorder(node).filter(v -> subtreeSizes[v] == 1);
+  }
+
+  /**
+   * Returns the nodes of the subtree rooted at the given node in postorder.
+   *
+   * @param node a node
+   * @return the nodes of the subtree in postorder
+   */
+  public IntStream postorder(int node) {
+    checkElementIndex(node, size());
+    int end = postorderIndices[node] + 1;
+    return Arrays.stream(postorder, end - subtreeSizes[node], end);
+  }
+
+  /**
+   * Returns the nodes of the subtree rooted at the given node in preorder.
+   *
+   * @param node a node
+   * @return the nodes of the subtree in preorder
+   */
+  public IntStream preorder(int node) {
+    checkElementIndex(node, size());
+    return IntStream.range(node, node + subtreeSizes[node]);
+  }
+
+  /**
+   * Returns the root, which is always 0.
+   *
+   * @return the root
+   */
+  public int root() {
+    return 0;
+  }
+
+  /**
+   * Returns the number of nodes.
+   *
+   * @return the number of nodes
+   */
+  public int size() {
+    return objects.length;
+  }
+
+  /**
+   * Builds a new {@link Tree} with the same structure and user objects.
+   *
+   * @param treeFactory creates a node from a user object
+   * @return the root of the new tree
+   */
+  public <T extends Tree<E, T>> T toTree(Function<E, T> treeFactory) {
+    List<T> nodes = new ArrayList<>(size());
+    for (int v = 0; v < size(); v++) {
+      T node = treeFactory.apply(getObject(v));
+      nodes.add(node);
+      if (v > 0) {
+        // the nodes are new, so they are appended without the ancestor check of Tree.add
+        Tree<E, T> parent = nodes.get(parents[v]);
+        parent.append(node);
+      }
+    }
+    return nodes.get(0);
+  }
+}
@@ -0,0 +1,177 @@
+package com.pengyifan.commons.collections.tree;
+
+import edu.stanford.nlp.util.ErasureUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The conversions, comparison and formatting shared by the immutable trees, {@link InternedTree}
+ * and {@link PersistentTree}, whose nodes hold a user object and an array of children. The nodes
+ * are read through functions, so that the arrays of children are not exposed. All the methods
+ * use an explicit stack, so deeply nested trees cannot overflow the call stack.
+ *
+ * @author Yifan Peng
+ */
+final class ImmutableTrees {
+
+  private ImmutableTrees() {
+  }
+
+  /**
+   * Copies the subtree rooted at the given node in postorder, so that every node is created by
+   * the factory from its user object and its copied children.
+   *
+   * @param root        the root of the subtree
+   * @param nodeFactory creates a node from a user object and an array of children
+   * @return the copy of the root
+   */
+  static <E, T extends Tree<E, T>, N> N fromTree(T root,
+      BiFunction<? super E, Object[], N> nodeFactory) {
+    checkNotNull(root, "The root is null");
+    // the open nodes, the index of their next child, and the copied children
+    List<T> path = new ArrayList<>();
+    int[] nextChildren = new int[16];
+    List<N> done = new ArrayList<>();
+    path.add(root);
+    while (true) {
+      int top = path.size() - 1;
+      T node = path.get(top);
+      if (nextChildren[top] < node.getChildCount()) {
+        T child = node.getChild(nextChildren[top]++);
+        if (path.size() == nextChildren.length) {
+          nextChildren = Arrays.copyOf(nextChildren, 2 * nextChildren.length);
+        }
+        nextChildren[path.size()] = 0;
+        path.add(child);
+        continue;
+      }
+      Object[] children = new Object[node.getChildCount()];
+      for (int i = children.length - 1; i >= 0; i--) {
+        children[i] = done.remove(done.size() - 1);
+      }
+      N copy = nodeFactory.apply(node.getObject(), children);
+      path.remove(top);
+      if (path.isEmpty()) {
+        return copy;
+      }
+      done.add(copy);
+    }
+  }
+
+  /**
+   * Builds a new {@link Tree} with the same structure and user objects as the given node.
+   *
+   * @param root        the root of the immutable tree
+   * @param objects     returns the user object of a node
+   * @param children    returns the children of a node
+   * @param treeFactory creates a tree node from a user object
+   * @return the root of the new tree
+   */
+  static <E, N, T extends Tree<E, T>> T toTree(N root, Function<N, E> objects,
+      Function<N, Object[]> children, Function<E, T> treeFactory) {
+    T tree = treeFactory.apply(objects.apply(root));
+    Deque<N> sources = new ArrayDeque<>();
+    Deque<Tree<E, T>> targets = new ArrayDeque<>();
+    sources.push(root);
+    targets.push(tree);
+    while (!sources.isEmpty()) {
+      N source = sources.pop();
+      Tree<E, T> target = targets.pop();
+      for (Object c : children.apply(source)) {
+        N child = ErasureUtils.uncheckedCast(c);
+        T copy = treeFactory.apply(objects.apply(child));
+        // the copy is new, so it is appended without the ancestor check of Tree.add
+        target.append(copy);
+        sources.push(child);
+        targets.push(copy);
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Returns true if the two trees have the same structure and equal nodes. Identical subtrees are
+   * skipped.
+   *
+   * @param a          the root of the first tree
+   * @param b          the root of the second tree
+   * @param nodeEquals compares two nodes without their children
+   * @param children   returns the children of a node
+   * @return true if the two trees are equal
+   */
+  static <N> boolean equals(N a, N b, BiPredicate<N, N> nodeEquals,
+      Function<N, Object[]> children) {
+    Deque<N> stack = new ArrayDeque<>();
+    stack.push(a);
+    stack.push(b);
+    while (!stack.isEmpty()) {
+      N x = stack.pop();
+      N y = stack.pop();
+      if (x == y) {
+        continue;
+      }
+      Object[] xs = children.apply(x);
+      Object[] ys = children.apply(y);
+      if (xs.length != ys.length || !nodeEquals.test(x, y)) {
+        return false;
+      }
+      for (int i = 0; i < xs.length; i++) {
+        stack.push(ErasureUtils.uncheckedCast(xs[i]));
+        stack.push(ErasureUtils.uncheckedCast(ys[i]));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the tree in the bracketed format of the Penn Treebank, as written by
+   * {@link PennTreeWriter}.
+   *
+   * @param root     the root of the tree
+   * @param objects  returns the user object of a node
+   * @param children returns the children of a node
+   * @return the bracketed string of the tree
+   */
+  static <N> String toString(N root, Function<N, ?> objects, Function<N, Object[]> children) {
+    if (children.apply(root).length == 0) {
+      return String.valueOf(objects.apply(root));
+    }
+    StringBuilder sb = new StringBuilder();
+    // the open nodes, and the index of their next child
+    List<N> path = new ArrayList<>();
+    int[] nextChildren = new int[16];
+    sb.append('(').append(objects.apply(root));
+    path.add(root);
+    while (!path.isEmpty()) {
+      int top = path.size() - 1;
+      Object[] siblings = children.apply(path.get(top));
+      if (nextChildren[top] < siblings.length) {
+        N child = ErasureUtils.uncheckedCast(siblings[nextChildren[top]++]);
+        sb.append(' ');
+        if (children.apply(child).length == 0) {
+          sb.append(objects.apply(child));
+        } else {
+          sb.append('(').append(objects.apply(child));
+          if (path.size() == nextChildren.length) {
+            nextChildren = Arrays.copyOf(nextChildren, 2 * nextChildren.length);
+          }
+          nextChildren[path.size()] = 0;
+          path.add(child);
+        }
+      } else {
+        sb.append(')');
+        path.remove(top);
+      }
+    }
+    return sb.toString();
+  }
+}
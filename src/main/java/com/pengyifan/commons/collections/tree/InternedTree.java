@@ -0,0 +1,129 @@
+package com.pengyifan.commons.collections.tree;
+
+import edu.stanford.nlp.util.ErasureUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * An immutable tree whose identical subtrees share one node, created by a {@link TreeInterner}.
+ * <p>
+ * A node holds its user object, its children and its structural hash code, computed once from
+ * the hash code of the user object and those of the children. Since the children are interned
+ * before their parent, two nodes from the same interner are equal if and only if they are the
+ * same node, so {@link #equals(Object)} and {@link #hashCode()} take O(1). Nodes from different
+ * interners are compared structurally.
+ * <p>
+ * The user objects should be immutable, and so should their hash codes.
+ *
+ * @param <E> the type of the user objects
+ * @author Yifan Peng
+ * @see TreeInterner
+ */
+public final class InternedTree<E> {
+
+  private static final Object[] NO_CHILDREN = new Object[0];
+
+  private final E obj;
+  private final Object[] children;
+  private final int hash;
+
+  InternedTree(E obj, Object[] children) {
+    this.obj = obj;
+    this.children = children.length == 0 ? NO_CHILDREN : children;
+    int h = Objects.hashCode(obj);
+    for (Object child : children) {
+      h = 31 * h + child.hashCode();
+    }
+    this.hash = h;
+  }
+
+  /**
+   * Returns an unmodifiable list of the children of this node.
+   *
+   * @return the children of this node
+   */
+  public List<InternedTree<E>> children() {
+    List<InternedTree<E>> list = ErasureUtils.uncheckedCast(Arrays.asList(children));
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Returns the child at the specified index.
+   *
+   * @param index an index into this node's child array
+   * @return the child at the specified index
+   */
+  public InternedTree<E> getChild(int index) {
+    checkElementIndex(index, children.length);
+    return ErasureUtils.uncheckedCast(children[index]);
+  }
+
+  /**
+   * Returns the number of children of this node.
+   *
+   * @return the number of children of this node
+   */
+  public int getChildCount() {
+    return children.length;
+  }
+
+  /**
+   * Returns this node's user object.
+   *
+   * @return the user object of this node
+   */
+  public E getObject() {
+    return obj;
+  }
+
+  /**
+   * Returns true if this node has no children.
+   *
+   * @return true if this node is a leaf
+   */
+  public boolean isLeaf() {
+    return children.length == 0;
+  }
+
+  /**
+   * Builds a new {@link Tree} with the same structure and user objects. Shared subtrees are
+   * copied.
+   *
+   * @param treeFactory creates a node from a user object
+   * @return the root of the new tree
+   */
+  public <T extends Tree<E, T>> T toTree(Function<E, T> treeFactory) {
+    return ImmutableTrees.toTree(this, node -> node.obj, node -> node.children, treeFactory);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof InternedTree)) {
+      return false;
+    }
+    return ImmutableTrees.<InternedTree<?>>equals(this, (InternedTree<?>) o,
+        (a, b) -> a.hash == b.hash && Objects.equals(a.obj, b.obj), node -> node.children);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Returns the tree in the bracketed format of the Penn Treebank.
+   */
+  @Override
+  public String toString() {
+    return ImmutableTrees.toString(this, node -> node.obj, node -> node.children);
+  }
+}
@@ -0,0 +1,205 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Answers lowest common ancestor queries on a tree in O(1) after O(n log n) preprocessing.
+ * <p>
+ * The index records the Euler tour of the tree -- the sequence of nodes visited by a depth-first
+ * traversal, where a node is visited again after each of its children -- and a sparse table of
+ * the shallowest node over every range of 2<sup>k</sup> steps of the tour. The lowest common
+ * ancestor of two nodes is the shallowest node of the tour between their first visits, which is
+ * the shallower of two overlapping ranges in the table (Bender and Farach-Colton, 2000). The
+ * nodes are also numbered in preorder, so that {@link #dominates(Tree, Tree)} compares two
+ * intervals.
+ * <p>
+ * Unlike {@link TreeUtils#getLowestCommonAncestor(Tree, Tree)}, which walks both paths to the root
+ * on every call, the index is built once per tree. It is a snapshot: it must be rebuilt after the
+ * tree is modified. Nodes are compared by identity (==). An index is never modified after it is
+ * created, so it can be shared between threads.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ */
+public final class LcaIndex<E, T extends Tree<E, T>> {
+
+  /**
+   * The preorder number of every node
+   */
+  private final Map<T, Integer> ids;
+  /**
+   * The nodes in preorder
+   */
+  private final List<T> nodes;
+  private final int[] levels;
+  private final int[] subtreeSizes;
+  /**
+   * The position of the first visit of every node in the Euler tour
+   */
+  private final int[] firstVisits;
+  /**
+   * sparse[k][i] is the shallowest node among the steps i, ..., i + 2^k - 1 of the Euler tour
+   */
+  private final int[][] sparse;
+
+  private LcaIndex(T root) {
+    ids = new IdentityHashMap<>();
+    nodes = new ArrayList<>();
+    for (Iterator<T> itr = root.preorderIterator(); itr.hasNext(); ) {
+      T node = itr.next();
+      ids.put(node, nodes.size());
+      nodes.add(node);
+    }
+    int n = nodes.size();
+    levels = new int[n];
+    subtreeSizes = new int[n];
+    int[] parents = new int[n];
+    for (int v = 1; v < n; v++) {
+      parents[v] = ids.get(nodes.get(v).getParent());
+      levels[v] = levels[parents[v]] + 1;
+    }
+    for (int v = n - 1; v >= 0; v--) {
+      subtreeSizes[v]++;
+      if (v > 0) {
+        subtreeSizes[parents[v]] += subtreeSizes[v];
+      }
+    }
+
+    // Euler tour, with an explicit stack of the nodes on the path and their next child
+    int[] euler = new int[2 * n - 1];
+    firstVisits = new int[n];
+    int[] path = new int[n];
+    int[] nextChildren = new int[n];
+    int top = 0;
+    int steps = 0;
+    path[0] = 0;
+    euler[steps++] = 0;
+    while (top >= 0) {
+      T node = nodes.get(path[top]);
+      if (nextChildren[top] < node.getChildCount()) {
+        int child = ids.get(node.getChild(nextChildren[top]++));
+        path[++top] = child;
+        nextChildren[top] = 0;
+        firstVisits[child] = steps;
+        euler[steps++] = child;
+      } else if (--top >= 0) {
+        euler[steps++] = path[top];
+      }
+    }
+
+    int logSteps = 31 - Integer.numberOfLeadingZeros(steps);
+    sparse = new int[logSteps + 1][];
+    sparse[0] = euler;
+    for (int k = 1; k <= logSteps; k++) {
+      int[] prev = sparse[k - 1];
+      int[] curr = new int[steps - (1 << k) + 1];
+      for (int i = 0; i < curr.length; i++) {
+        curr[i] = shallower(prev[i], prev[i + (1 << (k - 1))]);
+      }
+      sparse[k] = curr;
+    }
+  }
+
+  /**
+   * Builds the index of the subtree rooted at the given node.
+   *
+   * @param root the root of the subtree
+   * @return the index of the subtree
+   * @throws NullPointerException if the root is null
+   */
+  public static <E, T extends Tree<E, T>> LcaIndex<E, T> of(T root) {
+    checkNotNull(root, "The root is null");
+    return new LcaIndex<>(root);
+  }
+
+  /**
+   * Returns the number of edges on the path between the two nodes.
+   *
+   * @param t1 a node in the tree
+   * @param t2 a node in the tree
+   * @return the distance between the two nodes
+   * @throws IllegalArgumentException if a node is not in the tree
+   */
+  public int distance(T t1, T t2) {
+    int v1 = id(t1);
+    int v2 = id(t2);
+    return levels[v1] + levels[v2] - 2 * levels[lca(v1, v2)];
+  }
+
+  /**
+   * Returns true if the second node is a proper descendant of the first one. A node does not
+   * dominate itself.
+   *
+   * @param t1 a node in the tree
+   * @param t2 a node in the tree
+   * @return true if t1 dominates t2
+   * @throws IllegalArgumentException if a node is not in the tree
+   */
+  public boolean dominates(T t1, T t2) {
+    int v1 = id(t1);
+    int v2 = id(t2);
+    return v1 < v2 && v2 < v1 + subtreeSizes[v1];
+  }
+
+  /**
+   * Returns the number of levels above the given node within the indexed tree.
+   *
+   * @param t a node in the tree
+   * @return the level of the node
+   * @throws IllegalArgumentException if the node is not in the tree
+   */
+  public int getLevel(T t) {
+    return levels[id(t)];
+  }
+
+  /**
+   * Returns the lowest common ancestor of the two nodes. A node is its own ancestor.
+   *
+   * @param t1 a node in the tree
+   * @param t2 a node in the tree
+   * @return the lowest common ancestor of the two nodes
+   * @throws IllegalArgumentException if a node is not in the tree
+   */
+  public T lca(T t1, T t2) {
+    return nodes.get(lca(id(t1), id(t2)));
+  }
+
+  /**
+   * Returns the number of nodes in the indexed tree.
+   *
+   * @return the number of nodes
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  private int lca(int v1, int v2) {
+    int i = firstVisits[v1];
+    int j = firstVisits[v2];
+    if (i > j) {
+      int tmp = i;
+      i = j;
+      j = tmp;
+    }
+    int k = 31 - Integer.numberOfLeadingZeros(j - i + 1);
+    return shallower(sparse[k][i], sparse[k][j - (1 << k) + 1]);
+  }
+
+  private int id(T t) {
+    Integer id = ids.get(t);
+    checkArgument(id != null, "The node is not in the tree: %s", t);
+    return id;
+  }
+
+  private int shallower(int v1, int v2) {
+    return levels[v1] <= levels[v2] ? v1 : v2;
+  }
+}
@@ -0,0 +1,217 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Interner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads trees in the bracketed format of the Penn Treebank, such as
+ * <p>
+ * <pre>
+ * (S (NP (DT The) (NN dog)) (VP (VBZ barks)))
+ * </pre>
+ * <p>
+ * A bracket is followed by the label of an inner node, possibly empty, and its children. Any other
+ * token is a leaf. Trees are separated by whitespace, and the nodes are created from their labels
+ * by a factory, as in {@link Tree#deepCopy(Function)}.
+ * <p>
+ * The reader scans a buffer of characters with an explicit stack of the open nodes, so deeply
+ * nested trees cannot overflow the call stack. A node is added to its parent only when its bracket
+ * is closed; as the parent is not yet attached to the tree, the ancestor check of
+ * {@link Tree#add(Tree)} is O(1) and reading a tree takes O(n) time. The input is any
+ * {@link Readable}, such as a {@link java.io.Reader} or a {@link CharBuffer} over text in memory.
+ * The labels can be interned, so that the millions of copies of "NP" in a treebank share one
+ * string.
+ * <p>
+ * A reader is not thread-safe.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ * @see PennTreeWriter
+ */
+public class PennTreeReader<E, T extends Tree<E, T>> implements Closeable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final Readable in;
+  private final Function<String, T> treeFactory;
+  private final Interner<String> interner;
+  private final CharBuffer buffer;
+  private final char[] chars;
+  private final StringBuilder token;
+  /**
+   * The open nodes, from the root to the innermost one
+   */
+  private final List<T> stack;
+  private int position;
+  private int limit;
+  /**
+   * The offset of the buffer in the input
+   */
+  private long offset;
+
+  /**
+   * Creates a reader of the given input.
+   *
+   * @param in          the input
+   * @param treeFactory creates a node from a label
+   */
+  public PennTreeReader(Readable in, Function<String, T> treeFactory) {
+    this(in, treeFactory, null);
+  }
+
+  /**
+   * Creates a reader of the given input that interns the labels.
+   *
+   * @param in          the input
+   * @param treeFactory creates a node from a label
+   * @param interner    interns the labels, or null to create a new string for every label
+   */
+  public PennTreeReader(Readable in, Function<String, T> treeFactory, Interner<String> interner) {
+    this(in, treeFactory, interner, DEFAULT_BUFFER_SIZE);
+  }
+
+  PennTreeReader(Readable in, Function<String, T> treeFactory, Interner<String> interner,
+      int bufferSize) {
+    checkArgument(bufferSize > 0, "The buffer size is not positive: %s", bufferSize);
+    this.in = checkNotNull(in, "The input is null");
+    this.treeFactory = checkNotNull(treeFactory, "The tree factory is null");
+    this.interner = interner;
+    this.buffer = CharBuffer.allocate(bufferSize);
+    this.chars = buffer.array();
+    this.token = new StringBuilder();
+    this.stack = new ArrayList<>();
+    this.position = 0;
+    this.limit = 0;
+    this.offset = 0;
+  }
+
+  /**
+   * Closes the input if it is {@link Closeable}.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    if (in instanceof Closeable) {
+      ((Closeable) in).close();
+    }
+  }
+
+  /**
+   * Reads the next tree.
+   *
+   * @return the next tree, or null at the end of the input
+   * @throws IOException if an I/O error occurs or the input is malformed
+   */
+  public T readTree() throws IOException {
+    stack.clear();
+    while (true) {
+      if (position == limit && !fill()) {
+        if (!stack.isEmpty()) {
+          throw new IOException("Unexpected end of input: " + stack.size() + " unclosed brackets");
+        }
+        return null;
+      }
+      char c = chars[position];
+      if (Character.isWhitespace(c)) {
+        position++;
+      } else if (c == '(') {
+        position++;
+        stack.add(treeFactory.apply(readLabel()));
+      } else if (c == ')') {
+        if (stack.isEmpty()) {
+          throw new IOException("Unmatched ')' at offset " + (offset + position));
+        }
+        position++;
+        T node = stack.remove(stack.size() - 1);
+        if (stack.isEmpty()) {
+          return node;
+        }
+        stack.get(stack.size() - 1).add(node);
+      } else {
+        T leaf = treeFactory.apply(readToken());
+        if (stack.isEmpty()) {
+          return leaf;
+        }
+        stack.get(stack.size() - 1).add(leaf);
+      }
+    }
+  }
+
+  /**
+   * Reads the label after an opening bracket, which is empty if the bracket is followed by
+   * another bracket.
+   */
+  private String readLabel() throws IOException {
+    while (position < limit || fill()) {
+      char c = chars[position];
+      if (!Character.isWhitespace(c)) {
+        return c == '(' || c == ')' ? intern("") : readToken();
+      }
+      position++;
+    }
+    return intern("");
+  }
+
+  /**
+   * Reads a token that starts at the current position.
+   */
+  private String readToken() throws IOException {
+    int start = position;
+    while (position < limit && !isDelimiter(chars[position])) {
+      position++;
+    }
+    if (position < limit) {
+      // fast path: the token is in the buffer
+      return intern(new String(chars, start, position - start));
+    }
+    token.setLength(0);
+    token.append(chars, start, position - start);
+    while (fill()) {
+      start = position;
+      while (position < limit && !isDelimiter(chars[position])) {
+        position++;
+      }
+      token.append(chars, start, position - start);
+      if (position < limit) {
+        break;
+      }
+    }
+    return intern(token.toString());
+  }
+
+  private String intern(String s) {
+    return interner == null ? s : interner.intern(s);
+  }
+
+  /**
+   * Refills the buffer.
+   *
+   * @return false at the end of the input
+   */
+  private boolean fill() throws IOException {
+    offset += limit;
+    buffer.clear();
+    int n;
+    do {
+      n = in.read(buffer);
+    } while (n == 0);
+    position = 0;
+    limit = n < 0 ? 0 : buffer.position();
+    return n > 0;
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == '(' || c == ')' || Character.isWhitespace(c);
+  }
+}
@@ -0,0 +1,107 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes trees in the bracketed format of the Penn Treebank, such as
+ * <p>
+ * <pre>
+ * (S (NP (DT The) (NN dog)) (VP (VBZ barks)))
+ * </pre>
+ * <p>
+ * An inner node is written as a bracket, its label and its children separated by spaces, and a
+ * leaf as its label. The labels are formatted by a function, {@link String#valueOf(Object)} by
+ * default, and are written as is. The tree is written on one line in a single preorder pass with
+ * an explicit stack, so deeply nested trees cannot overflow the call stack, and can be read back
+ * by {@link PennTreeReader}.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ * @see PennTreeReader
+ */
+public class PennTreeWriter<E, T extends Tree<E, T>> {
+
+  private final Function<? super E, String> formatter;
+
+  /**
+   * Creates a writer that formats the labels by {@link String#valueOf(Object)}.
+   */
+  public PennTreeWriter() {
+    this(String::valueOf);
+  }
+
+  /**
+   * Creates a writer that formats the labels by the given function.
+   *
+   * @param formatter formats the user object of a node
+   */
+  public PennTreeWriter(Function<? super E, String> formatter) {
+    this.formatter = checkNotNull(formatter, "The formatter is null");
+  }
+
+  /**
+   * Returns the bracketed string of the given tree.
+   *
+   * @param tree the root of the tree
+   * @return the bracketed string of the tree
+   */
+  public String toString(T tree) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      write(tree, sb);
+    } catch (IOException e) {
+      // a StringBuilder never throws
+      throw new UncheckedIOException(e);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes the given tree to the given output, without a line separator.
+   *
+   * @param tree the root of the tree
+   * @param out  the output
+   * @throws IOException if an I/O error occurs
+   */
+  public void write(T tree, Appendable out) throws IOException {
+    checkNotNull(tree, "The tree is null");
+    if (tree.isLeaf()) {
+      out.append(formatter.apply(tree.getObject()));
+      return;
+    }
+    // the open nodes, and the index of their next child
+    List<T> path = new ArrayList<>();
+    int[] nextChildren = new int[16];
+    out.append('(').append(formatter.apply(tree.getObject()));
+    path.add(tree);
+    while (!path.isEmpty()) {
+      int top = path.size() - 1;
+      T node = path.get(top);
+      if (nextChildren[top] < node.getChildCount()) {
+        T child = node.getChild(nextChildren[top]++);
+        out.append(' ');
+        if (child.isLeaf()) {
+          out.append(formatter.apply(child.getObject()));
+        } else {
+          out.append('(').append(formatter.apply(child.getObject()));
+          if (path.size() == nextChildren.length) {
+            nextChildren = Arrays.copyOf(nextChildren, 2 * nextChildren.length);
+          }
+          nextChildren[path.size()] = 0;
+          path.add(child);
+        }
+      } else {
+        out.append(')');
+        path.remove(top);
+      }
+    }
+  }
+}
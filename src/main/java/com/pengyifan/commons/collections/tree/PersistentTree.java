@@ -0,0 +1,384 @@
+package com.pengyifan.commons.collections.tree;
+
+import edu.stanford.nlp.util.ErasureUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+/**
+ * An immutable tree whose modifications return a new tree that shares the unchanged subtrees
+ * with the old one (path copying).
+ * <p>
+ * A node holds its user object and its children, but no parent, so that a subtree can be shared
+ * by many trees. {@link #withChild(int, PersistentTree)}, {@link #withoutChild(int)} and
+ * {@link #withObject(Object)} copy one node; the versions that take a path of child indices copy
+ * the nodes from the root to the modified node, so a modification costs O(depth * branching)
+ * instead of the O(n) of {@link Tree#deepCopy(Function)}, and every version of the tree remains
+ * valid. This makes it cheap to keep a snapshot at every step of a search.
+ * <p>
+ * The queries of {@link Tree} that do not need the parent are available, and
+ * {@link #of(Tree)} and {@link #toTree(Function)} convert from and to a {@link Tree}. The user
+ * objects should be immutable.
+ *
+ * @param <E> the type of the user objects
+ * @author Yifan Peng
+ */
+public final class PersistentTree<E> {
+
+  private static final Object[] NO_CHILDREN = new Object[0];
+
+  private final E obj;
+  private final Object[] children;
+  private final int size;
+  private final int hash;
+
+  private PersistentTree(E obj, Object[] children) {
+    this.obj = obj;
+    this.children = children.length == 0 ? NO_CHILDREN : children;
+    int s = 1;
+    int h = Objects.hashCode(obj);
+    for (Object child : children) {
+      s += ((PersistentTree<?>) child).size;
+      h = 31 * h + child.hashCode();
+    }
+    this.size = s;
+    this.hash = h;
+  }
+
+  /**
+   * Returns a node with the given user object and children.
+   *
+   * @param obj      the user object
+   * @param children the children, from left to right
+   * @return a new node
+   * @throws NullPointerException if a child is null
+   */
+  @SafeVarargs
+  public static <E> PersistentTree<E> of(E obj, PersistentTree<E>... children) {
+    Object[] array = new Object[children.length];
+    for (int i = 0; i < children.length; i++) {
+      array[i] = checkNotNull(children[i], "The child is null");
+    }
+    return new PersistentTree<>(obj, array);
+  }
+
+  /**
+   * Returns a persistent copy of the subtree rooted at the given node.
+   *
+   * @param root the root of the subtree
+   * @return the persistent copy
+   */
+  public static <E, T extends Tree<E, T>> PersistentTree<E> of(T root) {
+    return ImmutableTrees.fromTree(root, PersistentTree::new);
+  }
+
+  /**
+   * Returns an unmodifiable list of the children of this node.
+   *
+   * @return the children of this node
+   */
+  public List<PersistentTree<E>> children() {
+    List<PersistentTree<E>> list = ErasureUtils.uncheckedCast(Arrays.asList(children));
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Returns the child at the specified index.
+   *
+   * @param index an index into this node's child array
+   * @return the child at the specified index
+   */
+  public PersistentTree<E> getChild(int index) {
+    checkElementIndex(index, children.length);
+    return ErasureUtils.uncheckedCast(children[index]);
+  }
+
+  /**
+   * Returns the number of children of this node.
+   *
+   * @return the number of children of this node
+   */
+  public int getChildCount() {
+    return children.length;
+  }
+
+  /**
+   * Returns the depth of the tree rooted at this node -- the longest distance from this node to a
+   * leaf. If this node has no children, returns 0.
+   *
+   * @return the depth of the tree whose root is this node
+   */
+  public int getDepth() {
+    int depth = 0;
+    Deque<PersistentTree<E>> nodes = new ArrayDeque<>();
+    Deque<Integer> levels = new ArrayDeque<>();
+    nodes.push(this);
+    levels.push(0);
+    while (!nodes.isEmpty()) {
+      PersistentTree<E> node = nodes.pop();
+      int level = levels.pop();
+      depth = Math.max(depth, level);
+      for (Object child : node.children) {
+        nodes.push(ErasureUtils.uncheckedCast(child));
+        levels.push(level + 1);
+      }
+    }
+    return depth;
+  }
+
+  /**
+   * Returns the user objects of the leaves of the subtree rooted at this node, from left to
+   * right.
+   *
+   * @return the user objects of the leaves
+   */
+  public List<E> getLeafObjects() {
+    List<E> objects = new ArrayList<>();
+    for (PersistentTree<E> leaf : getLeaves()) {
+      objects.add(leaf.obj);
+    }
+    return objects;
+  }
+
+  /**
+   * Returns the leaves of the subtree rooted at this node, from left to right.
+   *
+   * @return the leaves
+   */
+  public List<PersistentTree<E>> getLeaves() {
+    List<PersistentTree<E>> leaves = new ArrayList<>();
+    for (PersistentTree<E> node : preorderList()) {
+      if (node.isLeaf()) {
+        leaves.add(node);
+      }
+    }
+    return leaves;
+  }
+
+  /**
+   * Returns the node at the end of the path of child indices from this node.
+   *
+   * @param path the index of the child at every level
+   * @return the node at the end of the path
+   * @throws IndexOutOfBoundsException if an index is out of range
+   */
+  public PersistentTree<E> getNode(int... path) {
+    PersistentTree<E> node = this;
+    for (int index : path) {
+      node = node.getChild(index);
+    }
+    return node;
+  }
+
+  /**
+   * Returns this node's user object.
+   *
+   * @return the user object of this node
+   */
+  public E getObject() {
+    return obj;
+  }
+
+  /**
+   * Returns true if this node has no children.
+   *
+   * @return true if this node is a leaf
+   */
+  public boolean isLeaf() {
+    return children.length == 0;
+  }
+
+  /**
+   * Returns the nodes of the subtree rooted at this node in preorder.
+   *
+   * @return the nodes in preorder
+   */
+  public List<PersistentTree<E>> preorderList() {
+    List<PersistentTree<E>> list = new ArrayList<>(size);
+    Deque<PersistentTree<E>> stack = new ArrayDeque<>();
+    stack.push(this);
+    while (!stack.isEmpty()) {
+      PersistentTree<E> node = stack.pop();
+      list.add(node);
+      for (int i = node.children.length - 1; i >= 0; i--) {
+        stack.push(ErasureUtils.uncheckedCast(node.children[i]));
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns the number of nodes of the subtree rooted at this node, in O(1).
+   *
+   * @return the number of nodes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Builds a new {@link Tree} with the same structure and user objects. Shared subtrees are
+   * copied.
+   *
+   * @param treeFactory creates a node from a user object
+   * @return the root of the new tree
+   */
+  public <T extends Tree<E, T>> T toTree(Function<E, T> treeFactory) {
+    return ImmutableTrees.toTree(this, node -> node.obj, node -> node.children, treeFactory);
+  }
+
+  /**
+   * Returns a tree in which the node at the end of the path is replaced by the result of the
+   * operator, copying only the nodes on the path.
+   *
+   * @param path     the index of the child at every level
+   * @param operator returns the new node
+   * @return the root of the new tree
+   * @throws IndexOutOfBoundsException if an index is out of range
+   */
+  public PersistentTree<E> update(int[] path, UnaryOperator<PersistentTree<E>> operator) {
+    List<PersistentTree<E>> nodes = new ArrayList<>(path.length + 1);
+    nodes.add(this);
+    for (int index : path) {
+      nodes.add(nodes.get(nodes.size() - 1).getChild(index));
+    }
+    PersistentTree<E> node = checkNotNull(operator.apply(nodes.get(path.length)),
+        "The new node is null");
+    if (node == nodes.get(path.length)) {
+      return this;
+    }
+    for (int k = path.length - 1; k >= 0; k--) {
+      PersistentTree<E> parent = nodes.get(k);
+      Object[] array = parent.children.clone();
+      array[path[k]] = node;
+      node = new PersistentTree<>(parent.obj, array);
+    }
+    return node;
+  }
+
+  /**
+   * Returns a copy of this node with the child appended to its children.
+   *
+   * @param child the new child
+   * @return the new node
+   */
+  public PersistentTree<E> withChild(PersistentTree<E> child) {
+    return withChild(children.length, child);
+  }
+
+  /**
+   * Returns a copy of this node with the child inserted at the specified index.
+   *
+   * @param index the index of the new child
+   * @param child the new child
+   * @return the new node
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  public PersistentTree<E> withChild(int index, PersistentTree<E> child) {
+    checkNotNull(child, "The child is null");
+    checkPositionIndex(index, children.length);
+    Object[] array = new Object[children.length + 1];
+    System.arraycopy(children, 0, array, 0, index);
+    array[index] = child;
+    System.arraycopy(children, index, array, index + 1, children.length - index);
+    return new PersistentTree<>(obj, array);
+  }
+
+  /**
+   * Returns a tree in which the child is inserted at the specified index of the node at the end
+   * of the path.
+   *
+   * @param path  the index of the child at every level
+   * @param index the index of the new child
+   * @param child the new child
+   * @return the root of the new tree
+   */
+  public PersistentTree<E> withChild(int[] path, int index, PersistentTree<E> child) {
+    return update(path, node -> node.withChild(index, child));
+  }
+
+  /**
+   * Returns a copy of this node with the user object.
+   *
+   * @param obj the new user object
+   * @return the new node
+   */
+  public PersistentTree<E> withObject(E obj) {
+    return new PersistentTree<>(obj, children);
+  }
+
+  /**
+   * Returns a tree in which the node at the end of the path has the user object.
+   *
+   * @param path the index of the child at every level
+   * @param obj  the new user object
+   * @return the root of the new tree
+   */
+  public PersistentTree<E> withObject(int[] path, E obj) {
+    return update(path, node -> node.withObject(obj));
+  }
+
+  /**
+   * Returns a copy of this node without the child at the specified index.
+   *
+   * @param index the index of the child to remove
+   * @return the new node
+   * @throws IndexOutOfBoundsException if the index is out of range
+   */
+  public PersistentTree<E> withoutChild(int index) {
+    checkElementIndex(index, children.length);
+    Object[] array = new Object[children.length - 1];
+    System.arraycopy(children, 0, array, 0, index);
+    System.arraycopy(children, index + 1, array, index, children.length - index - 1);
+    return new PersistentTree<>(obj, array);
+  }
+
+  /**
+   * Returns a tree in which the node at the end of the path does not have the child at the
+   * specified index.
+   *
+   * @param path  the index of the child at every level
+   * @param index the index of the child to remove
+   * @return the root of the new tree
+   */
+  public PersistentTree<E> withoutChild(int[] path, int index) {
+    return update(path, node -> node.withoutChild(index));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof PersistentTree)) {
+      return false;
+    }
+    return ImmutableTrees.<PersistentTree<?>>equals(this, (PersistentTree<?>) o,
+        (a, b) -> a.hash == b.hash && a.size == b.size && Objects.equals(a.obj, b.obj),
+        node -> node.children);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Returns the tree in the bracketed format of the Penn Treebank.
+   */
+  @Override
+  public String toString() {
+    return ImmutableTrees.toString(this, node -> node.obj, node -> node.children);
+  }
+}
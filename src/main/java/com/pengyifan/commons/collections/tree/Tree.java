@@ -5,20 +5,31 @@ import com.google.common.collect.Lists;
 import com.pengyifan.commons.lang.StringUtils;
 import edu.stanford.nlp.util.ErasureUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Stack;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
 
 /**
  * A <code>Tree</code> is a general-purpose node in a tree data structure.
@@ -36,6 +47,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * representation with <code>toString()</code> returns the string representation of its user
  * object.
  * <p>
+ * The children are kept in an array that grows one slot at a time up to four children, so that
+ * the common case of one to three children wastes no space, and every child remembers its index
+ * in its parent. Indexed access, {@link #indexOf(Tree)} and sibling navigation are O(1); inserting
+ * or removing a child is O(number of children after it).
+ * <p>
  * <b>This is not a thread safe class.</b>If you intend to use a Tree (or a tree of TreeNodes) in
  * more than one thread, you need to do your own synchronizing. A good convention to adopt is
  * synchronizing on the root node of a tree.
@@ -46,12 +62,58 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
 
-  private List<T> children;
+  /**
+   * The order in which {@link #stream(Order)} visits the nodes of a tree.
+   */
+  public enum Order {
+    /**
+     * Level by level, from left to right
+     */
+    BREADTH_FIRST,
+    /**
+     * The leaves from left to right
+     */
+    LEAVES,
+    /**
+     * The children before their parent
+     */
+    POSTORDER,
+    /**
+     * The parent before its children
+     */
+    PREORDER
+  }
+
+  private static final Object[] NO_CHILDREN = new Object[0];
+
+  /**
+   * The children in [0, childCount), the rest is null
+   */
+  private Object[] children;
+
+  private int childCount;
+
+  /**
+   * The index of this node in the child array of its parent, valid if the parent is not null
+   */
+  private int index;
 
   private E obj;
 
   private T parent;
 
+  /**
+   * The annotations that cover this node, if any
+   *
+   * @see TreeAnnotations
+   */
+  TreeAnnotations<E, T> annotations;
+
+  /**
+   * The position of this node in its annotations
+   */
+  int annotationIndex;
+
   /**
    * Creates a tree node that has no parent and no children.
    */
@@ -68,6 +130,8 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   public Tree(E obj) {
     this.obj = obj;
     parent = null;
+    children = NO_CHILDREN;
+    childCount = 0;
   }
 
   /**
@@ -77,18 +141,44 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    *
    * @param index the index in this node's child array where this node is to be inserted
    * @param child the child to be inserted under this node
-   * @throws ArrayIndexOutOfBoundsException if the index is out of range
-   * @throws NullPointerException           if the child is null
-   * @throws IllegalArgumentException       if the child is an ancestor of this node
+   * @throws IndexOutOfBoundsException if the index is out of range
+   * @throws NullPointerException      if the child is null
+   * @throws IllegalArgumentException  if the child is an ancestor of this node
    */
   public void add(int index, T child) {
     checkNotNull(child, "The child is null");
+    checkPositionIndex(index, childCount);
     checkArgument(!isNodeAncestor(child), "The child is an ancestor of this node");
+    insert(index, child);
+  }
+
+  /**
+   * Appends the child to the end of this node's child array without checking that it is not an
+   * ancestor of this node, which takes O(depth). The caller must guarantee that it is not, e.g.,
+   * because the child is new or the tree is checked once it is built.
+   *
+   * @param child the child node to be appended under this node
+   * @see TreeBuilder
+   */
+  void append(T child) {
+    insert(childCount, child);
+  }
+
+  /**
+   * Inserts the child at the specified position without checking the arguments.
+   */
+  private void insert(int index, T child) {
+    invalidateAnnotations();
     child.setParent(getThis());
-    if (children == null) {
-      children = Lists.newLinkedList();
+    if (childCount == children.length) {
+      // grow by one up to 4 children, then by half
+      int length = childCount < 4 ? childCount + 1 : childCount + (childCount >> 1);
+      children = Arrays.copyOf(children, length);
     }
-    children.add(index, child);
+    System.arraycopy(children, index, children, index + 1, childCount - index);
+    children[index] = child;
+    childCount++;
+    reindex(index);
   }
 
   /**
@@ -124,15 +214,16 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   }
 
   /**
-   * Gets the list of this node's children.
+   * Gets an unmodifiable view of this node's children. Use {@link #add(int, Tree)} and {@link
+   * #remove(int)} to change them.
    *
    * @return a list of this node's children, or empty list if it is a leaf
    */
   public List<T> children() {
-    if (children == null) {
+    if (childCount == 0) {
       return Collections.emptyList();
     } else {
-      return children;
+      return new ChildList();
     }
   }
 
@@ -143,10 +234,10 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return an iterator of this node's children
    */
   public Iterator<T> childrenIterator() {
-    if (children == null) {
+    if (childCount == 0) {
       return Collections.emptyIterator();
     } else {
-      return children.iterator();
+      return new ChildList().iterator();
     }
   }
 
@@ -157,11 +248,23 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return A deep copy of the tree structure and its user object.
    */
   public T deepCopy(Function<E, T> treeFactory) {
-    T dst = treeFactory.apply(obj);
-    for (T child : children()) {
-      dst.add(child.deepCopy(treeFactory));
+    T root = treeFactory.apply(obj);
+    // without recursion, and the copies are new, so they are appended without the ancestor check
+    Deque<Tree<E, T>> sources = new ArrayDeque<>();
+    Deque<Tree<E, T>> targets = new ArrayDeque<>();
+    sources.push(this);
+    targets.push(root);
+    while (!sources.isEmpty()) {
+      Tree<E, T> source = sources.pop();
+      Tree<E, T> target = targets.pop();
+      for (int i = 0; i < source.childCount; i++) {
+        T copy = treeFactory.apply(source.child(i).getObject());
+        target.append(copy);
+        sources.push(source.child(i));
+        targets.push(copy);
+      }
     }
-    return dst;
+    return root;
   }
 
   /**
@@ -198,16 +301,13 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return the child at the specified index
    */
   public T getChild(int index) {
-    checkElementIndex(index, getChildCount());
-    return children.get(index);
+    checkElementIndex(index, childCount);
+    return child(index);
   }
 
   /**
    * Returns the child in this node's child array that immediately follows the specified child,
    * which must be a child of this node. If the specified child is the last child, returns null.
-   * This method performs a linear search of this node's children for the specified child and is
-   * O(n) where n is the number of children; to traverse the entire array of children, use an
-   * enumeration instead.
    *
    * @return the child of this node that immediately follows the child
    * @throws NullPointerException     if the child is null
@@ -217,7 +317,7 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   public T getChildAfter(T child) {
     checkNotNull(child, "The child is null");
 
-    int index = indexOf(child); // linear search
+    int index = indexOf(child);
     checkArgument(index != -1, "The child is not a child of this node");
 
     if (index < getChildCount() - 1) {
@@ -230,8 +330,6 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   /**
    * Returns the child in this node's child array that immediately precedes the specified child,
    * which must be a child of this node. If the specified child is the first child, returns null.
-   * This method performs a linear search of this node's children for the specified child and is
-   * O(n) where n is the number of children.
    *
    * @return the child of this node that immediately precedes the child
    * @throws NullPointerException     if the child is null
@@ -240,7 +338,7 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   public T getChildBefore(T child) {
     checkNotNull(child, "The child is null");
 
-    int index = indexOf(child); // linear search
+    int index = indexOf(child);
     checkArgument(index != -1, "The child is not a child of this node");
 
     if (index > 0) {
@@ -256,23 +354,22 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return the number of children of this node
    */
   public int getChildCount() {
-    if (children == null) {
-      return 0;
-    } else {
-      return children.size();
-    }
+    return childCount;
   }
 
   /**
    * Returns the depth of the tree rooted at this node -- the longest distance from this node to a
-   * leaf. If this node has no children, returns 0. This operation is much more expensive than
-   * {@link #getLevel()} because it must effectively traverse the entire tree rooted at this
-   * node.
+   * leaf. If this node has no children, returns 0. Unless the tree is annotated, this operation is
+   * much more expensive than {@link #getLevel()} because it must effectively traverse the entire
+   * tree rooted at this node.
    *
    * @return the depth of the tree rooted at this node
    * @see #getLevel()
    */
   public int getDepth() {
+    if (annotations != null && annotations.covers(this)) {
+      return annotations.getDepth(getThis());
+    }
     T last = Iterators.getLast(breadthFirstIterator());
     return last.getLevel() - getLevel();
   }
@@ -377,6 +474,9 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return a List of the data in the tree's leaves.
    */
   public List<E> getLeafObjects() {
+    if (annotations != null && annotations.covers(this)) {
+      return new ArrayList<>(annotations.getLeafObjects(getThis()));
+    }
     final Iterable<T> iterable = this::leavesIterator;
     return StreamSupport.stream(iterable.spliterator(), false)
         .map(T::getObject)
@@ -389,6 +489,9 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @return the leaves under this node in the order by the natural left to right
    */
   public List<T> getLeaves() {
+    if (annotations != null && annotations.covers(this)) {
+      return new ArrayList<>(annotations.getLeaves(getThis()));
+    }
     return Lists.newArrayList(leavesIterator());
   }
 
@@ -400,6 +503,9 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @see #getDepth()
    */
   public int getLevel() {
+    if (annotations != null && annotations.covers(this) && annotations.root().isRoot()) {
+      return annotations.getLevel(getThis());
+    }
     T ancestor = getThis();
     int levels = 0;
 
@@ -412,9 +518,7 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
 
   /**
    * Returns the next sibling of this node in the parent's children array. Returns null if this
-   * node has no parent or is the parent's last child. This method performs a linear search that is
-   * O(n) where n is the number of children; to traverse the entire array, use the parent's child
-   * enumeration instead.
+   * node has no parent or is the parent's last child.
    *
    * @return the sibling of this node that immediately follows this node
    * @see #children()
@@ -425,7 +529,7 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
     if (myParent == null) {
       val = null;
     } else {
-      val = myParent.getChildAfter(getThis()); // linear search
+      val = myParent.getChildAfter(getThis());
     }
     checkArgument(val==null || isNodeSibling(val), "The child of parent is not a sibling");
     return val;
@@ -482,14 +586,37 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
     return ErasureUtils.uncheckedCast(this);
   }
 
+  private T child(int index) {
+    return ErasureUtils.uncheckedCast(children[index]);
+  }
+
+  /**
+   * Invalidates the annotations of the tree, if any, after a structural change.
+   */
+  private void invalidateAnnotations() {
+    if (annotations != null) {
+      annotations.invalidate();
+      annotations = null;
+    }
+  }
+
+  /**
+   * Updates the cached indices of the children from the given index on.
+   */
+  private void reindex(int from) {
+    for (int i = from; i < childCount; i++) {
+      Tree<E, T> child = child(i);
+      child.index = i;
+    }
+  }
+
   public boolean hasNextSiblingNode() {
     return getNextSibling() != null;
   }
 
   /**
    * Returns the index of the specified child in this node's child array. If the specified node is
-   * not a child of this node, returns -1. This method performs a linear search and is O(n) where
-   * n is the number of children.
+   * not a child of this node, returns -1.
    *
    * @param child the Tree to search for among this node's children
    * @return an int giving the index of the node in this node's child array, or <code>-1</code> if
@@ -501,7 +628,17 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
     if (!isNodeChild(child)) {
       return -1;
     }
-    return children.indexOf(child); // linear search
+    Tree<E, T> node = child;
+    if (node.index < childCount && children[node.index] == child) {
+      return node.index;
+    }
+    // the child was also added to another node after this one, and then given back this parent
+    for (int i = 0; i < childCount; i++) {
+      if (children[i] == child) {
+        return i;
+      }
+    }
+    return -1;
   }
 
   /**
@@ -597,6 +734,17 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
     return new LeavesIterator<>(getThis());
   }
 
+  /**
+   * Returns a parallel stream of the nodes of the subtree rooted at this node in the given order.
+   *
+   * @param order the order of the nodes
+   * @return a parallel stream of the nodes
+   * @see #spliterator(Order)
+   */
+  public Stream<T> parallelStream(Order order) {
+    return StreamSupport.stream(spliterator(order), true);
+  }
+
   /**
    * Creates and returns an iterator that traverses the subtree rooted at this node in postorder.
    * The first node returned by the {@link java.util.Iterator#next()} method is the leftmost leaf.
@@ -644,7 +792,12 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @throws IndexOutOfBoundsException if the index is out of bounds
    */
   public void remove(int index) {
-    T child = children.remove(index);
+    checkElementIndex(index, childCount);
+    invalidateAnnotations();
+    T child = child(index);
+    System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+    children[--childCount] = null;
+    reindex(index);
     child.setParent(null);
   }
 
@@ -658,14 +811,24 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
   public void remove(T child) {
     checkNotNull(child, "The child is null");
     checkArgument(isNodeChild(child), "The child is not a child of this node");
-    children.remove(child);
-    child.setParent(null);
+    int index = indexOf(child);
+    checkArgument(index != -1, "The child is not a child of this node");
+    remove(index);
   }
 
+  /**
+   * Reverses the order of the children of every node in the subtree rooted at this node.
+   */
   public void reversal() {
-    if (children != null) {
-      Collections.reverse(children);
-      children.forEach(T::reversal);
+    invalidateAnnotations();
+    for (int i = 0, j = childCount - 1; i < j; i++, j--) {
+      Object tmp = children[i];
+      children[i] = children[j];
+      children[j] = tmp;
+    }
+    reindex(0);
+    for (int i = 0; i < childCount; i++) {
+      child(i).reversal();
     }
   }
 
@@ -688,9 +851,57 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    * @param parent this node's new parent
    */
   public void setParent(T parent) {
+    invalidateAnnotations();
     this.parent = parent;
   }
 
+  /**
+   * Creates a spliterator over the nodes of the subtree rooted at this node in the given order.
+   * <p>
+   * The preorder, the postorder and the leaves are split at subtree boundaries, without first
+   * collecting the nodes into a list, so that large trees can be processed in parallel. If the tree
+   * is annotated (see {@link TreeAnnotations}), the sizes of the splits are known exactly. The
+   * breadth-first order interleaves the subtrees, so it is split into batches of nodes instead.
+   * <p>
+   * Modifying the tree invalidates any spliterators created before the modification.
+   *
+   * @param order the order of the nodes
+   * @return a spliterator over the nodes
+   */
+  public Spliterator<T> spliterator(Order order) {
+    checkNotNull(order, "The order is null");
+    TreeAnnotations<E, T> known = annotations != null && annotations.covers(this)
+        ? annotations
+        : null;
+    long size;
+    if (known == null) {
+      size = Long.MAX_VALUE;
+    } else if (order == Order.LEAVES) {
+      size = known.getRightEdge(getThis()) - known.getLeftEdge(getThis());
+    } else {
+      size = known.getSubtreeSize(getThis());
+    }
+    if (order == Order.BREADTH_FIRST) {
+      int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+      return known == null
+          ? Spliterators.spliteratorUnknownSize(breadthFirstIterator(), characteristics)
+          : Spliterators.spliterator(breadthFirstIterator(), size, characteristics);
+    }
+    return new TreeSpliterator<>(getThis(), order, known, size);
+  }
+
+  /**
+   * Returns a sequential stream of the nodes of the subtree rooted at this node in the given
+   * order.
+   *
+   * @param order the order of the nodes
+   * @return a sequential stream of the nodes
+   * @see #spliterator(Order)
+   */
+  public Stream<T> stream(Order order) {
+    return StreamSupport.stream(spliterator(order), false);
+  }
+
   /**
    * Returns the result of sending <code>toString()</code> to this node's user
    * object, or null if this node has no user object.
@@ -721,36 +932,103 @@ public class Tree<E, T extends Tree<E, T>> implements Iterable<T> {
    *   │ └ f
    *   └ d
    * </pre>
+   * <p>
+   * The tree is printed in a single preorder pass that keeps the prefix of the current line in a
+   * buffer: entering the children of a node appends two characters to the prefix and leaving
+   * them truncates it. It takes O(n) time besides the output, and
+   * {@link #print(Tree, Appendable)} streams the lines to a {@link java.io.Writer} or any other
+   * {@link Appendable} instead of building one string.
    */
   public static class PrettyPrint<E, T extends Tree<E, T>> implements Function<T, String> {
 
     @Override
     public String apply(T tree) {
       StringBuilder sb = new StringBuilder();
-      Iterator<T> itr = tree.preorderIterator();
-      while (itr.hasNext()) {
-        T tn = itr.next();
-        // add prefix
-        for (T p : tn.getPathFromRoot()) {
-          // if parent has sibling node
-          if (p == tn) {
-            ;
-          } else if (p.hasNextSiblingNode()) {
-            sb.append(StringUtils.BAR).append(' ');
-          } else {
-            sb.append("  ");
-          }
+      try {
+        print(tree, sb);
+      } catch (IOException e) {
+        // a StringBuilder never throws
+        throw new UncheckedIOException(e);
+      }
+      return sb.toString();
+    }
+
+    /**
+     * Prints the subtree rooted at the given node to the given output, one node per line.
+     *
+     * @param tree the root of the subtree
+     * @param out  the output
+     * @throws IOException if an I/O error occurs
+     */
+    public void print(T tree, Appendable out) throws IOException {
+      // the prefix of the ancestors above the subtree
+      StringBuilder prefix = new StringBuilder();
+      for (T ancestor : tree.getPathFromRoot()) {
+        if (ancestor != tree) {
+          appendSegment(prefix, ancestor);
         }
-        // if root has sibling node
-        if (tn.hasNextSiblingNode()) {
-          sb.append(StringUtils.MIDDLE);
+      }
+      printNode(tree, prefix, out);
+      if (tree.isLeaf()) {
+        return;
+      }
+      // the nodes whose children are being printed, and the index of their next child
+      List<T> path = new ArrayList<>();
+      int[] nextChildren = new int[16];
+      path.add(tree);
+      appendSegment(prefix, tree);
+      while (!path.isEmpty()) {
+        int top = path.size() - 1;
+        T node = path.get(top);
+        if (nextChildren[top] < node.getChildCount()) {
+          T child = node.getChild(nextChildren[top]++);
+          printNode(child, prefix, out);
+          if (!child.isLeaf()) {
+            if (path.size() == nextChildren.length) {
+              nextChildren = Arrays.copyOf(nextChildren, 2 * nextChildren.length);
+            }
+            nextChildren[path.size()] = 0;
+            path.add(child);
+            appendSegment(prefix, child);
+          }
         } else {
-          sb.append(StringUtils.END);
+          path.remove(top);
+          prefix.setLength(prefix.length() - 2);
         }
-        sb.append(' ').append(tn.getObject()).append('\n');
+      }
+    }
 
+    private void appendSegment(StringBuilder prefix, T node) {
+      // if the node has a sibling below it
+      if (node.hasNextSiblingNode()) {
+        prefix.append(StringUtils.BAR).append(' ');
+      } else {
+        prefix.append("  ");
       }
-      return sb.toString();
+    }
+
+    private void printNode(T node, CharSequence prefix, Appendable out) throws IOException {
+      out.append(prefix)
+          .append(node.hasNextSiblingNode() ? StringUtils.MIDDLE : StringUtils.END)
+          .append(' ')
+          .append(String.valueOf(node.getObject()))
+          .append('\n');
+    }
+  }
+
+  /**
+   * An unmodifiable, random access view of the children of this node.
+   */
+  private class ChildList extends AbstractList<T> implements RandomAccess {
+
+    @Override
+    public T get(int index) {
+      return getChild(index);
+    }
+
+    @Override
+    public int size() {
+      return childCount;
     }
   }
 
@@ -0,0 +1,245 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The leaf span, subtree size, depth and level of every node of a tree, computed in one traversal
+ * so that they can be read in O(1).
+ * <p>
+ * The leaf span of a node is the range [leftEdge, rightEdge) of the positions of its leaves among
+ * the leaves of the annotated tree, as returned by {@link TreeUtils#leftEdge(Tree, Tree)} and
+ * {@link TreeUtils#rightEdge(Tree, Tree)}. The depth is the longest distance from a node to a
+ * leaf, as returned by {@link Tree#getDepth()}, and the level is the distance from the root of
+ * the annotated tree to a node.
+ * <p>
+ * Annotations are opt-in: they are computed only by {@link #of(Tree)}. While they are valid,
+ * {@link Tree#getDepth()}, {@link Tree#getLevel()}, {@link Tree#getLeaves()},
+ * {@link Tree#getLeafObjects()}, {@link TreeUtils#leftEdge(Tree, Tree)} and
+ * {@link TreeUtils#rightEdge(Tree, Tree)} read them instead of traversing the tree. Adding,
+ * removing or reversing the children of an annotated node, or setting its parent, invalidates
+ * the annotations of the whole tree. Annotating a tree again, or a subtree of it, also
+ * invalidates the annotations it replaces.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ */
+public final class TreeAnnotations<E, T extends Tree<E, T>> {
+
+  private final T root;
+  /**
+   * The leaves from left to right
+   */
+  private final List<T> leaves;
+  private final int[] leftEdges;
+  private final int[] rightEdges;
+  private final int[] subtreeSizes;
+  private final int[] depths;
+  private final int[] levels;
+  private boolean valid;
+
+  private TreeAnnotations(T root, int size) {
+    this.root = root;
+    this.leaves = new ArrayList<>();
+    this.leftEdges = new int[size];
+    this.rightEdges = new int[size];
+    this.subtreeSizes = new int[size];
+    this.depths = new int[size];
+    this.levels = new int[size];
+    this.valid = true;
+  }
+
+  /**
+   * Annotates the subtree rooted at the given node.
+   *
+   * @param root the root of the subtree
+   * @return the annotations of the subtree
+   * @throws NullPointerException if the root is null
+   */
+  public static <E, T extends Tree<E, T>> TreeAnnotations<E, T> of(T root) {
+    checkNotNull(root, "The root is null");
+    List<T> nodes = root.preorderList();
+    TreeAnnotations<E, T> annotations = new TreeAnnotations<>(root, nodes.size());
+    int[] parents = new int[nodes.size()];
+    for (int v = 0; v < nodes.size(); v++) {
+      Tree<E, T> node = nodes.get(v);
+      if (node.annotations != null) {
+        node.annotations.valid = false;
+      }
+      node.annotations = annotations;
+      node.annotationIndex = v;
+      if (v > 0) {
+        Tree<E, T> parent = node.getParent();
+        parents[v] = parent.annotationIndex;
+        annotations.levels[v] = annotations.levels[parents[v]] + 1;
+      }
+      annotations.leftEdges[v] = annotations.leaves.size();
+      if (node.isLeaf()) {
+        annotations.leaves.add(nodes.get(v));
+      }
+    }
+    for (int v = nodes.size() - 1; v >= 0; v--) {
+      annotations.subtreeSizes[v]++;
+      // the leaves of the subtree of v are the leaves seen from v to the end of its subtree
+      int end = v + annotations.subtreeSizes[v];
+      annotations.rightEdges[v] = end < nodes.size()
+          ? annotations.leftEdges[end]
+          : annotations.leaves.size();
+      if (v > 0) {
+        int parent = parents[v];
+        annotations.subtreeSizes[parent] += annotations.subtreeSizes[v];
+        annotations.depths[parent] = Math.max(annotations.depths[parent],
+            annotations.depths[v] + 1);
+      }
+    }
+    return annotations;
+  }
+
+  /**
+   * Returns the depth of the subtree rooted at the given node -- the longest distance from the node
+   * to a leaf.
+   *
+   * @param t an annotated node
+   * @return the depth of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public int getDepth(T t) {
+    return depths[index(t)];
+  }
+
+  /**
+   * Returns the leaves of the subtree rooted at the given node from left to right, as an
+   * unmodifiable view.
+   *
+   * @param t an annotated node
+   * @return the leaves of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public List<T> getLeaves(T t) {
+    int v = index(t);
+    return Collections.unmodifiableList(leaves.subList(leftEdges[v], rightEdges[v]));
+  }
+
+  /**
+   * Returns the user objects of the leaves of the subtree rooted at the given node from left to
+   * right, as an unmodifiable view.
+   *
+   * @param t an annotated node
+   * @return the user objects of the leaves of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public List<E> getLeafObjects(T t) {
+    return Lists.transform(getLeaves(t), T::getObject);
+  }
+
+  /**
+   * Returns the number of leaves that precede the given node in the annotated tree.
+   *
+   * @param t an annotated node
+   * @return the left edge of the leaf span of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public int getLeftEdge(T t) {
+    return leftEdges[index(t)];
+  }
+
+  /**
+   * Returns the distance from the root of the annotated tree to the given node.
+   *
+   * @param t an annotated node
+   * @return the level of the node in the annotated tree
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public int getLevel(T t) {
+    return levels[index(t)];
+  }
+
+  /**
+   * Returns the number of leaves that precede the given node or are in its subtree.
+   *
+   * @param t an annotated node
+   * @return the right edge of the leaf span of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public int getRightEdge(T t) {
+    return rightEdges[index(t)];
+  }
+
+  /**
+   * Returns the number of nodes in the subtree rooted at the given node, including the node.
+   *
+   * @param t an annotated node
+   * @return the size of the subtree of the node
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if the node is not annotated by this object
+   */
+  public int getSubtreeSize(T t) {
+    return subtreeSizes[index(t)];
+  }
+
+  /**
+   * Returns true if the second node is in the subtree of the first one. A node is in its own
+   * subtree.
+   *
+   * @param ancestor an annotated node
+   * @param t        an annotated node
+   * @return true if the node is in the subtree of the ancestor
+   * @throws IllegalStateException    if the annotations are no longer valid
+   * @throws IllegalArgumentException if a node is not annotated by this object
+   */
+  public boolean isAncestor(T ancestor, T t) {
+    int u = index(ancestor);
+    int v = index(t);
+    return u <= v && v < u + subtreeSizes[u];
+  }
+
+  /**
+   * Returns true if the tree has not been modified since it was annotated.
+   *
+   * @return true if the annotations are valid
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * Returns the root of the annotated tree.
+   *
+   * @return the root of the annotated tree
+   */
+  public T root() {
+    return root;
+  }
+
+  /**
+   * Returns true if the given node is annotated by this object, and the annotations are valid.
+   */
+  boolean covers(Tree<E, T> t) {
+    return valid && t.annotations == this;
+  }
+
+  void invalidate() {
+    valid = false;
+  }
+
+  private int index(Tree<E, T> t) {
+    checkNotNull(t, "The node is null");
+    checkState(valid, "The tree has been modified since it was annotated");
+    checkArgument(t.annotations == this, "The node is not annotated: %s", t);
+    return t.annotationIndex;
+  }
+}
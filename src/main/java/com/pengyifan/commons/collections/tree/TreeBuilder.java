@@ -0,0 +1,127 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Builds a {@link Tree} from a description of all its nodes at once.
+ * <p>
+ * {@link Tree#add(Tree)} checks that the child is not an ancestor of the node, which walks to the
+ * root, so building a tree node by node takes O(n * depth). A builder creates the nodes with a
+ * factory, links them without the check, and validates the whole description once, so that
+ * building takes O(n) even for very deep trees.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ */
+public final class TreeBuilder<E, T extends Tree<E, T>> {
+
+  /**
+   * The parent of the root
+   */
+  public static final int NONE = -1;
+
+  private final Function<E, T> treeFactory;
+
+  /**
+   * Creates a builder.
+   *
+   * @param treeFactory creates a new node from a user object
+   */
+  public TreeBuilder(Function<E, T> treeFactory) {
+    this.treeFactory = checkNotNull(treeFactory, "The tree factory is null");
+  }
+
+  /**
+   * Builds a tree from the parent of every node. The node v has the user object
+   * <code>objects.get(v)</code> and the parent <code>parents[v]</code>, or {@link #NONE} if it is
+   * the root. The children of a node are ordered by their indices.
+   *
+   * @param objects the user objects of the nodes
+   * @param parents the parents of the nodes
+   * @return the root of the new tree
+   * @throws IllegalArgumentException if the parents do not describe one tree
+   */
+  public T fromParents(List<E> objects, int[] parents) {
+    int n = parents.length;
+    checkArgument(objects.size() == n, "%s objects for %s nodes", objects.size(), n);
+    checkArgument(n > 0, "No nodes");
+    List<T> nodes = new ArrayList<>(n);
+    for (E obj : objects) {
+      nodes.add(treeFactory.apply(obj));
+    }
+    int root = NONE;
+    for (int v = 0; v < n; v++) {
+      int p = parents[v];
+      if (p == NONE) {
+        checkArgument(root == NONE, "Two roots: %s and %s", root, v);
+        root = v;
+      } else {
+        checkArgument(p >= 0 && p < n, "The parent of node %s is out of range: %s", v, p);
+        Tree<E, T> parent = nodes.get(p);
+        parent.append(nodes.get(v));
+      }
+    }
+    checkArgument(root != NONE, "No root");
+    // every node has one parent, so the nodes not reached from the root are in cycles
+    T tree = nodes.get(root);
+    int size = 0;
+    List<T> stack = new ArrayList<>();
+    stack.add(tree);
+    while (!stack.isEmpty()) {
+      T node = stack.remove(stack.size() - 1);
+      size++;
+      for (int i = 0; i < node.getChildCount(); i++) {
+        stack.add(node.getChild(i));
+      }
+    }
+    checkArgument(size == n, "The parents contain a cycle");
+    return tree;
+  }
+
+  /**
+   * Builds a tree from the user objects of the nodes in preorder and the number of children of
+   * every node.
+   *
+   * @param objects     the user objects of the nodes in preorder
+   * @param childCounts the number of children of the nodes in preorder
+   * @return the root of the new tree
+   * @throws IllegalArgumentException if the child counts do not describe one tree
+   */
+  public T fromPreorder(List<E> objects, int[] childCounts) {
+    int n = childCounts.length;
+    checkArgument(objects.size() == n, "%s objects for %s nodes", objects.size(), n);
+    checkArgument(n > 0, "No nodes");
+    // the nodes that still miss children, and the number of children they miss
+    List<T> path = new ArrayList<>();
+    int[] missing = new int[n];
+    T root = null;
+    for (int v = 0; v < n; v++) {
+      checkArgument(childCounts[v] >= 0, "The child count of node %s is negative: %s", v,
+          childCounts[v]);
+      T node = treeFactory.apply(objects.get(v));
+      if (v == 0) {
+        root = node;
+      } else {
+        checkArgument(!path.isEmpty(), "Node %s is after the end of the tree", v);
+        int top = path.size() - 1;
+        Tree<E, T> parent = path.get(top);
+        parent.append(node);
+        if (--missing[top] == 0) {
+          path.remove(top);
+        }
+      }
+      if (childCounts[v] > 0) {
+        missing[path.size()] = childCounts[v];
+        path.add(node);
+      }
+    }
+    checkArgument(path.isEmpty(), "%s nodes miss children", path.size());
+    return root;
+  }
+}
@@ -0,0 +1,353 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Computes the edit distance between trees: the minimum cost of the deletions, insertions and
+ * renamings of nodes that turn the first tree into the second, with the costs of an
+ * {@link EditCost}.
+ * <p>
+ * The distance is computed by the algorithm of Zhang and Shasha (1989) in O(n * m) memory and
+ * O(n * m * min(depth, leaves) ^ 2) time. The buffers of the dynamic program are kept per thread
+ * and reused by the following calls to {@link #distance(Tree, Tree, double)}, so they only grow
+ * to the largest pair of trees seen, and stay alive as long as the thread and this object do.
+ * {@link #allPairs(List, double)} uses buffers of its own, which are released when it returns.
+ * The buffers are indexed by int, so the product of the sizes of the two trees (plus one each)
+ * may not exceed {@link Integer#MAX_VALUE}, about 46,000 nodes per tree.
+ * <p>
+ * In the threshold mode, the distance is only computed if it may not exceed the threshold. First,
+ * the number of user objects that the trees do not have in common, times
+ * {@link EditCost#minCost()}, is a lower bound of the distance, computed in linear time. Second,
+ * the distance between two forests whose sizes differ by d is at least d times the minimum cost,
+ * so the dynamic program only fills the band of cells whose forests differ by at most
+ * threshold / minCost nodes, and treats the other cells as infinite. With a threshold k and unit
+ * costs, a pair of keyroots then costs O(k * min(n, m)) instead of O(n * m).
+ * {@link #allPairs(List, double)} computes the distances between all the pairs of a list of trees
+ * in parallel, for clustering.
+ * <p>
+ * This class is thread-safe if the cost model is.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ */
+public class TreeEditDistance<E, T extends Tree<E, T>> {
+
+  private final EditCost<? super E> cost;
+  private final ThreadLocal<Workspace> workspaces;
+
+  /**
+   * Creates an edit distance with unit costs.
+   */
+  public TreeEditDistance() {
+    this(EditCost.unit());
+  }
+
+  /**
+   * Creates an edit distance with the given costs.
+   *
+   * @param cost the costs of the edit operations
+   */
+  public TreeEditDistance(EditCost<? super E> cost) {
+    this.cost = checkNotNull(cost, "The cost model is null");
+    this.workspaces = ThreadLocal.withInitial(Workspace::new);
+  }
+
+  /**
+   * Returns the distances between all the pairs of trees, computed in parallel. If the cost
+   * model is symmetric, only the upper triangle is computed.
+   *
+   * @param trees the trees
+   * @return the distance matrix
+   */
+  public double[][] allPairs(List<T> trees) {
+    return allPairs(trees, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns the distances between all the pairs of trees, computed in parallel, where the
+   * distances that exceed the threshold are {@link Double#POSITIVE_INFINITY}.
+   *
+   * @param trees     the trees
+   * @param threshold the maximum distance
+   * @return the distance matrix
+   */
+  public double[][] allPairs(List<T> trees, double threshold) {
+    List<Postorder<E>> prepared = trees.parallelStream()
+        .map(Postorder<E>::new)
+        .collect(Collectors.toList());
+    int n = prepared.size();
+    double[][] distances = new double[n][n];
+    boolean symmetric = cost.isSymmetric();
+    // the buffers are shared by the tasks of this call only, and are released when it returns
+    Queue<Workspace> pool = new ConcurrentLinkedQueue<>();
+    // the rows of the upper triangle are paired from both ends to balance the work
+    IntStream.range(0, (n + 1) / 2).parallel().forEach(k -> {
+      Workspace w = pool.poll();
+      if (w == null) {
+        w = new Workspace();
+      }
+      for (int i : new int[] { k, n - 1 - k }) {
+        for (int j = symmetric ? i : 0; j < n; j++) {
+          double d = distance(prepared.get(i), prepared.get(j), threshold, w);
+          distances[i][j] = d;
+          if (symmetric) {
+            distances[j][i] = d;
+          }
+        }
+        if (i == n - 1 - i) {
+          break;
+        }
+      }
+      pool.offer(w);
+    });
+    return distances;
+  }
+
+  /**
+   * Returns the edit distance between two trees.
+   *
+   * @param t1 the first tree
+   * @param t2 the second tree
+   * @return the edit distance
+   */
+  public double distance(T t1, T t2) {
+    return distance(t1, t2, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns the edit distance between two trees if it does not exceed the threshold, and
+   * {@link Double#POSITIVE_INFINITY} otherwise.
+   *
+   * @param t1        the first tree
+   * @param t2        the second tree
+   * @param threshold the maximum distance
+   * @return the edit distance, or {@link Double#POSITIVE_INFINITY} if it exceeds the threshold
+   */
+  public double distance(T t1, T t2, double threshold) {
+    checkNotNull(t1, "The first tree is null");
+    checkNotNull(t2, "The second tree is null");
+    return distance(new Postorder<>(t1), new Postorder<>(t2), threshold, workspaces.get());
+  }
+
+  /**
+   * Returns true if the edit distance between two trees does not exceed the threshold.
+   *
+   * @param t1        the first tree
+   * @param t2        the second tree
+   * @param threshold the maximum distance
+   * @return true if the edit distance does not exceed the threshold
+   */
+  public boolean isWithin(T t1, T t2, double threshold) {
+    return distance(t1, t2, threshold) <= threshold;
+  }
+
+  private double distance(Postorder<E> a, Postorder<E> b, double threshold, Workspace w) {
+    if (threshold < 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double minCost = cost.minCost();
+    if (minCost > 0 && minCost * a.difference(b) > threshold) {
+      return Double.POSITIVE_INFINITY;
+    }
+    int n1 = a.size();
+    int n2 = b.size();
+    checkArgument((long) (n1 + 1) * (n2 + 1) <= Integer.MAX_VALUE,
+        "The trees are too large: %s and %s nodes", n1, n2);
+    // the largest difference between the sizes of two forests that may be within the threshold
+    int band = n1 + n2;
+    if (minCost > 0 && threshold / minCost < band) {
+      band = (int) (threshold / minCost);
+    }
+    w.ensureCapacity(n1, n2);
+    for (int i = 0; i < n1; i++) {
+      w.deletes[i] = cost.delete(a.objects.get(i));
+    }
+    for (int j = 0; j < n2; j++) {
+      w.inserts[j] = cost.insert(b.objects.get(j));
+    }
+    if (band < n1 + n2) {
+      // the pairs of subtrees outside the band are never computed
+      Arrays.fill(w.treeDistances, 0, n1 * n2, Double.POSITIVE_INFINITY);
+    }
+    for (int i : a.keyroots) {
+      for (int j : b.keyroots) {
+        treeDistance(w, a, b, i, j, band);
+      }
+    }
+    double d = w.treeDistances[n1 * n2 - 1];
+    return d <= threshold ? d : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Computes the distances between the subtrees of the keyroots i and j, and between the
+   * subtrees in their leftmost paths, by the forest distance of Zhang and Shasha. Only the cells
+   * whose forests differ by at most band nodes are computed; the others exceed the threshold and
+   * are infinite.
+   */
+  private void treeDistance(Workspace w, Postorder<E> a, Postorder<E> b, int i, int j,
+      int band) {
+    int n2 = b.size();
+    int li = a.leftmost[i];
+    int lj = b.leftmost[j];
+    // row r is the forest of the nodes li .. li + r - 1, column c that of lj .. lj + c - 1
+    int rows = i - li + 1;
+    int cols = j - lj + 2;
+    double[] fd = w.forestDistances;
+    double[] td = w.treeDistances;
+    fd[0] = 0;
+    for (int i1 = li; i1 <= i; i1++) {
+      fd[(i1 - li + 1) * cols] = fd[(i1 - li) * cols] + w.deletes[i1];
+    }
+    for (int j1 = lj; j1 <= j; j1++) {
+      fd[j1 - lj + 1] = fd[j1 - lj] + w.inserts[j1];
+    }
+    for (int r = 1; r <= rows; r++) {
+      int i1 = li + r - 1;
+      int from = Math.max(1, r - band);
+      int to = (int) Math.min(cols - 1, (long) r + band);
+      // the neighbours of the band read by this row and the next one
+      if (from > 1) {
+        fd[r * cols + from - 1] = Double.POSITIVE_INFINITY;
+      }
+      if (to < cols - 1) {
+        fd[r * cols + to + 1] = Double.POSITIVE_INFINITY;
+      }
+      for (int c = from; c <= to; c++) {
+        int j1 = lj + c - 1;
+        double d = Math.min(fd[(r - 1) * cols + c] + w.deletes[i1],
+            fd[r * cols + c - 1] + w.inserts[j1]);
+        if (a.leftmost[i1] == li && b.leftmost[j1] == lj) {
+          // both forests are trees
+          d = Math.min(d, fd[(r - 1) * cols + c - 1]
+              + cost.rename(a.objects.get(i1), b.objects.get(j1)));
+          td[i1 * n2 + j1] = d;
+        } else {
+          int r1 = a.leftmost[i1] - li;
+          int c1 = b.leftmost[j1] - lj;
+          if (Math.abs(r1 - c1) <= band) {
+            d = Math.min(d, fd[r1 * cols + c1] + td[i1 * n2 + j1]);
+          }
+        }
+        fd[r * cols + c] = d;
+      }
+    }
+  }
+
+  /**
+   * The buffers of the dynamic program of one thread.
+   */
+  private static final class Workspace {
+
+    private double[] deletes = new double[0];
+    private double[] inserts = new double[0];
+    private double[] treeDistances = new double[0];
+    private double[] forestDistances = new double[0];
+
+    void ensureCapacity(int n1, int n2) {
+      if (deletes.length < n1) {
+        deletes = new double[n1];
+      }
+      if (inserts.length < n2) {
+        inserts = new double[n2];
+      }
+      if (treeDistances.length < n1 * n2) {
+        treeDistances = new double[n1 * n2];
+      }
+      if (forestDistances.length < (n1 + 1) * (n2 + 1)) {
+        forestDistances = new double[(n1 + 1) * (n2 + 1)];
+      }
+    }
+  }
+
+  /**
+   * The nodes of a tree in postorder, with their leftmost leaves and the keyroots.
+   */
+  private static final class Postorder<E> {
+
+    private final List<E> objects;
+    /**
+     * The postorder position of the leftmost leaf of every node
+     */
+    private final int[] leftmost;
+    /**
+     * The nodes that are not on the leftmost path of their parent, and the root, in postorder
+     */
+    private final int[] keyroots;
+    private final Map<E, Integer> counts;
+
+    <T extends Tree<E, T>> Postorder(T root) {
+      // reversed (root, right to left) preorder is postorder
+      List<T> nodes = new ArrayList<>();
+      List<T> stack = new ArrayList<>();
+      stack.add(root);
+      while (!stack.isEmpty()) {
+        T node = stack.remove(stack.size() - 1);
+        nodes.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+          stack.add(node.getChild(i));
+        }
+      }
+      int n = nodes.size();
+      objects = new ArrayList<>(n);
+      leftmost = new int[n];
+      counts = new HashMap<>();
+      Map<T, Integer> positions = new IdentityHashMap<>();
+      for (int v = 0; v < n; v++) {
+        T node = nodes.get(n - 1 - v);
+        positions.put(node, v);
+        objects.add(node.getObject());
+        leftmost[v] = node.isLeaf() ? v : leftmost[positions.get(node.getChild(0))];
+        counts.merge(node.getObject(), 1, Integer::sum);
+      }
+      // the keyroot of a leftmost leaf is the highest node above it
+      boolean[] seen = new boolean[n];
+      int[] k = new int[n];
+      int size = 0;
+      for (int v = n - 1; v >= 0; v--) {
+        if (!seen[leftmost[v]]) {
+          seen[leftmost[v]] = true;
+          k[size++] = v;
+        }
+      }
+      keyroots = new int[size];
+      for (int i = 0; i < size; i++) {
+        keyroots[i] = k[size - 1 - i];
+      }
+    }
+
+    int size() {
+      return objects.size();
+    }
+
+    /**
+     * Returns the number of the user objects of the larger tree that are not matched by equal
+     * user objects of the other tree. Every edit operation that changes a user object or the
+     * size decreases it by at most one.
+     */
+    int difference(Postorder<E> other) {
+      Map<E, Integer> small = counts.size() <= other.counts.size() ? counts : other.counts;
+      Map<E, Integer> large = small == counts ? other.counts : counts;
+      int common = 0;
+      for (Map.Entry<E, Integer> e : small.entrySet()) {
+        Integer count = large.get(e.getKey());
+        if (count != null) {
+          common += Math.min(count, e.getValue());
+        }
+      }
+      return Math.max(size(), other.size()) - common;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A pool of {@link InternedTree}s in which structurally identical subtrees are stored once
+ * (hash-consing).
+ * <p>
+ * A node is interned after its children, so that looking it up only compares its user object
+ * and the references of its children, and a whole {@link Tree} is interned in one postorder pass.
+ * A treebank interned in one pool shares all its repeated subtrees, such as <code>(DT the)</code>,
+ * and can be deduplicated by comparing roots with ==.
+ * <p>
+ * A strong interner keeps every node it has seen; a weak interner lets the nodes that are no
+ * longer referenced be garbage collected. Both are thread-safe.
+ *
+ * @param <E> the type of the user objects
+ * @author Yifan Peng
+ * @see InternedTree
+ */
+public final class TreeInterner<E> {
+
+  private final Interner<InternedTree<E>> interner;
+
+  private TreeInterner(Interner<InternedTree<E>> interner) {
+    this.interner = interner;
+  }
+
+  /**
+   * Returns a new interner that keeps every node it has interned.
+   *
+   * @return a new interner
+   */
+  public static <E> TreeInterner<E> newStrongInterner() {
+    return new TreeInterner<>(Interners.newStrongInterner());
+  }
+
+  /**
+   * Returns a new interner that only keeps weak references to the nodes, so that the nodes that
+   * are no longer used elsewhere can be evicted.
+   *
+   * @return a new interner
+   */
+  public static <E> TreeInterner<E> newWeakInterner() {
+    return new TreeInterner<>(Interners.newWeakInterner());
+  }
+
+  /**
+   * Returns the interned node with the given user object and children, which must have been
+   * interned by this interner.
+   *
+   * @param obj      the user object
+   * @param children the children, from left to right
+   * @return the interned node
+   * @throws NullPointerException if a child is null
+   */
+  @SafeVarargs
+  public final InternedTree<E> intern(E obj, InternedTree<E>... children) {
+    Object[] array = new Object[children.length];
+    for (int i = 0; i < children.length; i++) {
+      array[i] = checkNotNull(children[i], "The child is null");
+    }
+    return interner.intern(new InternedTree<>(obj, array));
+  }
+
+  /**
+   * Interns the subtree rooted at the given node.
+   *
+   * @param root the root of the subtree
+   * @return the interned subtree
+   * @throws NullPointerException if the root is null
+   */
+  public <T extends Tree<E, T>> InternedTree<E> intern(T root) {
+    return ImmutableTrees.fromTree(root,
+        (obj, children) -> interner.intern(new InternedTree<>(obj, children)));
+  }
+}
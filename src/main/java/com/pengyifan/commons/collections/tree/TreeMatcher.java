@@ -0,0 +1,379 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Finds the nodes of a tree that match a {@link TreePattern}.
+ * <p>
+ * The matcher indexes the tree once, in one preorder pass: the nodes of every label in preorder,
+ * and the leaf spans and subtree sizes of the nodes. The subtree of a node is a range of
+ * preorder positions and the left edges of the spans increase in preorder, so the candidates of a
+ * relation are found by binary search in the nodes of the labels it requires. Whether a node
+ * matches a part of the pattern is computed at most once.
+ * <p>
+ * Creating a matcher only reads the tree; it does not create or replace its
+ * {@link TreeAnnotations}, so several matchers can be created on the same tree in different
+ * threads. The tree must not be modified while it is matched. A matcher is not thread-safe.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ * @see TreePattern
+ */
+public final class TreeMatcher<E, T extends Tree<E, T>> {
+
+  private static final int NONE = -1;
+  private static final byte UNKNOWN = 0;
+  private static final byte MATCH = 1;
+  private static final byte NO_MATCH = 2;
+
+  private final TreePattern pattern;
+  /**
+   * The nodes in preorder
+   */
+  private final List<T> nodes;
+  private final String[] labels;
+  private final int[] parents;
+  private final int[] subtreeSizes;
+  private final int[] leftEdges;
+  private final int[] rightEdges;
+  /**
+   * The nodes of every label in preorder
+   */
+  private final Map<String, int[]> labelIndex;
+  /**
+   * memo[p][v] tells whether node v matches the part p of the pattern
+   */
+  private final byte[][] memo;
+  /**
+   * The candidates of the root of the pattern, or null if every node is a candidate
+   */
+  private final int[] candidates;
+  private int next;
+  private int current;
+  private Map<String, T> bindings;
+
+  TreeMatcher(TreePattern pattern, T root, Function<? super E, String> labelFunction) {
+    this.pattern = pattern;
+    nodes = root.preorderList();
+    int n = nodes.size();
+    labels = new String[n];
+    parents = new int[n];
+    subtreeSizes = new int[n];
+    leftEdges = new int[n];
+    rightEdges = new int[n];
+    Map<T, Integer> ids = new IdentityHashMap<>(n);
+    Map<String, int[]> counts = new HashMap<>();
+    int leafCount = 0;
+    for (int v = 0; v < n; v++) {
+      T node = nodes.get(v);
+      ids.put(node, v);
+      labels[v] = labelFunction.apply(node.getObject());
+      parents[v] = v == 0 ? NONE : ids.get(node.getParent());
+      // the leaves before v in preorder
+      leftEdges[v] = leafCount;
+      if (node.isLeaf()) {
+        leafCount++;
+      }
+      counts.computeIfAbsent(labels[v], k -> new int[1])[0]++;
+    }
+    for (int v = n - 1; v >= 0; v--) {
+      subtreeSizes[v]++;
+      int end = v + subtreeSizes[v];
+      rightEdges[v] = end < n ? leftEdges[end] : leafCount;
+      if (v > 0) {
+        subtreeSizes[parents[v]] += subtreeSizes[v];
+      }
+    }
+    labelIndex = new HashMap<>();
+    for (Map.Entry<String, int[]> e : counts.entrySet()) {
+      labelIndex.put(e.getKey(), new int[e.getValue()[0]]);
+      e.getValue()[0] = 0;
+    }
+    for (int v = 0; v < n; v++) {
+      int[] count = counts.get(labels[v]);
+      labelIndex.get(labels[v])[count[0]++] = v;
+    }
+    memo = new byte[pattern.nodes.size()][];
+    candidates = candidates(pattern.root);
+    reset();
+  }
+
+  /**
+   * Finds the next node, in preorder, that matches the pattern.
+   *
+   * @return true if a node matches
+   */
+  public boolean find() {
+    int end = candidates == null ? nodes.size() : candidates.length;
+    while (next < end) {
+      int v = candidates == null ? next : candidates[next];
+      next++;
+      if (matches(pattern.root, v)) {
+        current = v;
+        bindings = new HashMap<>();
+        bind(pattern.root, v);
+        return true;
+      }
+    }
+    current = NONE;
+    bindings = null;
+    return false;
+  }
+
+  /**
+   * Returns all the nodes that match the pattern, in preorder. Resets this matcher.
+   *
+   * @return the matched nodes
+   */
+  public List<T> findAll() {
+    reset();
+    List<T> matches = new ArrayList<>();
+    while (find()) {
+      matches.add(getMatch());
+    }
+    reset();
+    return matches;
+  }
+
+  /**
+   * Returns the node matched by the last call of {@link #find()}.
+   *
+   * @return the matched node
+   * @throws IllegalStateException if there is no match
+   */
+  public T getMatch() {
+    checkState(current != NONE, "No match");
+    return nodes.get(current);
+  }
+
+  /**
+   * Returns the node that matched the part of the pattern with the given name in the last match.
+   *
+   * @param name the name of a node in the pattern
+   * @return the node with the name, or null if no node was bound to the name
+   * @throws IllegalStateException if there is no match
+   */
+  public T getNode(String name) {
+    checkState(current != NONE, "No match");
+    return bindings.get(name);
+  }
+
+  /**
+   * Returns true if the pattern matches the root of the tree.
+   *
+   * @return true if the pattern matches the root
+   */
+  public boolean matches() {
+    return matches(pattern.root, 0);
+  }
+
+  /**
+   * Returns the pattern of this matcher.
+   *
+   * @return the pattern of this matcher
+   */
+  public TreePattern pattern() {
+    return pattern;
+  }
+
+  /**
+   * Resets this matcher, so that {@link #find()} starts from the root again.
+   */
+  public void reset() {
+    next = 0;
+    current = NONE;
+    bindings = null;
+  }
+
+  /**
+   * Returns the nodes that have one of the labels of the given part of the pattern, in preorder,
+   * or null if the part has no labels.
+   */
+  private int[] candidates(TreePattern.Node p) {
+    if (p.labels == null) {
+      return null;
+    }
+    int[] result = new int[0];
+    for (String label : p.labels) {
+      int[] list = labelIndex.get(label);
+      if (list != null) {
+        int[] merged = Arrays.copyOf(result, result.length + list.length);
+        System.arraycopy(list, 0, merged, result.length, list.length);
+        result = merged;
+      }
+    }
+    if (p.labels.size() > 1) {
+      Arrays.sort(result);
+    }
+    return result;
+  }
+
+  private boolean matches(TreePattern.Node p, int v) {
+    byte[] m = memo[p.id];
+    if (m == null) {
+      m = new byte[nodes.size()];
+      memo[p.id] = m;
+    }
+    if (m[v] == UNKNOWN) {
+      boolean result = p.matchesLabel(labels[v]);
+      for (int i = 0; result && i < p.edges.size(); i++) {
+        TreePattern.Edge edge = p.edges.get(i);
+        result = (witness(edge, v) != NONE) != edge.negated;
+      }
+      m[v] = result ? MATCH : NO_MATCH;
+    }
+    return m[v] == MATCH;
+  }
+
+  /**
+   * Binds the names of the given part of the pattern and of its sub-patterns, which must match
+   * the given node.
+   */
+  private void bind(TreePattern.Node p, int v) {
+    if (p.name != null) {
+      bindings.putIfAbsent(p.name, nodes.get(v));
+    }
+    for (TreePattern.Edge edge : p.edges) {
+      if (!edge.negated) {
+        bind(edge.target, witness(edge, v));
+      }
+    }
+  }
+
+  /**
+   * Returns the first node that is in the relation of the edge with the given node and matches
+   * the target of the edge, or NONE.
+   */
+  private int witness(TreePattern.Edge edge, int v) {
+    TreePattern.Node target = edge.target;
+    int n = nodes.size();
+    switch (edge.relation) {
+    case DOMINATES:
+      return search(target, v + 1, v + subtreeSizes[v], w -> true);
+    case DOMINATED_BY:
+      for (int u = parents[v]; u != NONE; u = parents[u]) {
+        if (matches(target, u)) {
+          return u;
+        }
+      }
+      return NONE;
+    case PARENT_OF:
+      for (int c = v + 1; c < v + subtreeSizes[v]; c += subtreeSizes[c]) {
+        if (matches(target, c)) {
+          return c;
+        }
+      }
+      return NONE;
+    case CHILD_OF:
+      return parents[v] != NONE && matches(target, parents[v]) ? parents[v] : NONE;
+    case PRECEDES:
+      return search(target, firstLeftEdgeAtLeast(rightEdges[v]), n, w -> true);
+    case IMMEDIATELY_PRECEDES:
+      return search(target, firstLeftEdgeAtLeast(rightEdges[v]),
+          firstLeftEdgeAtLeast(rightEdges[v] + 1), w -> true);
+    case FOLLOWS:
+      return search(target, 0, firstLeftEdgeAtLeast(leftEdges[v]),
+          w -> rightEdges[w] <= leftEdges[v]);
+    case IMMEDIATELY_FOLLOWS:
+      return search(target, 0, firstLeftEdgeAtLeast(leftEdges[v]),
+          w -> rightEdges[w] == leftEdges[v]);
+    default:
+      return sister(edge.relation, target, v);
+    }
+  }
+
+  private int sister(TreePattern.Relation relation, TreePattern.Node target, int v) {
+    int parent = parents[v];
+    if (parent == NONE) {
+      return NONE;
+    }
+    boolean before = true;
+    int previous = NONE;
+    for (int c = parent + 1; c < parent + subtreeSizes[parent]; c += subtreeSizes[c]) {
+      if (c == v) {
+        before = false;
+        if (relation == TreePattern.Relation.IMMEDIATE_RIGHT_SISTER_OF) {
+          return previous != NONE && matches(target, previous) ? previous : NONE;
+        }
+        if (relation == TreePattern.Relation.RIGHT_SISTER_OF) {
+          return NONE;
+        }
+      } else if (relation == TreePattern.Relation.SISTER_OF
+          || relation == TreePattern.Relation.RIGHT_SISTER_OF && before
+          || relation == TreePattern.Relation.LEFT_SISTER_OF && !before) {
+        if (matches(target, c)) {
+          return c;
+        }
+      } else if (relation == TreePattern.Relation.IMMEDIATE_LEFT_SISTER_OF && !before) {
+        return matches(target, c) ? c : NONE;
+      }
+      previous = c;
+    }
+    return NONE;
+  }
+
+  /**
+   * Returns the first node in [lo, hi) that satisfies the filter and matches the given part of
+   * the pattern, looking only at the nodes with its labels if it has any.
+   */
+  private int search(TreePattern.Node target, int lo, int hi, IntPredicate filter) {
+    if (target.labels == null) {
+      for (int w = lo; w < hi; w++) {
+        if (filter.test(w) && matches(target, w)) {
+          return w;
+        }
+      }
+      return NONE;
+    }
+    int best = NONE;
+    for (String label : target.labels) {
+      int[] list = labelIndex.get(label);
+      if (list == null) {
+        continue;
+      }
+      int end = best == NONE ? hi : best;
+      for (int k = lowerBound(list, lo); k < list.length && list[k] < end; k++) {
+        int w = list[k];
+        if (filter.test(w) && matches(target, w)) {
+          best = w;
+          break;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the first node in preorder whose left edge is at least the given value.
+   */
+  private int firstLeftEdgeAtLeast(int edge) {
+    return lowerBound(leftEdges, edge);
+  }
+
+  /**
+   * Returns the first index of the sorted array whose value is at least the key.
+   */
+  private static int lowerBound(int[] a, int key) {
+    int lo = 0;
+    int hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,369 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A compiled pattern over the structure of a {@link Tree}, in the style of Tregex (Levy and
+ * Andrew, 2006).
+ * <p>
+ * A pattern is a node description followed by relations to other node descriptions. A node
+ * description is a label such as <code>NP</code>, alternatives such as <code>NN|NNS</code>, a
+ * regular expression such as <code>/^NN/</code> that is found in the label, or <code>__</code>,
+ * which matches any node. It may be named with <code>=name</code> to retrieve the matched node
+ * from {@link TreeMatcher#getNode(String)}. The relations of a node all apply to that node, and
+ * parentheses group a node with its own relations:
+ * <p>
+ * <pre>
+ * NP &lt; NN &lt;&lt; (PP &lt; IN)    an NP that has an NN child and dominates a PP with an IN child
+ * VP !&lt; /^VB/                a VP without a verb child
+ * </pre>
+ * <p>
+ * The relations are
+ * <table summary="relations">
+ * <tr><td>A &lt;&lt; B</td><td>A dominates B</td></tr>
+ * <tr><td>A &gt;&gt; B</td><td>A is dominated by B</td></tr>
+ * <tr><td>A &lt; B</td><td>A immediately dominates B</td></tr>
+ * <tr><td>A &gt; B</td><td>A is immediately dominated by B</td></tr>
+ * <tr><td>A .. B</td><td>A precedes B: the last leaf of A is before the first leaf of B</td></tr>
+ * <tr><td>A . B</td><td>A immediately precedes B</td></tr>
+ * <tr><td>A ,, B</td><td>A follows B</td></tr>
+ * <tr><td>A , B</td><td>A immediately follows B</td></tr>
+ * <tr><td>A $ B</td><td>A is a sister of B, and not B itself</td></tr>
+ * <tr><td>A $++ B</td><td>A is a left sister of B</td></tr>
+ * <tr><td>A $-- B</td><td>A is a right sister of B</td></tr>
+ * <tr><td>A $+ B</td><td>A is the immediate left sister of B</td></tr>
+ * <tr><td>A $- B</td><td>A is the immediate right sister of B</td></tr>
+ * </table>
+ * and a relation preceded by <code>!</code> is negated. Labels are made of any characters but
+ * whitespace and <code>()&lt;&gt;!=|,.$/</code>; other labels can be matched by regular
+ * expressions. Names inside negated relations are not bound.
+ * <p>
+ * A pattern is compiled once and is immutable, so it can be shared between threads. Matching a
+ * tree is done by a {@link TreeMatcher}, and a whole treebank can be searched in parallel by
+ * {@link #parallelFindAll(Collection)}.
+ *
+ * @author Yifan Peng
+ * @see TreeMatcher
+ */
+public final class TreePattern {
+
+  /**
+   * The relation between a node and a node of its sub-pattern.
+   */
+  enum Relation {
+    DOMINATES("<<"),
+    DOMINATED_BY(">>"),
+    PARENT_OF("<"),
+    CHILD_OF(">"),
+    PRECEDES(".."),
+    IMMEDIATELY_PRECEDES("."),
+    FOLLOWS(",,"),
+    IMMEDIATELY_FOLLOWS(","),
+    LEFT_SISTER_OF("$++"),
+    RIGHT_SISTER_OF("$--"),
+    IMMEDIATE_LEFT_SISTER_OF("$+"),
+    IMMEDIATE_RIGHT_SISTER_OF("$-"),
+    SISTER_OF("$");
+
+    private final String symbol;
+
+    Relation(String symbol) {
+      this.symbol = symbol;
+    }
+  }
+
+  /**
+   * A node description and its relations.
+   */
+  static final class Node {
+
+    /**
+     * The position of this node in {@link #nodes}
+     */
+    final int id;
+    /**
+     * The labels this node matches, or null if it is matched by a regular expression or it is a
+     * wildcard
+     */
+    final Set<String> labels;
+    /**
+     * The regular expression found in the labels, or null
+     */
+    final Pattern regex;
+    final String name;
+    final List<Edge> edges;
+
+    Node(int id, Set<String> labels, Pattern regex, String name) {
+      this.id = id;
+      this.labels = labels;
+      this.regex = regex;
+      this.name = name;
+      this.edges = new ArrayList<>();
+    }
+
+    boolean matchesLabel(String label) {
+      if (labels != null) {
+        return labels.contains(label);
+      }
+      return regex == null || regex.matcher(label).find();
+    }
+  }
+
+  /**
+   * A relation from a node to a sub-pattern.
+   */
+  static final class Edge {
+
+    final Relation relation;
+    final boolean negated;
+    final Node target;
+
+    Edge(Relation relation, boolean negated, Node target) {
+      this.relation = relation;
+      this.negated = negated;
+      this.target = target;
+    }
+  }
+
+  private final String pattern;
+  final Node root;
+  /**
+   * All the nodes, in the order they appear in the pattern
+   */
+  final List<Node> nodes;
+
+  private TreePattern(String pattern) {
+    this.pattern = pattern;
+    this.nodes = new ArrayList<>();
+    Parser parser = new Parser(pattern);
+    this.root = parser.parsePattern();
+    parser.skipWhitespace();
+    if (!parser.atEnd()) {
+      throw parser.error("Unexpected character");
+    }
+  }
+
+  /**
+   * Compiles the given pattern.
+   *
+   * @param pattern the pattern
+   * @return the compiled pattern
+   * @throws NullPointerException     if the pattern is null
+   * @throws IllegalArgumentException if the syntax of the pattern is invalid
+   */
+  public static TreePattern compile(String pattern) {
+    checkNotNull(pattern, "The pattern is null");
+    return new TreePattern(pattern);
+  }
+
+  /**
+   * Finds the matches in every tree of the given treebank in parallel, using the string values of
+   * the user objects as labels.
+   *
+   * @param trees the roots of the trees
+   * @return the matched nodes of every tree in preorder, in the order of the trees
+   */
+  public <E, T extends Tree<E, T>> List<List<T>> parallelFindAll(Collection<T> trees) {
+    return parallelFindAll(trees, String::valueOf);
+  }
+
+  /**
+   * Finds the matches in every tree of the given treebank in parallel.
+   *
+   * @param trees         the roots of the trees
+   * @param labelFunction returns the label of a user object
+   * @return the matched nodes of every tree in preorder, in the order of the trees
+   */
+  public <E, T extends Tree<E, T>> List<List<T>> parallelFindAll(Collection<T> trees,
+      Function<? super E, String> labelFunction) {
+    return trees.parallelStream()
+        .map(tree -> matcher(tree, labelFunction).findAll())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates a matcher of this pattern over the subtree rooted at the given node, using the string
+   * values of the user objects as labels.
+   *
+   * @param root the root of the subtree
+   * @return a new matcher
+   */
+  public <E, T extends Tree<E, T>> TreeMatcher<E, T> matcher(T root) {
+    return matcher(root, String::valueOf);
+  }
+
+  /**
+   * Creates a matcher of this pattern over the subtree rooted at the given node.
+   *
+   * @param root          the root of the subtree
+   * @param labelFunction returns the label of a user object
+   * @return a new matcher
+   */
+  public <E, T extends Tree<E, T>> TreeMatcher<E, T> matcher(T root,
+      Function<? super E, String> labelFunction) {
+    checkNotNull(root, "The root is null");
+    checkNotNull(labelFunction, "The label function is null");
+    return new TreeMatcher<>(this, root, labelFunction);
+  }
+
+  /**
+   * Returns the source of this pattern.
+   *
+   * @return the source of this pattern
+   */
+  public String pattern() {
+    return pattern;
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+
+  /**
+   * A recursive descent parser of patterns.
+   */
+  private class Parser {
+
+    private static final String SPECIAL = "()<>!=|,.$/";
+
+    private final String s;
+    private int pos;
+
+    Parser(String s) {
+      this.s = s;
+      this.pos = 0;
+    }
+
+    /**
+     * pattern := node edge*
+     */
+    Node parsePattern() {
+      Node node = parseNode();
+      while (true) {
+        skipWhitespace();
+        if (atEnd() || peek() == ')') {
+          return node;
+        }
+        boolean negated = false;
+        if (peek() == '!') {
+          pos++;
+          negated = true;
+          skipWhitespace();
+        }
+        Relation relation = parseRelation();
+        skipWhitespace();
+        node.edges.add(new Edge(relation, negated, parseNode()));
+      }
+    }
+
+    /**
+     * node := '(' pattern ')' | description ('=' name)?
+     */
+    Node parseNode() {
+      skipWhitespace();
+      if (atEnd()) {
+        throw error("Missing node");
+      }
+      if (peek() == '(') {
+        pos++;
+        Node node = parsePattern();
+        skipWhitespace();
+        if (atEnd() || peek() != ')') {
+          throw error("Missing ')'");
+        }
+        pos++;
+        return node;
+      }
+      Set<String> labels = null;
+      Pattern regex = null;
+      if (peek() == '/') {
+        int end = s.indexOf('/', pos + 1);
+        if (end == -1) {
+          throw error("Missing '/'");
+        }
+        try {
+          regex = Pattern.compile(s.substring(pos + 1, end));
+        } catch (PatternSyntaxException e) {
+          throw error("Invalid regular expression " + e.getDescription());
+        }
+        pos = end + 1;
+      } else {
+        String label = parseLabel();
+        if (!label.equals("__")) {
+          labels = new HashSet<>();
+          labels.add(label);
+          while (!atEnd() && peek() == '|') {
+            pos++;
+            labels.add(parseLabel());
+          }
+          labels = Collections.unmodifiableSet(labels);
+        }
+      }
+      String name = null;
+      if (!atEnd() && peek() == '=') {
+        pos++;
+        name = parseLabel();
+      }
+      Node node = new Node(nodes.size(), labels, regex, name);
+      nodes.add(node);
+      return node;
+    }
+
+    String parseLabel() {
+      int start = pos;
+      while (!atEnd() && !Character.isWhitespace(peek()) && SPECIAL.indexOf(peek()) == -1) {
+        pos++;
+      }
+      if (start == pos) {
+        throw error("Missing label");
+      }
+      return s.substring(start, pos);
+    }
+
+    Relation parseRelation() {
+      // longest symbol first
+      Relation best = null;
+      for (Relation relation : Relation.values()) {
+        if (s.startsWith(relation.symbol, pos)
+            && (best == null || relation.symbol.length() > best.symbol.length())) {
+          best = relation;
+        }
+      }
+      if (best == null) {
+        throw error("Missing relation");
+      }
+      pos += best.symbol.length();
+      return best;
+    }
+
+    void skipWhitespace() {
+      while (!atEnd() && Character.isWhitespace(peek())) {
+        pos++;
+      }
+    }
+
+    boolean atEnd() {
+      return pos >= s.length();
+    }
+
+    char peek() {
+      return s.charAt(pos);
+    }
+
+    IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at index " + pos + ": " + s);
+    }
+  }
+}
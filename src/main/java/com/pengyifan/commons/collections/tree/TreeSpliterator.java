@@ -0,0 +1,142 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the preorder, the postorder or the leaves of a forest of subtrees that splits
+ * at subtree boundaries.
+ * <p>
+ * The pending work is a deque of subtrees in encounter order. A subtree that is marked as expanded
+ * stands for its root alone, whose children are already in the deque. {@link #trySplit()} hands
+ * the first half of the subtrees to a new spliterator; if a single subtree is left, it is first
+ * expanded into its root and its children. If the tree is annotated, the sizes of the subtrees
+ * are known and the spliterator is {@link #SIZED} and {@link #SUBSIZED}; otherwise the size is
+ * estimated by halving.
+ */
+class TreeSpliterator<E, T extends Tree<E, T>> implements Spliterator<T> {
+
+  private final Tree.Order order;
+  private final Deque<T> nodes;
+  private final Deque<Boolean> expanded;
+  /**
+   * The annotations that give the sizes of the subtrees, or null if they are unknown
+   */
+  private final TreeAnnotations<E, T> annotations;
+  private long size;
+
+  TreeSpliterator(T root, Tree.Order order, TreeAnnotations<E, T> annotations, long size) {
+    this(order, annotations, size);
+    nodes.add(root);
+    expanded.add(Boolean.FALSE);
+  }
+
+  private TreeSpliterator(Tree.Order order, TreeAnnotations<E, T> annotations, long size) {
+    this.order = order;
+    this.nodes = new ArrayDeque<>();
+    this.expanded = new ArrayDeque<>();
+    this.annotations = annotations;
+    this.size = size;
+  }
+
+  @Override
+  public int characteristics() {
+    int characteristics = ORDERED | NONNULL;
+    if (annotations != null) {
+      characteristics |= SIZED | SUBSIZED;
+    }
+    return characteristics;
+  }
+
+  @Override
+  public long estimateSize() {
+    return size;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (!nodes.isEmpty()) {
+      T node = nodes.pollFirst();
+      boolean isExpanded = expanded.pollFirst();
+      if (isExpanded || node.isLeaf()) {
+        if (order != Tree.Order.LEAVES || node.isLeaf()) {
+          emit(node, action);
+          return true;
+        }
+      } else if (order == Tree.Order.PREORDER) {
+        pushChildren(node);
+        emit(node, action);
+        return true;
+      } else {
+        if (order == Tree.Order.POSTORDER) {
+          nodes.addFirst(node);
+          expanded.addFirst(Boolean.TRUE);
+        }
+        pushChildren(node);
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (nodes.size() == 1 && !expanded.peekFirst() && !nodes.peekFirst().isLeaf()) {
+      T node = nodes.pollFirst();
+      expanded.pollFirst();
+      if (order == Tree.Order.POSTORDER) {
+        nodes.addFirst(node);
+        expanded.addFirst(Boolean.TRUE);
+      }
+      pushChildren(node);
+      if (order == Tree.Order.PREORDER) {
+        nodes.addFirst(node);
+        expanded.addFirst(Boolean.TRUE);
+      }
+    }
+    if (nodes.size() < 2) {
+      return null;
+    }
+    int n = nodes.size() / 2;
+    TreeSpliterator<E, T> prefix = new TreeSpliterator<>(order, annotations, 0);
+    for (int i = 0; i < n; i++) {
+      T node = nodes.pollFirst();
+      boolean isExpanded = expanded.pollFirst();
+      prefix.nodes.addLast(node);
+      prefix.expanded.addLast(isExpanded);
+      if (annotations != null) {
+        prefix.size += sizeOf(node, isExpanded);
+      }
+    }
+    if (annotations == null) {
+      prefix.size = size / 2;
+    }
+    size -= prefix.size;
+    return prefix;
+  }
+
+  private void emit(T node, Consumer<? super T> action) {
+    if (annotations != null) {
+      size--;
+    }
+    action.accept(node);
+  }
+
+  private void pushChildren(T node) {
+    for (int i = node.getChildCount() - 1; i >= 0; i--) {
+      nodes.addFirst(node.getChild(i));
+      expanded.addFirst(Boolean.FALSE);
+    }
+  }
+
+  /**
+   * Returns the number of nodes the given entry stands for.
+   */
+  private long sizeOf(T node, boolean isExpanded) {
+    if (order == Tree.Order.LEAVES) {
+      return isExpanded ? 0 : annotations.getRightEdge(node) - annotations.getLeftEdge(node);
+    }
+    return isExpanded ? 1 : annotations.getSubtreeSize(node);
+  }
+}
@@ -0,0 +1,46 @@
+package com.pengyifan.kernel.tree;
+
+/**
+ * The inner nodes of a tree in the form used by {@link TreeKernel}: their productions, their
+ * children, and the nodes sorted by production.
+ * <p>
+ * The nodes are numbered in postorder, so that the children of a node come before it. A
+ * production list is created by {@link TreeKernel#prepare} and can only be used with the kernel
+ * that created it.
+ *
+ * @author Yifan Peng
+ */
+public final class ProductionList {
+
+  /**
+   * The production id of every inner node
+   */
+  final int[] productions;
+  /**
+   * The children of every inner node, -1 for a leaf
+   */
+  final int[][] children;
+  /**
+   * The inner nodes sorted by production id
+   */
+  final int[] sorted;
+  /**
+   * K(t, t), used to normalize the kernel
+   */
+  double selfKernel;
+
+  ProductionList(int[] productions, int[][] children, int[] sorted) {
+    this.productions = productions;
+    this.children = children;
+    this.sorted = sorted;
+  }
+
+  /**
+   * Returns the number of inner nodes.
+   *
+   * @return the number of inner nodes
+   */
+  public int size() {
+    return productions.length;
+  }
+}
@@ -0,0 +1,335 @@
+package com.pengyifan.kernel.tree;
+
+import com.pengyifan.commons.collections.tree.Tree;
+import com.pengyifan.kernel.svm.LibSVMPrintStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Convolution kernels between parse trees, for SVMs with precomputed kernels.
+ * <p>
+ * A kernel counts the tree fragments that two trees have in common, each fragment weighted by
+ * lambda to the power of its size: K(t1, t2) = sum of Delta(n1, n2) over the pairs of inner nodes.
+ * Delta(n1, n2) is 0 if the productions of the two nodes differ, lambda if they are preterminals,
+ * and otherwise
+ * <ul>
+ * <li>{@link Type#SUBSET_TREE} (Collins and Duffy, 2002): lambda * prod (1 + Delta(c1j, c2j)),
+ * where fragments may stop at any node;</li>
+ * <li>{@link Type#SUBTREE} (Vishwanathan and Smola, 2002): lambda * prod Delta(c1j, c2j), where
+ * fragments extend down to the leaves.</li>
+ * </ul>
+ * <p>
+ * The kernel is computed by the fast tree kernel algorithm (Moschitti, 2006). The inner nodes of
+ * every tree are sorted once by production ({@link #prepare(Tree)}); the pairs of nodes with the
+ * same production are found by merging the two sorted lists, and Delta is only computed for
+ * them, from the children to the parents. This is linear in the number of nodes on average,
+ * rather than quadratic.
+ * <p>
+ * {@link #gramMatrix(List)} computes the kernel between all the pairs of a training set in
+ * parallel blocks of the upper triangle, and
+ * {@link #printPrecomputedRows(LibSVMPrintStream, int[], double[][])} writes the rows in the
+ * precomputed kernel format of LIBSVM.
+ *
+ * @param <E> the type of the user objects
+ * @param <T> the type of the tree nodes
+ * @author Yifan Peng
+ */
+public class TreeKernel<E, T extends Tree<E, T>> {
+
+  /**
+   * The fragments counted by a kernel.
+   */
+  public enum Type {
+    /**
+     * Fragments whose leaves are leaves of the tree
+     */
+    SUBTREE,
+    /**
+     * Fragments that may stop at any node, made of whole productions
+     */
+    SUBSET_TREE
+  }
+
+  private static final int BLOCK_SIZE = 64;
+
+  private final Type type;
+  private final double lambda;
+  private final boolean normalized;
+  private final Function<? super E, String> labelFunction;
+  /**
+   * The ids of the productions seen by this kernel
+   */
+  private final Map<String, Integer> productionIds;
+  private final AtomicInteger nextProductionId;
+
+  /**
+   * Creates a kernel of the given type, using the string values of the user objects as labels.
+   *
+   * @param type   the type of the kernel
+   * @param lambda the decay factor of the fragments, in (0, 1]
+   */
+  public TreeKernel(Type type, double lambda) {
+    this(type, lambda, false, String::valueOf);
+  }
+
+  /**
+   * Creates a kernel of the given type.
+   *
+   * @param type          the type of the kernel
+   * @param lambda        the decay factor of the fragments, in (0, 1]
+   * @param normalized    true to return K(t1, t2) / sqrt(K(t1, t1) * K(t2, t2))
+   * @param labelFunction returns the label of a user object
+   */
+  public TreeKernel(Type type, double lambda, boolean normalized,
+      Function<? super E, String> labelFunction) {
+    checkArgument(lambda > 0 && lambda <= 1, "lambda is not in (0, 1]: %s", lambda);
+    this.type = checkNotNull(type, "The type is null");
+    this.lambda = lambda;
+    this.normalized = normalized;
+    this.labelFunction = checkNotNull(labelFunction, "The label function is null");
+    this.productionIds = new ConcurrentHashMap<>();
+    this.nextProductionId = new AtomicInteger();
+  }
+
+  /**
+   * Returns the kernel between two trees.
+   *
+   * @param t1 a tree
+   * @param t2 a tree
+   * @return the kernel between the two trees
+   */
+  public double kernel(T t1, T t2) {
+    return kernel(prepare(t1), prepare(t2));
+  }
+
+  /**
+   * Returns the kernel between two prepared trees.
+   *
+   * @param p1 a prepared tree
+   * @param p2 a prepared tree
+   * @return the kernel between the two trees
+   */
+  public double kernel(ProductionList p1, ProductionList p2) {
+    double k = delta(p1, p2);
+    if (!normalized) {
+      return k;
+    }
+    double norm = Math.sqrt(p1.selfKernel * p2.selfKernel);
+    return norm == 0 ? 0 : k / norm;
+  }
+
+  /**
+   * Returns the kernel between all the pairs of trees. The matrix is symmetric, so only the
+   * upper triangle is computed, in blocks on the common fork-join pool.
+   *
+   * @param trees the trees
+   * @return the Gram matrix of the trees
+   */
+  public double[][] gramMatrix(List<T> trees) {
+    List<ProductionList> prepared = prepareAll(trees);
+    int n = prepared.size();
+    double[][] gram = new double[n][n];
+    int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    List<int[]> blockPairs = new ArrayList<>();
+    for (int bi = 0; bi < blocks; bi++) {
+      for (int bj = bi; bj < blocks; bj++) {
+        blockPairs.add(new int[] { bi, bj });
+      }
+    }
+    blockPairs.parallelStream().forEach(pair -> {
+      int iEnd = Math.min(n, (pair[0] + 1) * BLOCK_SIZE);
+      int jEnd = Math.min(n, (pair[1] + 1) * BLOCK_SIZE);
+      for (int i = pair[0] * BLOCK_SIZE; i < iEnd; i++) {
+        for (int j = Math.max(i, pair[1] * BLOCK_SIZE); j < jEnd; j++) {
+          double k = kernel(prepared.get(i), prepared.get(j));
+          gram[i][j] = k;
+          gram[j][i] = k;
+        }
+      }
+    });
+    return gram;
+  }
+
+  /**
+   * Returns the kernel between every row tree and every column tree, e.g., between test and
+   * training instances, computed in parallel.
+   *
+   * @param rows    the trees of the rows
+   * @param columns the trees of the columns
+   * @return the kernel matrix
+   */
+  public double[][] kernelMatrix(List<T> rows, List<T> columns) {
+    List<ProductionList> preparedRows = prepareAll(rows);
+    List<ProductionList> preparedColumns = prepareAll(columns);
+    return preparedRows.parallelStream()
+        .map(row -> preparedColumns.stream().mapToDouble(column -> kernel(row, column)).toArray())
+        .toArray(double[][]::new);
+  }
+
+  /**
+   * Sorts the inner nodes of a tree by production, so that it can be compared with other trees
+   * in linear time.
+   *
+   * @param tree a tree
+   * @return the prepared tree
+   */
+  public ProductionList prepare(T tree) {
+    checkNotNull(tree, "The tree is null");
+    // the inner nodes in postorder
+    List<T> nodes = new ArrayList<>();
+    List<T> stack = new ArrayList<>();
+    stack.add(tree);
+    while (!stack.isEmpty()) {
+      T node = stack.remove(stack.size() - 1);
+      if (!node.isLeaf()) {
+        nodes.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+          stack.add(node.getChild(i));
+        }
+      }
+    }
+    // reversed (root, right to left) preorder is postorder
+    int m = nodes.size();
+    int[] productions = new int[m];
+    int[][] children = new int[m][];
+    Map<T, Integer> positions = new IdentityHashMap<>();
+    for (int v = 0; v < m; v++) {
+      positions.put(nodes.get(m - 1 - v), v);
+    }
+    for (int v = 0; v < m; v++) {
+      T node = nodes.get(m - 1 - v);
+      StringBuilder production = new StringBuilder(labelFunction.apply(node.getObject()));
+      children[v] = new int[node.getChildCount()];
+      for (int j = 0; j < node.getChildCount(); j++) {
+        T child = node.getChild(j);
+        production.append(' ');
+        if (child.isLeaf()) {
+          // a leaf and an inner node with the same label are different
+          production.append('\u0000');
+          children[v][j] = -1;
+        } else {
+          children[v][j] = positions.get(child);
+        }
+        production.append(labelFunction.apply(child.getObject()));
+      }
+      productions[v] = productionIds.computeIfAbsent(production.toString(),
+          k -> nextProductionId.getAndIncrement());
+    }
+    int[] sorted = IntStream.range(0, m).boxed()
+        .sorted((a, b) -> Integer.compare(productions[a], productions[b]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    ProductionList list = new ProductionList(productions, children, sorted);
+    list.selfKernel = delta(list, list);
+    return list;
+  }
+
+  /**
+   * Writes the rows of a kernel matrix in the precomputed kernel format of LIBSVM, numbering the
+   * rows from 1.
+   *
+   * @param out    the output
+   * @param labels the label of every row
+   * @param matrix the kernel matrix
+   */
+  public static void printPrecomputedRows(LibSVMPrintStream out, int[] labels,
+      double[][] matrix) {
+    checkArgument(labels.length == matrix.length, "%s labels for %s rows", labels.length,
+        matrix.length);
+    for (int i = 0; i < matrix.length; i++) {
+      out.printPrecomputedRow(labels[i], matrix[i], i + 1);
+    }
+  }
+
+  private List<ProductionList> prepareAll(List<T> trees) {
+    return trees.parallelStream().map(this::prepare).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the sum of Delta over the pairs of nodes with the same production.
+   */
+  private double delta(ProductionList p1, ProductionList p2) {
+    long[] pairs = matchingPairs(p1, p2);
+    if (pairs.length == 0) {
+      return 0;
+    }
+    // in postorder of the first tree, so that the children are computed before the parents
+    Arrays.sort(pairs);
+    double[] deltas = new double[pairs.length];
+    double sum = 0;
+    for (int k = 0; k < pairs.length; k++) {
+      int n1 = (int) (pairs[k] >>> 32);
+      int n2 = (int) pairs[k];
+      int[] c1 = p1.children[n1];
+      int[] c2 = p2.children[n2];
+      double delta = lambda;
+      for (int j = 0; j < c1.length; j++) {
+        if (c1[j] == -1) {
+          continue;
+        }
+        int i = Arrays.binarySearch(pairs, 0, k, pair(c1[j], c2[j]));
+        double childDelta = i < 0 ? 0 : deltas[i];
+        delta *= type == Type.SUBSET_TREE ? 1 + childDelta : childDelta;
+      }
+      deltas[k] = delta;
+      sum += delta;
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the pairs of nodes with the same production, by merging the nodes sorted by
+   * production.
+   */
+  private static long[] matchingPairs(ProductionList p1, ProductionList p2) {
+    long[] pairs = new long[16];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < p1.sorted.length && j < p2.sorted.length) {
+      int a = p1.productions[p1.sorted[i]];
+      int b = p2.productions[p2.sorted[j]];
+      if (a < b) {
+        i++;
+      } else if (a > b) {
+        j++;
+      } else {
+        int iEnd = i;
+        while (iEnd < p1.sorted.length && p1.productions[p1.sorted[iEnd]] == a) {
+          iEnd++;
+        }
+        int jEnd = j;
+        while (jEnd < p2.sorted.length && p2.productions[p2.sorted[jEnd]] == a) {
+          jEnd++;
+        }
+        for (int x = i; x < iEnd; x++) {
+          for (int y = j; y < jEnd; y++) {
+            if (size == pairs.length) {
+              pairs = Arrays.copyOf(pairs, 2 * size);
+            }
+            pairs[size++] = pair(p1.sorted[x], p2.sorted[y]);
+          }
+        }
+        i = iEnd;
+        j = jEnd;
+      }
+    }
+    return Arrays.copyOf(pairs, size);
+  }
+
+  private static long pair(int n1, int n2) {
+    return ((long) n1 << 32) | n2;
+  }
+}
@@ -0,0 +1,80 @@
+package com.pengyifan.commons.collections;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MultisetSummaryTest {
+
+  private Multiset<Integer> multisets;
+
+  @Before
+  public void setUp() {
+    multisets = HashMultiset.create();
+    multisets.add(1);
+    multisets.add(2, 2);
+    multisets.add(3, 3);
+    multisets.add(4);
+  }
+
+  @Test
+  public void testOf() {
+    MultisetSummary<Integer> summary = MultisetSummary.of(multisets, 3, 2);
+    assertEquals(3, summary.max().getAsInt());
+    assertEquals(1, summary.min().getAsInt());
+    assertEquals(3, summary.argmax().get().intValue());
+    assertThat(summary.argminSet(), is(Sets.newHashSet(1, 4)));
+    assertEquals(7, summary.totalCount());
+    assertEquals(4, summary.distinctCount());
+    assertEquals(1.75, summary.averageCount(), 0);
+    assertArrayEquals(new int[] { 2, 3 }, summary.thresholds());
+    assertArrayEquals(new int[] { 2, 1, 1 }, summary.histogram());
+    assertEquals(2, summary.countAbove(2));
+    assertEquals(1, summary.countAbove(3));
+  }
+
+  @Test
+  public void testEmpty() {
+    MultisetSummary<Integer> summary = MultisetSummary.of(HashMultiset.create());
+    assertFalse(summary.max().isPresent());
+    assertFalse(summary.argmin().isPresent());
+    assertTrue(summary.argmaxSet().isEmpty());
+    assertEquals(0, summary.averageCount(), 0);
+    assertArrayEquals(new int[] { 0 }, summary.histogram());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCountAbove() {
+    MultisetSummary.of(multisets, 2).countAbove(3);
+  }
+
+  @Test
+  public void testParallelOf() {
+    Random rnd = new Random(1);
+    Multiset<Integer> large = HashMultiset.create();
+    for (int i = 0; i < 100000; i++) {
+      large.add(rnd.nextInt(20000), rnd.nextInt(50) + 1);
+    }
+    MultisetSummary<Integer> expected = MultisetSummary.of(large, 10, 100, 1000);
+    MultisetSummary<Integer> actual = MultisetSummary.parallelOf(large, 10, 100, 1000);
+    assertEquals(expected.max(), actual.max());
+    assertEquals(expected.min(), actual.min());
+    assertEquals(expected.argmaxSet(), actual.argmaxSet());
+    assertEquals(expected.argminSet(), actual.argminSet());
+    assertEquals(large.size(), actual.totalCount());
+    assertEquals(large.elementSet().size(), actual.distinctCount());
+    assertArrayEquals(expected.histogram(), actual.histogram());
+    assertEquals(Multisets.elementsAbove(large, 100).size(), actual.countAbove(100));
+  }
+}
@@ -6,6 +6,8 @@ import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -40,6 +42,8 @@ public class MultisetsTest {
   public void testArgmaxSet() {
     assertThat(Multisets.argmaxSet(multisets), is(Sets.newHashSet(3)));
     assertTrue(Multisets.argmaxSet(emptysets).isEmpty());
+    // the result is a new set that the caller may modify
+    assertTrue(Multisets.argmaxSet(multisets).add(5));
   }
 
   @Test
@@ -52,6 +56,7 @@ public class MultisetsTest {
   public void testArgminSet() {
     assertThat(Multisets.argminSet(multisets), is(Sets.newHashSet(1, 4)));
     assertTrue(Multisets.argminSet(emptysets).isEmpty());
+    assertTrue(Multisets.argminSet(multisets).add(5));
   }
 
   @Test
@@ -103,4 +108,15 @@ public class MultisetsTest {
     assertEquals(1, Multisets.min(multisets).getAsInt());
     assertFalse(Multisets.min(emptysets).isPresent());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testElementsAboveView() {
+    Set<Integer> view = Multisets.elementsAboveView(multisets, 2);
+    assertThat(view, is(Sets.newHashSet(2, 3)));
+    multisets.add(4);
+    assertThat(view, is(Sets.newHashSet(2, 3, 4)));
+    assertTrue(Multisets.elementsAtView(emptysets, 0).isEmpty());
+    assertThat(Multisets.elementsAtView(multisets, 1), is(Sets.newHashSet(1)));
+    assertThat(Multisets.elementsBelowView(multisets, 2), is(Sets.newHashSet(1, 2, 4)));
+  }
+}
@@ -0,0 +1,127 @@
+package com.pengyifan.commons.collections.counter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ApproximateCounterTest {
+
+  /**
+   * A Zipf-like stream: key i appears about 10000 / (i + 1) times.
+   */
+  private static HashCounter<Integer> stream(Random random, int length) {
+    HashCounter<Integer> exact = new HashCounter<>();
+    for (int i = 0; i < length; i++) {
+      int key = (int) Math.floor(Math.pow(2000, random.nextDouble())) - 1;
+      exact.incrementCount(key);
+    }
+    return exact;
+  }
+
+  private static void feed(Counter<Integer> exact, Counter<Integer> approximate) {
+    for (Integer key : exact.keySet()) {
+      for (int i = 0; i < exact.getCount(key); i++) {
+        approximate.incrementCount(key);
+      }
+    }
+  }
+
+  @Test
+  public void testSpaceSaving() {
+    HashCounter<Integer> exact = stream(new Random(1), 50000);
+    SpaceSavingCounter<Integer> counter = new SpaceSavingCounter<>(50);
+    feed(exact, counter);
+
+    assertEquals(exact.totalCount(), counter.totalCount());
+    assertEquals(50, counter.size());
+    assertTrue(counter.errorBound() <= exact.totalCount() / 50);
+    for (Integer key : counter.keySet()) {
+      int count = exact.getCount(key);
+      assertTrue(counter.getCount(key) >= count);
+      assertTrue(counter.getGuaranteedCount(key) <= count);
+      assertTrue(counter.getCount(key) - count <= counter.errorBound());
+    }
+    for (Integer key : exact.keysAbove(counter.errorBound() + 1)) {
+      assertTrue(counter.containsKey(key));
+    }
+    assertEquals(exact.argmax(), counter.argmax());
+  }
+
+  @Test
+  public void testSpaceSavingMerge() {
+    HashCounter<Integer> exact1 = stream(new Random(3), 30000);
+    HashCounter<Integer> exact2 = stream(new Random(4), 30000);
+    SpaceSavingCounter<Integer> counter1 = new SpaceSavingCounter<>(40);
+    SpaceSavingCounter<Integer> counter2 = new SpaceSavingCounter<>(40);
+    feed(exact1, counter1);
+    feed(exact2, counter2);
+    counter1.merge(counter2);
+
+    HashCounter<Integer> exact = new HashCounter<>(exact1);
+    exact.addAll(exact2);
+    assertEquals(exact.totalCount(), counter1.totalCount());
+    for (Integer key : counter1.keySet()) {
+      assertTrue(counter1.getCount(key) >= exact.getCount(key));
+      assertTrue(counter1.getGuaranteedCount(key) <= exact.getCount(key));
+    }
+    for (Integer key : exact.keysAbove(exact.totalCount() / 40 + 1)) {
+      assertTrue(counter1.containsKey(key));
+    }
+  }
+
+  @Test
+  public void testCountMinSketch() {
+    HashCounter<Integer> exact = stream(new Random(7), 50000);
+    CountMinSketch<Integer> sketch = CountMinSketch.withError(0.001, 0.01, 10);
+    feed(exact, sketch);
+
+    assertEquals(exact.totalCount(), sketch.totalCount());
+    int violations = 0;
+    for (Integer key : exact.keySet()) {
+      int estimate = sketch.getCount(key);
+      assertTrue(estimate >= exact.getCount(key));
+      if (estimate - exact.getCount(key) > sketch.errorBound()) {
+        violations++;
+      }
+    }
+    assertTrue(violations <= exact.size() / 100);
+    assertEquals(10, sketch.size());
+    assertEquals(exact.argmax(), sketch.argmax());
+  }
+
+  @Test
+  public void testCountMinSketchMerge() {
+    HashCounter<Integer> exact1 = stream(new Random(9), 20000);
+    HashCounter<Integer> exact2 = stream(new Random(10), 20000);
+    CountMinSketch<Integer> sketch1 = new CountMinSketch<>(5, 2000, 10);
+    CountMinSketch<Integer> sketch2 = new CountMinSketch<>(5, 2000, 10);
+    feed(exact1, sketch1);
+    feed(exact2, sketch2);
+    sketch1.merge(sketch2);
+
+    HashCounter<Integer> exact = new HashCounter<>(exact1);
+    exact.addAll(exact2);
+    assertEquals(exact.totalCount(), sketch1.totalCount());
+    for (Integer key : exact.keySet()) {
+      assertTrue(sketch1.getCount(key) >= exact.getCount(key));
+    }
+    assertTrue(sketch1.containsKey(exact.argmax()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeIncrement() {
+    new SpaceSavingCounter<String>(10).decrementCount("a");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testRemove() {
+    CountMinSketch<String> sketch = new CountMinSketch<>(2, 10, 1);
+    sketch.incrementCount("a");
+    assertFalse(sketch.containsKey("b"));
+    sketch.remove("a");
+  }
+}
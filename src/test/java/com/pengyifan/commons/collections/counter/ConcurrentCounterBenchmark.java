@@ -0,0 +1,85 @@
+package com.pengyifan.commons.collections.counter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A rough benchmark of the throughput of {@link ConcurrentCounter} against a synchronized
+ * {@link HashCounter} as the number of threads doubles, on a Zipf-like stream of keys. It is not
+ * run by the unit tests; run it with
+ * <p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.pengyifan.commons.collections.counter.ConcurrentCounterBenchmark
+ * </pre>
+ */
+public class ConcurrentCounterBenchmark {
+
+  private static final int ROUNDS = 3;
+  private static final int INCREMENTS = 2_000_000;
+  private static final int KEYS = 10_000;
+
+  public static void main(String[] args) throws Exception {
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    int[] keys = zipf(INCREMENTS, KEYS);
+    for (int round = 0; round < ROUNDS; round++) {
+      System.out.printf("round %d%n", round);
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        ConcurrentCounter<Integer> concurrent = new ConcurrentCounter<>();
+        time("concurrent", threads, keys, concurrent::incrementCount);
+        HashCounter<Integer> locked = new HashCounter<>();
+        time("synchronized", threads, keys, key -> {
+          synchronized (locked) {
+            locked.incrementCount(key);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Returns n keys drawn from a Zipf-like distribution over the given number of keys, so that a
+   * few keys are very frequent.
+   */
+  private static int[] zipf(int n, int keyCount) {
+    Random rnd = new Random(1);
+    int[] keys = new int[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = (int) Math.floor(Math.pow(keyCount, rnd.nextDouble())) - 1;
+    }
+    return keys;
+  }
+
+  private interface Increment {
+
+    void accept(Integer key);
+  }
+
+  /**
+   * Makes every thread count all the keys, and prints the increments per microsecond.
+   */
+  private static void time(String name, int threads, int[] keys, Increment increment)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int key : keys) {
+          increment.accept(key);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+    System.out.printf("  %-14s %3d threads %8.2f increments/us%n", name, threads,
+        (double) threads * keys.length / (elapsed / 1e3));
+  }
+}
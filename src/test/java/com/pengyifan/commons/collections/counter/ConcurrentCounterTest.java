@@ -0,0 +1,111 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ConcurrentCounterTest {
+
+  private ConcurrentCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    counter = new ConcurrentCounter<>();
+    counter.incrementCount("a");
+    counter.incrementCount("b", 2);
+    counter.incrementCount("c", 3);
+  }
+
+  @Test
+  public void testGetCount() {
+    assertEquals(2, counter.getCount("b"));
+    assertEquals(0, counter.getCount("z"));
+    assertEquals(6, counter.totalCount());
+    assertEquals("c", counter.argmax());
+    assertThat(counter.keysAbove(2), is(Sets.newHashSet("b", "c")));
+  }
+
+  @Test
+  public void testSetCountAndRemove() {
+    counter.setCount("a", 10);
+    assertEquals(15, counter.totalCount());
+    assertEquals(10, counter.remove("a"));
+    assertEquals(5, counter.totalCount());
+    counter.setCount("b", 0);
+    counter.removeZeroCounts();
+    assertThat(counter.keySet(), is(Sets.newHashSet("c")));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullKey() {
+    counter.incrementCount(null);
+  }
+
+  @Test
+  public void testConcurrentIncrement() throws Exception {
+    int threads = 8;
+    int increments = 20000;
+    ConcurrentCounter<Integer> shared = new ConcurrentCounter<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < increments; i++) {
+          shared.incrementCount(i % 100);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    HashCounter<Integer> snapshot = shared.snapshot();
+    assertEquals(100, snapshot.size());
+    assertEquals(threads * increments, snapshot.totalCount());
+    assertEquals(threads * increments, shared.totalCount());
+    assertEquals(threads * increments / 100, shared.getCount(42));
+    assertEquals(snapshot, shared);
+  }
+
+  @Test
+  public void testConcurrentRemove() throws Exception {
+    int threads = 4;
+    ConcurrentCounter<Integer> shared = new ConcurrentCounter<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 20000; i++) {
+          if (id == 0 && i % 10 == 0) {
+            shared.remove(i % 7);
+          } else if (id == 1 && i % 10 == 0) {
+            shared.setCount(i % 7, 3);
+          } else {
+            shared.incrementCount(i % 7);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    // the total never drifts from the counts
+    assertEquals(shared.snapshot().totalCount(), shared.totalCount());
+  }
+}
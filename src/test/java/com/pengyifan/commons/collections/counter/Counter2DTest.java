@@ -0,0 +1,105 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class Counter2DTest {
+
+  private Counter2D<String, String> bigrams;
+
+  @Before
+  public void setUp() {
+    bigrams = new Counter2D<>();
+    String[] tokens = "the cat sat on the mat the cat ran".split(" ");
+    for (int i = 0; i + 1 < tokens.length; i++) {
+      bigrams.incrementCount(tokens[i], tokens[i + 1]);
+    }
+  }
+
+  @Test
+  public void testCounts() {
+    assertEquals(2, bigrams.getCount("the", "cat"));
+    assertEquals(1, bigrams.getCount("the", "mat"));
+    assertEquals(0, bigrams.getCount("cat", "the"));
+    assertEquals(0, bigrams.getCount("dog", "cat"));
+    assertTrue(bigrams.containsKey("on", "the"));
+    assertFalse(bigrams.containsKey("on", "cat"));
+    assertEquals(7, bigrams.size());
+    assertEquals(8, bigrams.totalCount());
+  }
+
+  @Test
+  public void testMarginals() {
+    assertEquals(3, bigrams.rowTotal("the"));
+    assertEquals(2, bigrams.columnTotal("cat"));
+    assertEquals(2, bigrams.columnTotal("the"));
+    assertEquals(0, bigrams.rowTotal("ran"));
+
+    bigrams.setCount("the", "cat", 5);
+    assertEquals(6, bigrams.rowTotal("the"));
+    assertEquals(5, bigrams.columnTotal("cat"));
+    assertEquals(11, bigrams.totalCount());
+    assertThat(bigrams.rowKeySet(), is(Sets.newHashSet("the", "cat", "sat", "on", "mat")));
+  }
+
+  @Test
+  public void testRow() {
+    Counter<String> row = bigrams.row("the");
+    assertEquals(2, row.getCount("cat"));
+    assertEquals(3, row.totalCount());
+    assertTrue(bigrams.row("dog").isEmpty());
+
+    Map<String, Double> conditional = bigrams.conditional("the");
+    assertEquals(2.0 / 3, conditional.get("cat"), 1e-9);
+    assertEquals(1.0 / 3, conditional.get("mat"), 1e-9);
+    assertTrue(bigrams.conditional("dog").isEmpty());
+  }
+
+  @Test
+  public void testTopColumns() {
+    List<Map.Entry<String, Integer>> top = bigrams.topColumns("the", 1);
+    assertEquals(1, top.size());
+    assertEquals("cat", top.get(0).getKey());
+    assertEquals(2, top.get(0).getValue().intValue());
+    assertEquals(2, bigrams.topColumns("the", 5).size());
+    assertTrue(bigrams.topColumns("dog", 5).isEmpty());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random rnd = new Random(1);
+    Counter2D<Integer, Integer> counter = new Counter2D<>();
+    HashCounter<String> expected = new HashCounter<>();
+    for (int i = 0; i < 20000; i++) {
+      int a = rnd.nextInt(50);
+      int b = rnd.nextInt(300);
+      int count = rnd.nextInt(3);
+      counter.incrementCount(a, b, count);
+      expected.incrementCount(a + "," + b, count);
+    }
+    assertEquals(expected.size(), counter.size());
+    assertEquals(expected.totalCount(), counter.totalCount());
+    for (String key : expected.keySet()) {
+      String[] ab = key.split(",");
+      assertEquals(expected.getCount(key),
+          counter.getCount(Integer.valueOf(ab[0]), Integer.valueOf(ab[1])));
+    }
+    int rowTotal = 0;
+    for (int b = 0; b < 300; b++) {
+      rowTotal += counter.getCount(7, b);
+    }
+    assertEquals(rowTotal, counter.rowTotal(7));
+    assertEquals(rowTotal, counter.row(7).totalCount());
+  }
+}
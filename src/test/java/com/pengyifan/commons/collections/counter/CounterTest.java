@@ -0,0 +1,123 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CounterTest {
+
+  private TreeCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    counter = new TreeCounter<>();
+    counter.incrementCount("a");
+    counter.incrementCount("b", 2);
+    counter.incrementCount("c", 3);
+  }
+
+  @Test
+  public void testAddAll() {
+    HashCounter<String> copy = new HashCounter<>(counter);
+    copy.addAll(counter);
+    assertEquals(4, copy.getCount("b"));
+    assertEquals(12, copy.totalCount());
+    copy.substractAll(counter);
+    assertEquals(counter, copy);
+  }
+
+  @Test
+  public void testForEach() {
+    List<String> visited = new ArrayList<>();
+    counter.forEach((key, count) -> visited.add(key + count));
+    assertThat(visited, is(Lists.newArrayList("a1", "b2", "c3")));
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testCursor() {
+    Counter.Cursor<String> cursor = counter.cursor();
+    List<String> visited = new ArrayList<>();
+    while (cursor.advance()) {
+      visited.add(cursor.key() + cursor.count());
+    }
+    assertThat(visited, is(Lists.newArrayList("a1", "b2", "c3")));
+    assertFalse(cursor.advance());
+    cursor.key();
+  }
+
+  @Test
+  public void testSpliterator() {
+    HashCounter<Integer> large = new HashCounter<>();
+    for (int i = 0; i < 10000; i++) {
+      large.incrementCount(i, i % 10);
+    }
+    Counter.CountSpliterator<Integer> spliterator = large.spliterator();
+    Counter.CountSpliterator<Integer> prefix = spliterator.trySplit();
+    assertNotNull(prefix);
+    LongAdder total = new LongAdder();
+    prefix.forEachRemaining((Integer key, int count) -> total.add(count));
+    while (spliterator.tryAdvance((Integer key, int count) -> total.add(count))) {
+      ;
+    }
+    assertEquals(large.totalCount(), total.intValue());
+
+    // keys can be streamed in parallel
+    assertEquals(10000, StreamSupport.stream(large.spliterator(), true).count());
+    assertEquals(0, counter.spliterator().characteristics() & Spliterator.SORTED);
+  }
+
+  @Test
+  public void testMostCommon() {
+    List<Map.Entry<String, Integer>> top = counter.mostCommon(2);
+    assertEquals(2, top.size());
+    assertEquals("c", top.get(0).getKey());
+    assertEquals(3, top.get(0).getValue().intValue());
+    assertEquals("b", top.get(1).getKey());
+
+    assertEquals("a", counter.leastCommon(1).get(0).getKey());
+    assertEquals(3, counter.mostCommon(10).size());
+    assertTrue(counter.mostCommon(0).isEmpty());
+  }
+
+  @Test
+  public void testParallelMostCommon() {
+    HashCounter<Integer> large = new HashCounter<>();
+    Random rnd = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      large.incrementCount(i, rnd.nextInt(1000));
+    }
+    List<Map.Entry<Integer, Integer>> expected = new ArrayList<>(large.entrySet());
+    expected.sort((e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+
+    List<Map.Entry<Integer, Integer>> top = large.parallelMostCommon(100);
+    assertEquals(100, top.size());
+    for (int i = 0; i < top.size(); i++) {
+      assertEquals(expected.get(i).getValue(), top.get(i).getValue());
+    }
+    assertThat(large.mostCommon(100).get(99).getValue(), is(top.get(99).getValue()));
+
+    List<Map.Entry<Integer, Integer>> bottom = large.parallelLeastCommon(100);
+    assertEquals(expected.get(expected.size() - 100).getValue(), bottom.get(99).getValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMostCommonNegative() {
+    counter.mostCommon(-1);
+  }
+}
@@ -0,0 +1,81 @@
+package com.pengyifan.commons.collections.counter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CountersTest {
+
+  @Test
+  public void testMerge() {
+    List<Counter<Integer>> counters = new ArrayList<>();
+    HashCounter<Integer> expected = new HashCounter<>();
+    for (int i = 0; i < 37; i++) {
+      HashCounter<Integer> counter = new HashCounter<>();
+      for (int j = 0; j < 100; j++) {
+        counter.incrementCount(i * j % 211, j);
+        expected.incrementCount(i * j % 211, j);
+      }
+      counters.add(counter);
+    }
+    OpenHashCounter<Integer> merged = Counters.merge(counters, OpenHashCounter::new);
+    assertEquals(expected, merged);
+    assertEquals(expected.totalCount(), merged.totalCount());
+    // the inputs are not modified
+    assertEquals(100 * 99 / 2, counters.get(5).totalCount());
+  }
+
+  @Test
+  public void testMergeSharedVocabulary() {
+    // 512 counters over the same 1000 keys
+    List<Counter<Integer>> counters = new ArrayList<>();
+    HashCounter<Integer> expected = new HashCounter<>();
+    for (int i = 0; i < 512; i++) {
+      HashCounter<Integer> counter = new HashCounter<>();
+      for (int j = 0; j < 1000; j++) {
+        counter.incrementCount(j, i + 1);
+        expected.incrementCount(j, i + 1);
+      }
+      counters.add(counter);
+    }
+    AtomicInteger maxRequested = new AtomicInteger();
+    OpenHashCounter<Integer> merged = Counters.merge(counters, size -> {
+      maxRequested.accumulateAndGet(size, Math::max);
+      return new OpenHashCounter<>(size);
+    });
+    assertEquals(expected, merged);
+    assertEquals(expected.totalCount(), merged.totalCount());
+    // sized by the largest input, not by the sum of the sizes
+    assertEquals(1000, maxRequested.get());
+  }
+
+  @Test
+  public void testMergeEmpty() {
+    assertTrue(Counters.merge(Collections.<Counter<String>>emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testToCounter() {
+    Counter<Integer> counter = IntStream.range(0, 100000)
+        .parallel()
+        .boxed()
+        .map(i -> i % 7)
+        .collect(Counters.toCounter());
+    assertEquals(7, counter.size());
+    assertEquals(100000, counter.totalCount());
+    assertEquals(14286, counter.getCount(0));
+    assertEquals(14285, counter.getCount(6));
+
+    OpenHashCounter<Integer> open = IntStream.range(0, 100)
+        .boxed()
+        .collect(Counters.toCounter(OpenHashCounter::new));
+    assertEquals(100, open.size());
+  }
+}
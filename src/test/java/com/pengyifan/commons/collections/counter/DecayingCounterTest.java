@@ -0,0 +1,90 @@
+package com.pengyifan.commons.collections.counter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DecayingCounterTest {
+
+  private AtomicLong clock;
+  private DecayingCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(0);
+    // counts halve every 100 ticks
+    counter = new DecayingCounter<>(100, clock::get);
+  }
+
+  @Test
+  public void testDecay() {
+    counter.incrementCount("a", 8);
+    clock.set(100);
+    assertEquals(4, counter.getCount("a"));
+    assertEquals(4.0, counter.getWeight("a"), 1e-9);
+    counter.incrementCount("b", 5);
+    assertEquals("b", counter.argmax());
+    assertEquals("a", counter.argmin());
+    assertEquals(9.0, counter.totalWeight(), 1e-9);
+
+    clock.set(300);
+    assertEquals(1.0, counter.getWeight("a"), 1e-9);
+    assertEquals(1.25, counter.getWeight("b"), 1e-9);
+    // both round to 1, argmax compares the exact weights
+    assertEquals(1, counter.getCount("a"));
+    assertEquals(1, counter.getCount("b"));
+    assertEquals("b", counter.argmax());
+    assertEquals(2, counter.totalCount());
+  }
+
+  @Test
+  public void testRemove() {
+    counter.incrementCount("a", 8);
+    counter.setCount("b", 2);
+    clock.set(100);
+    assertEquals(4, counter.remove("a"));
+    assertEquals(Integer.MIN_VALUE, counter.remove("a"));
+    assertEquals(1.0, counter.totalWeight(), 1e-9);
+  }
+
+  @Test
+  public void testRenormalize() {
+    counter.incrementCount("old", 1);
+    // far beyond the largest scale and past the point where "old" rounds to 0
+    for (int i = 0; i < 100; i++) {
+      clock.addAndGet(1000);
+      counter.incrementCount("new" + i);
+    }
+    assertFalse(counter.containsKey("old"));
+    assertEquals(1.0, counter.getWeight("new99"), 1e-9);
+    // the keys that round to 0 are dropped when renormalizing
+    assertTrue(counter.size() < 16);
+    assertEquals(1, counter.totalCount());
+
+    @SuppressWarnings("unchecked")
+    DecayingCounter<String> clone = (DecayingCounter<String>) counter.clone();
+    clock.addAndGet(100);
+    assertEquals(0.5, clone.getWeight("new99"), 1e-9);
+  }
+
+  @Test
+  public void testRemoveZeroCounts() {
+    counter.incrementCount("a", 1);
+    counter.incrementCount("b", 8);
+    counter.setCount("c", 0);
+    clock.set(200);
+    // a decays to 0.25, b to 2
+    assertEquals(0, counter.getCount("a"));
+    assertTrue(counter.containsKey("a"));
+    counter.removeZeroCounts();
+    assertFalse(counter.containsKey("a"));
+    assertFalse(counter.containsKey("c"));
+    assertEquals(1, counter.size());
+    assertEquals(2.0, counter.totalWeight(), 1e-9);
+  }
+}
@@ -0,0 +1,117 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedCounterTest {
+
+  private IndexedCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    counter = new IndexedCounter<>();
+    counter.incrementCount("a");
+    counter.incrementCount("b", 2);
+    counter.incrementCount("c", 3);
+    counter.incrementCount("d");
+  }
+
+  @Test
+  public void testExtremes() {
+    assertEquals(3, counter.max());
+    assertEquals(1, counter.min());
+    assertEquals("c", counter.argmax());
+    assertThat(counter.argminSet(), is(Sets.newHashSet("a", "d")));
+
+    counter.incrementCount("a", 5);
+    assertEquals(6, counter.max());
+    assertEquals("a", counter.argmax());
+    assertEquals("d", counter.argmin());
+  }
+
+  @Test
+  public void testMostCommon() {
+    List<Map.Entry<String, Integer>> top = counter.mostCommon(3);
+    assertEquals("c", top.get(0).getKey());
+    assertEquals("b", top.get(1).getKey());
+    assertEquals(1, top.get(2).getValue().intValue());
+    assertEquals(4, counter.mostCommon(5).size());
+
+    List<Map.Entry<String, Integer>> bottom = counter.leastCommon(2);
+    assertThat(Sets.newHashSet(bottom.get(0).getKey(), bottom.get(1).getKey()),
+        is(Sets.newHashSet("a", "d")));
+    assertTrue(new IndexedCounter<String>().mostCommon(3).isEmpty());
+  }
+
+  @Test
+  public void testEmpty() {
+    counter.clear();
+    assertNull(counter.argmax());
+    assertEquals(Integer.MIN_VALUE, counter.max());
+    assertEquals(Integer.MAX_VALUE, counter.min());
+    assertTrue(counter.argmaxSet().isEmpty());
+  }
+
+  @Test
+  public void testKeys() {
+    assertThat(counter.keysAt(1), is(Sets.newHashSet("a", "d")));
+    assertThat(counter.keysAbove(2), is(Sets.newHashSet("b", "c")));
+    assertThat(counter.keysBelow(2), is(Sets.newHashSet("a", "b", "d")));
+    assertTrue(counter.keysAt(4).isEmpty());
+  }
+
+  @Test
+  public void testRemoveZeroCounts() {
+    counter.decrementCount("a");
+    counter.setCount("c", 0);
+    assertEquals(3, counter.totalCount());
+    counter.removeZeroCounts();
+    assertThat(counter.keySet(), is(Sets.newHashSet("b", "d")));
+    assertEquals(2, counter.max());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    HashCounter<Integer> expected = new HashCounter<>();
+    IndexedCounter<Integer> actual = new IndexedCounter<>();
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(300);
+      switch (random.nextInt(5)) {
+      case 0:
+        expected.remove(key);
+        actual.remove(key);
+        break;
+      case 1:
+        int count = random.nextInt(20) - 10;
+        expected.incrementCount(key, count);
+        actual.incrementCount(key, count);
+        break;
+      default:
+        expected.incrementCount(key);
+        actual.incrementCount(key);
+      }
+      if (i % 500 == 0) {
+        assertEquals(expected, actual);
+        assertEquals(expected.totalCount(), actual.totalCount());
+        assertEquals(expected.max(), actual.max());
+        assertEquals(expected.min(), actual.min());
+        assertEquals(expected.argmaxSet(), actual.argmaxSet());
+        assertEquals(expected.keysAbove(10), actual.keysAbove(10));
+        assertEquals(expected.keysBelow(0), actual.keysBelow(0));
+        assertEquals(expected.keysAt(3), actual.keysAt(3));
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MappedCounterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip()
+      throws IOException {
+    Random random = new Random(0);
+    HashCounter<String> expected = new HashCounter<>();
+    for (int i = 0; i < 5000; i++) {
+      StringBuilder sb = new StringBuilder("pre");
+      int length = random.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        sb.append((char) ('a' + random.nextInt(4)));
+      }
+      if (random.nextInt(50) == 0) {
+        sb.append("é中");
+      }
+      expected.incrementCount(sb.toString(), random.nextInt(1000) - 100);
+    }
+
+    File file = folder.newFile();
+    MappedCounter.write(expected, file);
+    MappedCounter actual = MappedCounter.open(file);
+
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.totalCount(), actual.totalCount());
+    for (String key : expected.keySet()) {
+      assertEquals(expected.getCount(key), actual.getCount(key));
+    }
+    assertEquals(0, actual.getCount("preé"));
+    assertEquals(0, actual.getCount(""));
+    assertEquals(0, actual.getCount("zzz"));
+    assertFalse(actual.containsKey("a"));
+    assertEquals(expected, actual);
+
+    // blocks are decoded in parallel
+    assertEquals(expected.size(), StreamSupport.stream(actual.spliterator(), true).count());
+    HashCounter<String> copy = new HashCounter<>();
+    Counter.Cursor<String> cursor = actual.cursor();
+    while (cursor.advance()) {
+      copy.incrementCount(cursor.key(), cursor.count());
+    }
+    assertEquals(expected, copy);
+
+    // keys are iterated in sorted order
+    List<String> keys = Lists.newArrayList(actual.keySet());
+    for (int i = 1; i < keys.size(); i++) {
+      assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+    }
+  }
+
+  @Test
+  public void testEmpty()
+      throws IOException {
+    File file = folder.newFile();
+    MappedCounter.write(new HashCounter<>(), file);
+    MappedCounter actual = MappedCounter.open(file);
+    assertTrue(actual.isEmpty());
+    assertEquals(0, actual.getCount("a"));
+    assertThat(actual.keySet().isEmpty(), is(true));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly()
+      throws IOException {
+    File file = folder.newFile();
+    MappedCounter.write(new HashCounter<>(), file);
+    MappedCounter.open(file).incrementCount("a");
+  }
+}
@@ -0,0 +1,149 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class OpenHashCounterTest {
+
+  private OpenHashCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    counter = new OpenHashCounter<>();
+    counter.incrementCount("a");
+    counter.incrementCount("b", 2);
+    counter.incrementCount("c", 3);
+    counter.incrementCount("d");
+  }
+
+  @Test
+  public void testGetCount() {
+    assertEquals(3, counter.getCount("c"));
+    assertEquals(0, counter.getCount("z"));
+    assertEquals(7, counter.totalCount());
+    assertEquals(4, counter.size());
+  }
+
+  @Test
+  public void testArgmax() {
+    assertEquals("c", counter.argmax());
+    assertThat(counter.argminSet(), is(Sets.newHashSet("a", "d")));
+    assertThat(counter.keysAbove(2), is(Sets.newHashSet("b", "c")));
+  }
+
+  @Test
+  public void testNullKey() {
+    counter.incrementCount(null, 5);
+    assertTrue(counter.containsKey(null));
+    assertEquals(5, counter.getCount(null));
+    assertEquals(5, counter.remove(null));
+    assertFalse(counter.containsKey(null));
+  }
+
+  @Test
+  public void testRemove() {
+    assertEquals(2, counter.remove("b"));
+    assertEquals(Integer.MIN_VALUE, counter.remove("b"));
+    assertEquals(5, counter.totalCount());
+    assertThat(counter.keySet(), is(Sets.newHashSet("a", "c", "d")));
+  }
+
+  @Test
+  public void testEquals() {
+    HashCounter<String> other = new HashCounter<>(counter);
+    assertEquals(other, counter);
+    assertEquals(counter, other);
+    assertEquals(other.hashCode(), counter.hashCode());
+  }
+
+  @Test
+  public void testEntrySetValue() {
+    for (Map.Entry<String, Integer> entry : counter.entrySet()) {
+      entry.setValue(entry.getValue() * 2);
+    }
+    assertEquals(6, counter.getCount("c"));
+    assertEquals(14, counter.totalCount());
+  }
+
+  @Test
+  public void testPrimitiveIteration() {
+    int[] total = new int[]{0};
+    counter.forEach((key, count) -> total[0] += count);
+    assertEquals(7, total[0]);
+
+    Counter.Cursor<String> cursor = counter.cursor();
+    Set<String> keys = new HashSet<>();
+    while (cursor.advance()) {
+      keys.add(cursor.key());
+      assertEquals(counter.getCount(cursor.key()), cursor.count());
+    }
+    assertEquals(Sets.newHashSet("a", "b", "c", "d"), keys);
+
+    OpenHashCounter<Integer> large = new OpenHashCounter<>();
+    for (int i = 0; i < 10000; i++) {
+      large.incrementCount(i, 2);
+    }
+    assertEquals(10000, StreamSupport.stream(large.spliterator(), true)
+        .distinct()
+        .count());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    Map<Integer, Integer> expected = new HashMap<>();
+    OpenHashCounter<Integer> actual = new OpenHashCounter<>(0);
+    for (int i = 0; i < 100000; i++) {
+      int key = random.nextInt(2000);
+      if (random.nextInt(4) == 0) {
+        expected.remove(key);
+        actual.remove(key);
+      } else {
+        expected.merge(key, 1, Integer::sum);
+        actual.incrementCount(key);
+      }
+    }
+    assertCounterEquals(expected, actual);
+
+    // remove through the iterator while walking the table
+    Set<Integer> visited = new HashSet<>();
+    Iterator<Integer> itr = actual.keySet().iterator();
+    while (itr.hasNext()) {
+      Integer key = itr.next();
+      assertTrue(visited.add(key));
+      if (key % 3 != 0) {
+        itr.remove();
+      }
+    }
+    assertEquals(expected.keySet(), visited);
+    expected.keySet().removeIf(key -> key % 3 != 0);
+    assertCounterEquals(expected, actual);
+  }
+
+  private static void assertCounterEquals(Map<Integer, Integer> expected,
+      Counter<Integer> actual) {
+    assertEquals(expected.size(), actual.size());
+    int total = 0;
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue().intValue(), actual.getCount(entry.getKey()));
+      total += entry.getValue();
+    }
+    assertEquals(total, actual.totalCount());
+    assertEquals(expected.keySet(), Sets.newHashSet(actual.keySet()));
+  }
+}
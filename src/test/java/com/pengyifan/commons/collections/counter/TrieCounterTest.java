@@ -0,0 +1,114 @@
+package com.pengyifan.commons.collections.counter;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TrieCounterTest {
+
+  private TrieCounter counter;
+
+  @Before
+  public void setUp() {
+    counter = new TrieCounter();
+    counter.incrementCount("run", 3);
+    counter.incrementCount("runs", 2);
+    counter.incrementCount("running");
+    counter.incrementCount("ran", 4);
+    counter.incrementCount("walk", 5);
+  }
+
+  @Test
+  public void testCounts() {
+    assertEquals(3, counter.getCount("run"));
+    assertEquals(0, counter.getCount("ru"));
+    assertEquals(0, counter.getCount("xyz"));
+    assertTrue(counter.containsKey("running"));
+    assertFalse(counter.containsKey("runn"));
+    assertEquals(5, counter.size());
+    assertEquals(15, counter.totalCount());
+  }
+
+  @Test
+  public void testPrefix() {
+    assertEquals(6, counter.prefixCount("run"));
+    assertEquals(10, counter.prefixCount("r"));
+    assertEquals(15, counter.prefixCount(""));
+    assertEquals(0, counter.prefixCount("x"));
+    assertThat(counter.keysWithPrefix("ru"),
+        is(Lists.newArrayList("run", "running", "runs")));
+    assertTrue(counter.keysWithPrefix("walking").isEmpty());
+
+    counter.setCount("runs", 10);
+    assertEquals(14, counter.prefixCount("run"));
+    counter.remove("running");
+    assertEquals(13, counter.prefixCount("run"));
+    assertThat(counter.keysWithPrefix("run"), is(Lists.newArrayList("run", "runs")));
+  }
+
+  @Test
+  public void testOrder() {
+    counter.incrementCount("");
+    List<String> keys = new ArrayList<>(counter.keySet());
+    assertThat(keys, is(Lists.newArrayList("", "ran", "run", "running", "runs", "walk")));
+    assertThat(new TreeCounter<>(counter).keySet(), is(counter.keySet()));
+
+    Iterator<Map.Entry<String, Integer>> itr = counter.entrySet().iterator();
+    assertEquals(1, itr.next().getValue().intValue());
+    assertEquals("ran", itr.next().getKey());
+  }
+
+  @Test
+  public void testRemove() {
+    assertEquals(3, counter.remove("run"));
+    assertEquals(Integer.MIN_VALUE, counter.remove("run"));
+    assertEquals(Integer.MIN_VALUE, counter.remove("ru"));
+    assertEquals(3, counter.prefixCount("run"));
+    assertEquals(4, counter.size());
+
+    counter.setCount("ran", 0);
+    counter.removeZeroCounts();
+    assertFalse(counter.containsKey("ran"));
+    assertEquals(8, counter.totalCount());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random rnd = new Random(1);
+    TrieCounter trie = new TrieCounter();
+    HashCounter<String> expected = new HashCounter<>();
+    for (int i = 0; i < 20000; i++) {
+      String key = Integer.toString(rnd.nextInt(2000), 7);
+      if (rnd.nextInt(4) == 0) {
+        assertEquals(expected.remove(key), trie.remove(key));
+      } else {
+        int count = rnd.nextInt(5);
+        trie.incrementCount(key, count);
+        expected.incrementCount(key, count);
+      }
+    }
+    assertEquals(expected.size(), trie.size());
+    assertEquals(expected.totalCount(), trie.totalCount());
+    assertEquals(expected, new HashCounter<>(trie));
+
+    int prefixCount = 0;
+    for (String key : expected.keySet()) {
+      if (key.startsWith("12")) {
+        prefixCount += expected.getCount(key);
+      }
+    }
+    assertEquals(prefixCount, trie.prefixCount("12"));
+  }
+}
@@ -0,0 +1,131 @@
+package com.pengyifan.commons.collections.counter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WindowedCounterTest {
+
+  private AtomicLong clock;
+  private WindowedCounter<String> counter;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(1000);
+    // 3 buckets of 10 ticks
+    counter = new WindowedCounter<>(3, 10, clock::get);
+  }
+
+  @Test
+  public void testExpire() {
+    counter.incrementCount("a", 2);
+    clock.set(1010);
+    counter.incrementCount("a");
+    counter.incrementCount("b", 5);
+    assertEquals(3, counter.getCount("a"));
+    assertEquals(8, counter.totalCount());
+    assertEquals("b", counter.argmax());
+
+    // the first bucket falls out of the window
+    clock.set(1030);
+    assertEquals(1, counter.getCount("a"));
+    assertEquals(6, counter.totalCount());
+    assertEquals("b", counter.mostCommon(1).get(0).getKey());
+
+    clock.set(1045);
+    assertFalse(counter.containsKey("a"));
+    assertTrue(counter.isEmpty());
+    assertEquals(0, counter.totalCount());
+  }
+
+  @Test
+  public void testIdle() {
+    counter.incrementCount("a");
+    clock.set(1000000);
+    assertEquals(0, counter.size());
+    counter.incrementCount("a");
+    assertEquals(1, counter.getCount("a"));
+  }
+
+  @Test
+  public void testSetCountAndRemove() {
+    counter.incrementCount("a", 4);
+    clock.set(1010);
+    counter.setCount("a", 1);
+    assertEquals(1, counter.getCount("a"));
+    assertEquals(1, counter.totalCount());
+    clock.set(1030);
+    // the bucket of the 4 expires, the count set in the next bucket remains
+    assertEquals(1, counter.getCount("a"));
+    assertEquals(1, counter.totalCount());
+    clock.set(1040);
+    assertEquals(0, counter.getCount("a"));
+    assertFalse(counter.containsKey("a"));
+    assertEquals(0, counter.totalCount());
+
+    counter.incrementCount("b", 2);
+    assertEquals(2, counter.remove("b"));
+    clock.set(1060);
+    assertFalse(counter.containsKey("b"));
+    assertEquals(0, counter.totalCount());
+  }
+
+  @Test
+  public void testRemoveZeroCounts() {
+    counter.incrementCount("a", 3);
+    counter.incrementCount("b", 2);
+    Iterator<Map.Entry<String, Integer>> itr = counter.entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry<String, Integer> e = itr.next();
+      if (e.getKey().equals("a")) {
+        e.setValue(0);
+      }
+    }
+    assertFalse(counter.containsKey("a"));
+    assertEquals(2, counter.totalCount());
+    counter.removeZeroCounts();
+    assertEquals(1, counter.size());
+    assertEquals(2, counter.getCount("b"));
+
+    itr = counter.entrySet().iterator();
+    itr.next();
+    itr.remove();
+    assertTrue(counter.isEmpty());
+    assertEquals(0, counter.totalCount());
+    clock.set(1010);
+    counter.incrementCount("b");
+    assertEquals(1, counter.getCount("b"));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random rnd = new Random(1);
+    int[] times = new int[5000];
+    String[] keys = new String[times.length];
+    for (int i = 0; i < times.length; i++) {
+      clock.addAndGet(rnd.nextInt(3));
+      times[i] = (int) clock.get();
+      keys[i] = Integer.toString(rnd.nextInt(20));
+      counter.incrementCount(keys[i]);
+    }
+    // counts the increments in the current bucket and the two before it
+    long start = (clock.get() / 10 - 2) * 10;
+    HashCounter<String> expected = new HashCounter<>();
+    for (int i = 0; i < times.length; i++) {
+      if (times[i] >= start) {
+        expected.incrementCount(keys[i]);
+      }
+    }
+    assertEquals(expected, counter);
+    assertEquals(expected.totalCount(), counter.totalCount());
+    assertEquals(expected, counter.clone());
+  }
+}
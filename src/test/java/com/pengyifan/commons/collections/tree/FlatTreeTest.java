@@ -0,0 +1,107 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class FlatTreeTest {
+
+  private final StringTree a = new StringTree("A");
+  private final StringTree b = new StringTree("B");
+  private final StringTree c = new StringTree("C");
+  private final StringTree d = new StringTree("D");
+  private final StringTree e = new StringTree("E");
+  private final StringTree f = new StringTree("F");
+
+  private FlatTree<String> flat;
+
+  @Before
+  public void setUp() {
+    // A (B (C F) D E)
+    a.add(b);
+    a.add(d);
+    a.add(e);
+    b.add(c);
+    b.add(f);
+    flat = FlatTree.of(a);
+  }
+
+  @Test
+  public void testStructure() {
+    assertEquals(6, flat.size());
+    assertEquals("A", flat.getObject(flat.root()));
+    assertEquals(FlatTree.NONE, flat.getParent(0));
+    // preorder: A B C F D E
+    assertEquals(1, flat.getFirstChild(0));
+    assertEquals(4, flat.getNextSibling(1));
+    assertEquals(FlatTree.NONE, flat.getNextSibling(5));
+    assertEquals(1, flat.getParent(3));
+    assertEquals(3, flat.getSubtreeSize(1));
+    assertEquals(2, flat.getLevel(3));
+    assertEquals(3, flat.getChildCount(0));
+    assertTrue(flat.isLeaf(2));
+    assertFalse(flat.isLeaf(1));
+    assertTrue(flat.isAncestor(1, 3));
+    assertFalse(flat.isAncestor(1, 4));
+  }
+
+  @Test
+  public void testTraversals() {
+    assertThat(objects(flat, flat.preorder(0)), is(Lists.newArrayList("A", "B", "C", "F", "D", "E")));
+    assertThat(objects(flat, flat.postorder(0)), is(Lists.newArrayList("C", "F", "B", "D", "E", "A")));
+    assertThat(objects(flat, flat.postorder(1)), is(Lists.newArrayList("C", "F", "B")));
+    assertThat(objects(flat, flat.breadthFirst(0)),
+        is(Lists.newArrayList("A", "B", "D", "E", "C", "F")));
+    assertThat(objects(flat, flat.leaves(0)), is(Lists.newArrayList("C", "F", "D", "E")));
+    assertThat(flat.getLeafObjects(1), is(Lists.newArrayList("C", "F")));
+  }
+
+  @Test
+  public void testSubtree() {
+    FlatTree<String> sub = FlatTree.of(b);
+    assertEquals(3, sub.size());
+    assertEquals(0, sub.getLevel(0));
+    assertThat(objects(sub, sub.postorder(0)), is(Lists.newArrayList("C", "F", "B")));
+  }
+
+  @Test
+  public void testToTree() {
+    StringTree copy = flat.toTree(StringTree::new);
+    assertThat(objects(copy.preorderList()), is(objects(a.preorderList())));
+    assertThat(objects(copy.stream(Tree.Order.POSTORDER)), is(objects(a.stream(Tree.Order.POSTORDER))));
+    assertEquals(3, copy.getChildCount());
+  }
+
+  @Test
+  public void testMatchesTree() {
+    StringTree root = StringTree.randomNodes(new Random(1), 500).get(0);
+    FlatTree<String> large = FlatTree.of(root);
+    assertThat(objects(large, large.postorder(0)), is(objects(root.stream(Tree.Order.POSTORDER))));
+    assertThat(objects(large, large.breadthFirst(0)), is(objects(root.breadthFirstList())));
+    assertThat(large.getLeafObjects(0), is(root.getLeafObjects()));
+  }
+
+  private List<String> objects(FlatTree<String> tree, IntStream nodes) {
+    return nodes.mapToObj(tree::getObject).collect(Collectors.toList());
+  }
+
+  private List<String> objects(List<StringTree> nodes) {
+    return objects(nodes.stream());
+  }
+
+  private List<String> objects(Stream<StringTree> nodes) {
+    return nodes.map(StringTree::getObject).collect(Collectors.toList());
+  }
+}
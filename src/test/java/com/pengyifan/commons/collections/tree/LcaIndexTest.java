@@ -0,0 +1,91 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LcaIndexTest {
+
+  private final StringTree a = new StringTree("A");
+  private final StringTree b = new StringTree("B");
+  private final StringTree c = new StringTree("C");
+  private final StringTree d = new StringTree("D");
+  private final StringTree e = new StringTree("E");
+  private final StringTree f = new StringTree("F");
+
+  private LcaIndex<String, StringTree> index;
+
+  @Before
+  public void setUp() {
+    // A (B (C F) D (E))
+    a.add(b);
+    a.add(d);
+    b.add(c);
+    b.add(f);
+    d.add(e);
+    index = LcaIndex.of(a);
+  }
+
+  @Test
+  public void testLca() {
+    assertEquals(6, index.size());
+    assertSame(b, index.lca(c, f));
+    assertSame(a, index.lca(f, e));
+    assertSame(b, index.lca(b, f));
+    assertSame(c, index.lca(c, c));
+    assertSame(a, index.lca(a, e));
+  }
+
+  @Test
+  public void testDistance() {
+    assertEquals(0, index.distance(c, c));
+    assertEquals(2, index.distance(c, f));
+    assertEquals(4, index.distance(c, e));
+    assertEquals(2, index.distance(a, e));
+    assertEquals(2, index.getLevel(f));
+  }
+
+  @Test
+  public void testDominates() {
+    assertTrue(index.dominates(a, f));
+    assertTrue(index.dominates(b, c));
+    assertFalse(index.dominates(b, b));
+    assertFalse(index.dominates(c, b));
+    assertFalse(index.dominates(b, e));
+  }
+
+  @Test
+  public void testSubtree() {
+    LcaIndex<String, StringTree> sub = LcaIndex.of(b);
+    assertEquals(3, sub.size());
+    assertEquals(1, sub.getLevel(f));
+    assertSame(b, sub.lca(c, f));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotInTree() {
+    LcaIndex.of(b).lca(c, e);
+  }
+
+  @Test
+  public void testMatchesTreeUtils() {
+    List<StringTree> nodes = StringTree.randomNodes(new Random(1), 300);
+    StringTree root = nodes.get(0);
+    LcaIndex<String, StringTree> large = LcaIndex.of(root);
+    for (StringTree t1 : nodes) {
+      for (StringTree t2 : nodes) {
+        StringTree lca = TreeUtils.getLowestCommonAncestor(t1, t2);
+        assertSame(lca, large.lca(t1, t2));
+        assertEquals(t1.getLevel() + t2.getLevel() - 2 * lca.getLevel(), large.distance(t1, t2));
+        assertEquals(t1 != t2 && t1.dominates(t2), large.dominates(t1, t2));
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PennTreeReaderTest {
+
+  private static final String TREES = "(S (NP (DT The) (NN dog)) (VP (VBZ barks)))\n"
+      + "( (S (NP (PRP It)) (VP (VBZ runs))))\n"
+      + "word\n";
+
+  @Test
+  public void testReadTree() throws IOException {
+    PennTreeReader<String, StringTree> reader = new PennTreeReader<>(new StringReader(TREES),
+        StringTree::new);
+    StringTree t = reader.readTree();
+    assertEquals("S", t.getObject());
+    assertEquals(2, t.getChildCount());
+    assertThat(t.getLeafObjects(), is(Lists.newArrayList("The", "dog", "barks")));
+    assertEquals("NN", t.getChild(0).getChild(1).getObject());
+
+    t = reader.readTree();
+    assertEquals("", t.getObject());
+    assertEquals("S", t.getChild(0).getObject());
+    assertThat(t.getLeafObjects(), is(Lists.newArrayList("It", "runs")));
+
+    t = reader.readTree();
+    assertEquals("word", t.getObject());
+    assertTrue(t.isLeaf());
+
+    assertNull(reader.readTree());
+    reader.close();
+  }
+
+  @Test
+  public void testSmallBuffer() throws IOException {
+    // tokens and labels span the buffer boundaries
+    for (int size = 1; size < 8; size++) {
+      PennTreeReader<String, StringTree> reader = new PennTreeReader<>(
+          CharBuffer.wrap(TREES), StringTree::new, null, size);
+      List<String> leaves = Lists.newArrayList();
+      for (StringTree t = reader.readTree(); t != null; t = reader.readTree()) {
+        leaves.addAll(t.getLeafObjects());
+      }
+      assertThat(leaves, is(Lists.newArrayList("The", "dog", "barks", "It", "runs", "word")));
+    }
+  }
+
+  @Test
+  public void testInterner() throws IOException {
+    Interner<String> interner = Interners.newStrongInterner();
+    PennTreeReader<String, StringTree> reader = new PennTreeReader<>(
+        CharBuffer.wrap("(NP (NN a)) (NP (NN b))"), StringTree::new, interner);
+    StringTree t1 = reader.readTree();
+    StringTree t2 = reader.readTree();
+    assertSame(t1.getObject(), t2.getObject());
+    assertSame(t1.getChild(0).getObject(), t2.getChild(0).getObject());
+  }
+
+  @Test
+  public void testDeep() throws IOException {
+    int depth = 100000;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("(X ");
+    }
+    sb.append("leaf");
+    for (int i = 0; i < depth; i++) {
+      sb.append(')');
+    }
+    StringTree t = new PennTreeReader<>(CharBuffer.wrap(sb), StringTree::new).readTree();
+    assertEquals("leaf", t.getFirstLeaf().getObject());
+    assertEquals(depth, t.getFirstLeaf().getLevel());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnmatched() throws IOException {
+    PennTreeReader<String, StringTree> reader = new PennTreeReader<>(CharBuffer.wrap("(A b))"),
+        StringTree::new);
+    assertEquals("A", reader.readTree().getObject());
+    reader.readTree();
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnclosed() throws IOException {
+    new PennTreeReader<>(CharBuffer.wrap("(A (B c)"), StringTree::new).readTree();
+  }
+}
@@ -0,0 +1,43 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class PennTreeWriterTest {
+
+  private final PennTreeWriter<String, StringTree> writer = new PennTreeWriter<>();
+
+  @Test
+  public void testWrite() throws IOException {
+    String s = "(S (NP (DT The) (NN dog)) (VP (VBZ barks)))";
+    StringWriter out = new StringWriter();
+    writer.write(StringTree.read(s), out);
+    assertEquals(s, out.toString());
+    assertEquals("( (S (NP (PRP It))))", writer.toString(StringTree.read("( (S (NP (PRP It))))")));
+    assertEquals("word", writer.toString(StringTree.read("word")));
+  }
+
+  @Test
+  public void testFormatter() throws IOException {
+    PennTreeWriter<String, StringTree> lower = new PennTreeWriter<>(String::toLowerCase);
+    assertEquals("(np (nn dog))", lower.toString(StringTree.read("(NP (NN Dog))")));
+  }
+
+  @Test
+  public void testDeep() throws IOException {
+    int depth = 100000;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("(X ");
+    }
+    sb.append("leaf");
+    for (int i = 0; i < depth; i++) {
+      sb.append(')');
+    }
+    assertEquals(sb.toString(), writer.toString(StringTree.read(sb)));
+  }
+}
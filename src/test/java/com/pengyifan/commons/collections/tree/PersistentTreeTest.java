@@ -0,0 +1,103 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentTreeTest {
+
+  private static final String S = "(S (NP (DT the) (NN dog)) (VP (VBZ sees) (NP (DT a) (NN cat))))";
+
+  @Test
+  public void testOf() throws IOException {
+    PersistentTree<String> t = PersistentTree.of(StringTree.read(S));
+    assertEquals(S, t.toString());
+    assertEquals(14, t.size());
+    assertEquals(4, t.getDepth());
+    assertEquals(Arrays.asList("the", "dog", "sees", "a", "cat"), t.getLeafObjects());
+    assertEquals("VBZ", t.getNode(1, 0).getObject());
+    assertEquals(S, new PennTreeWriter<String, StringTree>().toString(t.toTree(StringTree::new)));
+    PersistentTree<String> leaf = PersistentTree.of("x");
+    assertEquals(PersistentTree.of("NP", leaf), PersistentTree.of("NP", PersistentTree.of("x")));
+  }
+
+  @Test
+  public void testWithObject() throws IOException {
+    PersistentTree<String> t = PersistentTree.of(StringTree.read(S));
+    PersistentTree<String> u = t.withObject(new int[] { 1, 1, 1, 0 }, "dog");
+    assertEquals(S, t.toString());
+    assertEquals("(S (NP (DT the) (NN dog)) (VP (VBZ sees) (NP (DT a) (NN dog))))", u.toString());
+    // only the path is copied
+    assertSame(t.getChild(0), u.getChild(0));
+    assertSame(t.getNode(1, 0), u.getNode(1, 0));
+    assertSame(t.getNode(1, 1, 0), u.getNode(1, 1, 0));
+    assertNotEquals(t, u);
+    assertEquals(u, PersistentTree.of(StringTree.read(u.toString())));
+    assertEquals(u.hashCode(), PersistentTree.of(StringTree.read(u.toString())).hashCode());
+    assertEquals("X", t.withObject("X").getObject());
+    assertSame(t.getChild(1), t.withObject("X").getChild(1));
+  }
+
+  @Test
+  public void testWithChild() throws IOException {
+    PersistentTree<String> t = PersistentTree.of(StringTree.read(S));
+    PersistentTree<String> jj = PersistentTree.of("JJ", PersistentTree.of("big"));
+    PersistentTree<String> u = t.withChild(new int[] { 0 }, 1, jj);
+    assertEquals("(S (NP (DT the) (JJ big) (NN dog)) (VP (VBZ sees) (NP (DT a) (NN cat))))",
+        u.toString());
+    assertEquals(16, u.size());
+    assertSame(t.getChild(1), u.getChild(1));
+    assertEquals(S, t.toString());
+    PersistentTree<String> v = t.withChild(PersistentTree.of("."));
+    assertEquals(3, v.getChildCount());
+    assertEquals(".", v.getChild(2).getObject());
+  }
+
+  @Test
+  public void testWithoutChild() throws IOException {
+    PersistentTree<String> t = PersistentTree.of(StringTree.read(S));
+    PersistentTree<String> u = t.withoutChild(new int[] { 1 }, 0);
+    assertEquals("(S (NP (DT the) (NN dog)) (VP (NP (DT a) (NN cat))))", u.toString());
+    assertSame(t.getNode(1, 1), u.getNode(1, 0));
+    assertEquals(S, t.toString());
+    assertTrue(t.withoutChild(new int[] { 0, 0 }, 0).getNode(0, 0).isLeaf());
+  }
+
+  @Test
+  public void testUpdate() throws IOException {
+    PersistentTree<String> t = PersistentTree.of(StringTree.read(S));
+    assertSame(t, t.update(new int[] { 1, 1 }, node -> node));
+    PersistentTree<String> vp = t.getChild(1);
+    assertEquals("(S (VP (VBZ sees) (NP (DT a) (NN cat))) (VP (VBZ sees) (NP (DT a) (NN cat))))",
+        t.update(new int[] { 0 }, node -> vp).toString());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testBadPath() throws IOException {
+    PersistentTree.of(StringTree.read(S)).withObject(new int[] { 2 }, "X");
+  }
+
+  @Test
+  public void testDeep() {
+    int depth = 50000;
+    PersistentTree<String> t = PersistentTree.of("x");
+    for (int i = 0; i < depth; i++) {
+      t = PersistentTree.of("x", t);
+    }
+    int[] path = new int[depth];
+    PersistentTree<String> u = t.withObject(path, "y");
+    assertEquals(depth, u.getDepth());
+    assertEquals(depth + 1, u.size());
+    assertEquals(Arrays.asList("y"), u.getLeafObjects());
+    assertNotEquals(t, u);
+    assertEquals(t, t.withObject(path, "x"));
+    assertEquals(depth + 1, u.toTree(StringTree::new).preorderList().size());
+    assertEquals(u, PersistentTree.of(u.toTree(StringTree::new)));
+  }
+}
@@ -0,0 +1,50 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * A tree of strings for the tests, with helpers to read trees and to generate random trees.
+ */
+public class StringTree extends Tree<String, StringTree> {
+
+  public StringTree(String s) {
+    super(s);
+  }
+
+  /**
+   * Reads a tree in the bracketed format of the Penn Treebank.
+   */
+  public static StringTree read(CharSequence s) throws IOException {
+    return new PennTreeReader<>(CharBuffer.wrap(s), StringTree::new).readTree();
+  }
+
+  /**
+   * Returns the nodes of a random tree of n nodes labeled by their ids, in the order they were
+   * created. The root comes first, and every other node is the last child of a random earlier
+   * node.
+   */
+  public static List<StringTree> randomNodes(Random rnd, int n) {
+    return randomNodes(rnd, n, Integer::toString);
+  }
+
+  /**
+   * Returns the nodes of a random tree of n nodes in the order they were created, where the node
+   * i is labeled by labels.apply(i).
+   */
+  public static List<StringTree> randomNodes(Random rnd, int n, IntFunction<String> labels) {
+    List<StringTree> nodes = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      StringTree node = new StringTree(labels.apply(i));
+      if (i > 0) {
+        nodes.get(rnd.nextInt(i)).add(node);
+      }
+      nodes.add(node);
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,141 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TreeAnnotationsTest {
+
+  private final StringTree a = new StringTree("A");
+  private final StringTree b = new StringTree("B");
+  private final StringTree c = new StringTree("C");
+  private final StringTree d = new StringTree("D");
+  private final StringTree e = new StringTree("E");
+  private final StringTree f = new StringTree("F");
+
+  private TreeAnnotations<String, StringTree> annotations;
+
+  @Before
+  public void setUp() {
+    // A (B (C F) D (E))
+    a.add(b);
+    a.add(d);
+    b.add(c);
+    b.add(f);
+    d.add(e);
+    annotations = TreeAnnotations.of(a);
+  }
+
+  @Test
+  public void testAnnotations() {
+    assertTrue(annotations.isValid());
+    assertEquals(a, annotations.root());
+    assertEquals(0, annotations.getLeftEdge(b));
+    assertEquals(2, annotations.getRightEdge(b));
+    assertEquals(2, annotations.getLeftEdge(d));
+    assertEquals(3, annotations.getRightEdge(e));
+    assertEquals(6, annotations.getSubtreeSize(a));
+    assertEquals(3, annotations.getSubtreeSize(b));
+    assertEquals(2, annotations.getDepth(a));
+    assertEquals(0, annotations.getDepth(f));
+    assertEquals(2, annotations.getLevel(e));
+    assertThat(annotations.getLeaves(b), is(Lists.newArrayList(c, f)));
+    assertThat(annotations.getLeafObjects(a), is(Lists.newArrayList("C", "F", "E")));
+    assertTrue(annotations.isAncestor(b, f));
+    assertFalse(annotations.isAncestor(b, e));
+  }
+
+  @Test
+  public void testTreeMethods() {
+    assertEquals(2, a.getDepth());
+    assertEquals(2, f.getLevel());
+    assertThat(d.getLeaves(), is(Lists.newArrayList(e)));
+    assertThat(b.getLeafObjects(), is(Lists.newArrayList("C", "F")));
+    assertEquals(1, TreeUtils.leftEdge(f, b));
+    assertEquals(2, TreeUtils.rightEdge(f, a));
+    assertEquals(2, TreeUtils.leftEdge(d, a));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testNotDescendant() {
+    TreeUtils.leftEdge(e, b);
+  }
+
+  @Test
+  public void testInvalidation() {
+    e.add(new StringTree("G"));
+    assertFalse(annotations.isValid());
+    assertEquals(3, a.getDepth());
+    assertThat(a.getLeafObjects(), is(Lists.newArrayList("C", "F", "G")));
+
+    annotations = TreeAnnotations.of(a);
+    b.remove(f);
+    assertFalse(annotations.isValid());
+    assertEquals(1, TreeUtils.rightEdge(b, a));
+
+    annotations = TreeAnnotations.of(a);
+    a.reversal();
+    assertFalse(annotations.isValid());
+    assertEquals(1, TreeUtils.leftEdge(b, a));
+
+    annotations = TreeAnnotations.of(a);
+    TreeAnnotations<String, StringTree> sub = TreeAnnotations.of(b);
+    assertFalse(annotations.isValid());
+    assertTrue(sub.isValid());
+    StringTree root = new StringTree("R");
+    root.add(a);
+    assertTrue(sub.isValid());
+    assertEquals(2, b.getLevel());
+    c.setParent(null);
+    assertFalse(sub.isValid());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testInvalid() {
+    a.remove(b);
+    annotations.getDepth(a);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotAnnotated() {
+    annotations.getDepth(new StringTree("G"));
+  }
+
+  @Test
+  public void testMatchesTree() {
+    List<StringTree> nodes = StringTree.randomNodes(new Random(1), 300);
+    StringTree root = nodes.get(0);
+    int[] depths = new int[nodes.size()];
+    int[] levels = new int[nodes.size()];
+    int[] leftEdges = new int[nodes.size()];
+    int[] rightEdges = new int[nodes.size()];
+    List<List<String>> leaves = Lists.newArrayList();
+    for (int i = 0; i < nodes.size(); i++) {
+      StringTree node = nodes.get(i);
+      depths[i] = node.getDepth();
+      levels[i] = node.getLevel();
+      leftEdges[i] = TreeUtils.leftEdge(node, root);
+      rightEdges[i] = TreeUtils.rightEdge(node, root);
+      leaves.add(node.getLeafObjects());
+    }
+    TreeAnnotations<String, StringTree> large = TreeAnnotations.of(root);
+    for (int i = 0; i < nodes.size(); i++) {
+      StringTree node = nodes.get(i);
+      assertEquals(depths[i], node.getDepth());
+      assertEquals(levels[i], node.getLevel());
+      assertEquals(leftEdges[i], TreeUtils.leftEdge(node, root));
+      assertEquals(rightEdges[i], TreeUtils.rightEdge(node, root));
+      assertEquals(leaves.get(i), node.getLeafObjects());
+      assertEquals(node.preorderList().size(), large.getSubtreeSize(node));
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.pengyifan.commons.collections.tree;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A rough benchmark of child and sibling navigation on deep and wide trees, with the same access
+ * patterns on a {@link LinkedList}, in which the children used to be kept, as a baseline. It is
+ * not run by the unit tests; run it with
+ * <p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.pengyifan.commons.collections.tree.TreeBenchmark
+ * </pre>
+ */
+public class TreeBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  private static class IntTree extends Tree<Integer, IntTree> {
+
+    IntTree(Integer i) {
+      super(i);
+    }
+  }
+
+  public static void main(String[] args) {
+    IntTree wide = wide(20_000);
+    List<IntTree> linked = new LinkedList<>(wide.children());
+    IntTree deep = deep(2_000, 3);
+    for (int round = 0; round < ROUNDS; round++) {
+      System.out.printf("round %d%n", round);
+      time("wide: getChild", () -> {
+        long sum = 0;
+        for (int i = 0; i < wide.getChildCount(); i++) {
+          sum += wide.getChild(i).getObject();
+        }
+        return sum;
+      });
+      time("wide: LinkedList get", () -> {
+        long sum = 0;
+        for (int i = 0; i < linked.size(); i++) {
+          sum += linked.get(i).getObject();
+        }
+        return sum;
+      });
+      time("wide: getNextSibling", () -> {
+        long sum = 0;
+        for (IntTree t = wide.getFirstChild(); t != null; t = t.getNextSibling()) {
+          sum += t.getObject();
+        }
+        return sum;
+      });
+      time("wide: indexOf", () -> {
+        long sum = 0;
+        for (IntTree child : wide.children()) {
+          sum += wide.indexOf(child);
+        }
+        return sum;
+      });
+      time("wide: LinkedList indexOf", () -> {
+        long sum = 0;
+        for (IntTree child : linked) {
+          sum += linked.indexOf(child);
+        }
+        return sum;
+      });
+      time("deep: preorder", () -> {
+        long sum = 0;
+        Iterator<IntTree> itr = deep.preorderIterator();
+        while (itr.hasNext()) {
+          sum += itr.next().getObject();
+        }
+        return sum;
+      });
+      time("deep: siblings", () -> {
+        long sum = 0;
+        Iterator<IntTree> itr = deep.preorderIterator();
+        while (itr.hasNext()) {
+          IntTree next = itr.next().getNextSibling();
+          sum += next == null ? 0 : next.getObject();
+        }
+        return sum;
+      });
+      Tree.PrettyPrint<Integer, IntTree> prettyPrint = new Tree.PrettyPrint<>();
+      time("deep: prettyPrint", () -> prettyPrint.apply(deep).length());
+    }
+  }
+
+  /**
+   * A root with n leaves.
+   */
+  private static IntTree wide(int n) {
+    IntTree root = new IntTree(-1);
+    for (int i = 0; i < n; i++) {
+      root.add(new IntTree(i));
+    }
+    return root;
+  }
+
+  /**
+   * A spine of the given depth where every node has the given number of children, the last of
+   * which continues the spine.
+   */
+  private static IntTree deep(int depth, int fanout) {
+    IntTree root = new IntTree(0);
+    IntTree spine = root;
+    int id = 1;
+    for (int d = 0; d < depth; d++) {
+      IntTree next = null;
+      for (int i = 0; i < fanout; i++) {
+        next = new IntTree(id++);
+        spine.add(next);
+      }
+      spine = next;
+    }
+    return root;
+  }
+
+  private interface Task {
+
+    long run();
+  }
+
+  private static void time(String name, Task task) {
+    long start = System.nanoTime();
+    long result = task.run();
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("  %-24s %8.2f ms (%d)%n", name, elapsed / 1e6, result);
+  }
+}
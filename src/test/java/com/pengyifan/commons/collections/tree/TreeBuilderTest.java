@@ -0,0 +1,106 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TreeBuilderTest {
+
+  private final TreeBuilder<String, StringTree> builder = new TreeBuilder<>(StringTree::new);
+  private final PennTreeWriter<String, StringTree> writer = new PennTreeWriter<>();
+
+  @Test
+  public void testFromParents() {
+    // the root does not have to come first
+    StringTree root = builder.fromParents(Arrays.asList("B", "A", "C", "D", "E"),
+        new int[] { 1, TreeBuilder.NONE, 0, 1, 0 });
+    assertEquals("(A (B C E) D)", writer.toString(root));
+    assertTrue(root.isRoot());
+  }
+
+  @Test
+  public void testFromPreorder() {
+    StringTree root = builder.fromPreorder(Arrays.asList("A", "B", "C", "E", "D"),
+        new int[] { 2, 2, 0, 0, 0 });
+    assertEquals("(A (B C E) D)", writer.toString(root));
+    assertEquals("A", builder.fromPreorder(Arrays.asList("A"), new int[] { 0 }).getObject());
+  }
+
+  @Test
+  public void testRandom() {
+    StringTree expected = StringTree.randomNodes(new Random(1), 500).get(0);
+    List<String> objects = new ArrayList<>();
+    List<StringTree> preorder = expected.preorderList();
+    int[] parents = new int[preorder.size()];
+    int[] childCounts = new int[preorder.size()];
+    for (int v = 0; v < preorder.size(); v++) {
+      StringTree node = preorder.get(v);
+      objects.add(node.getObject());
+      parents[v] = node.isRoot() ? TreeBuilder.NONE : preorder.indexOf(node.getParent());
+      childCounts[v] = node.getChildCount();
+    }
+    assertEquals(writer.toString(expected),
+        writer.toString(builder.fromParents(objects, parents)));
+    assertEquals(writer.toString(expected),
+        writer.toString(builder.fromPreorder(objects, childCounts)));
+  }
+
+  @Test
+  public void testDeep() {
+    int n = 50000;
+    List<String> objects = new ArrayList<>();
+    int[] childCounts = new int[n];
+    for (int v = 0; v < n; v++) {
+      objects.add("x");
+      childCounts[v] = v < n - 1 ? 1 : 0;
+    }
+    StringTree node = builder.fromPreorder(objects, childCounts);
+    int depth = 0;
+    while (!node.isLeaf()) {
+      node = node.getChild(0);
+      depth++;
+    }
+    assertEquals(n - 1, depth);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCycle() {
+    builder.fromParents(Arrays.asList("A", "B", "C"), new int[] { TreeBuilder.NONE, 2, 1 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSelfLoop() {
+    builder.fromParents(Arrays.asList("A", "B"), new int[] { TreeBuilder.NONE, 1 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTwoRoots() {
+    builder.fromParents(Arrays.asList("A", "B"), new int[] { TreeBuilder.NONE, TreeBuilder.NONE });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoRoot() {
+    builder.fromParents(Arrays.asList("A", "B"), new int[] { 1, 0 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParentOutOfRange() {
+    builder.fromParents(Arrays.asList("A", "B"), new int[] { TreeBuilder.NONE, 2 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingChildren() {
+    builder.fromPreorder(Arrays.asList("A", "B"), new int[] { 2, 0 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyNodes() {
+    builder.fromPreorder(Arrays.asList("A", "B", "C"), new int[] { 1, 0, 0 });
+  }
+}
@@ -0,0 +1,205 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TreeEditDistanceTest {
+
+  private static final double EPSILON = 1e-9;
+
+  private final TreeEditDistance<String, StringTree> unit = new TreeEditDistance<>();
+
+  @Test
+  public void testDistance() throws IOException {
+    // the example of Zhang and Shasha: delete c, then insert c above d
+    StringTree t1 = StringTree.read("(f (d a (c b)) e)");
+    StringTree t2 = StringTree.read("(f (c (d a b)) e)");
+    assertEquals(2, unit.distance(t1, t2), EPSILON);
+    assertEquals(2, unit.distance(t2, t1), EPSILON);
+    assertEquals(0, unit.distance(t1, StringTree.read("(f (d a (c b)) e)")), EPSILON);
+    assertEquals(1, unit.distance(t1, StringTree.read("(f (d a (c b)) g)")), EPSILON);
+    assertEquals(1, unit.distance(t1, StringTree.read("(f (d a b) e)")), EPSILON);
+    assertEquals(5, unit.distance(t1, new StringTree("f")), EPSILON);
+    assertEquals(1, unit.distance(new StringTree("a"), new StringTree("b")), EPSILON);
+  }
+
+  @Test
+  public void testCost() throws IOException {
+    // renaming costs more than deleting and inserting
+    EditCost<String> cost = new EditCost<String>() {
+      @Override
+      public double delete(String obj) {
+        return 1;
+      }
+
+      @Override
+      public double insert(String obj) {
+        return 2;
+      }
+
+      @Override
+      public double rename(String obj1, String obj2) {
+        return obj1.equals(obj2) ? 0 : 5;
+      }
+    };
+    TreeEditDistance<String, StringTree> distance = new TreeEditDistance<>(cost);
+    assertEquals(3, distance.distance(StringTree.read("(a b)"), StringTree.read("(a c)")), EPSILON);
+    assertEquals(2, distance.distance(StringTree.read("(a b)"), StringTree.read("(a b c)")), EPSILON);
+    assertEquals(1, distance.distance(StringTree.read("(a b c)"), StringTree.read("(a b)")), EPSILON);
+  }
+
+  @Test
+  public void testThreshold() throws IOException {
+    StringTree t1 = StringTree.read("(f (d a (c b)) e)");
+    StringTree t2 = StringTree.read("(f (c (d a b)) e)");
+    assertEquals(2, unit.distance(t1, t2, 2), EPSILON);
+    assertEquals(Double.POSITIVE_INFINITY, unit.distance(t1, t2, 1), 0);
+    assertTrue(unit.isWithin(t1, t2, 2));
+    assertFalse(unit.isWithin(t1, t2, 1.5));
+    // skipped by the lower bound
+    assertFalse(unit.isWithin(t1, StringTree.read("(x y z)"), 3));
+  }
+
+  @Test
+  public void testBand() {
+    // count the renamings computed by the dynamic program
+    int[] renames = new int[1];
+    EditCost<String> unit = EditCost.unit();
+    EditCost<String> counting = new EditCost<String>() {
+      @Override
+      public double delete(String obj) {
+        return 1;
+      }
+
+      @Override
+      public double insert(String obj) {
+        return 1;
+      }
+
+      @Override
+      public double rename(String obj1, String obj2) {
+        renames[0]++;
+        return unit.rename(obj1, obj2);
+      }
+
+      @Override
+      public double minCost() {
+        return 1;
+      }
+    };
+    TreeEditDistance<String, StringTree> distance = new TreeEditDistance<>(counting);
+    // two paths of 300 nodes that differ in one user object
+    StringTree t1 = new StringTree("a");
+    StringTree t2 = new StringTree("a");
+    for (int i = 1; i < 300; i++) {
+      t1 = chain(t1, "a");
+      t2 = chain(t2, i == 150 ? "b" : "a");
+    }
+    assertEquals(1, distance.distance(t1, t2), EPSILON);
+    int full = renames[0];
+    renames[0] = 0;
+    assertEquals(1, distance.distance(t1, t2, 2), EPSILON);
+    int bounded = renames[0];
+    assertEquals(300 * 300, full);
+    // only the pairs of subtrees whose sizes differ by at most 2
+    assertEquals(5 * 300 - 6, bounded);
+  }
+
+  @Test
+  public void testRandom() {
+    Random rnd = new Random(1);
+    for (int k = 0; k < 100; k++) {
+      StringTree t1 = randomTree(rnd, 1 + rnd.nextInt(30));
+      StringTree t2 = randomTree(rnd, 1 + rnd.nextInt(30));
+      int n1 = t1.preorderList().size();
+      int n2 = t2.preorderList().size();
+      double d = unit.distance(t1, t2);
+      assertEquals(d, unit.distance(t2, t1), EPSILON);
+      assertTrue(d >= Math.abs(n1 - n2));
+      assertTrue(d <= n1 + n2);
+      // the threshold mode agrees with the full computation
+      assertEquals(d, unit.distance(t1, t2, d), EPSILON);
+      assertEquals(Double.POSITIVE_INFINITY, unit.distance(t1, t2, d - 0.5), 0);
+    }
+  }
+
+  @Test
+  public void testAllPairs() {
+    Random rnd = new Random(1);
+    List<StringTree> trees = new ArrayList<>();
+    for (int i = 0; i < 41; i++) {
+      trees.add(randomTree(rnd, 1 + rnd.nextInt(20)));
+    }
+    double[][] distances = unit.allPairs(trees);
+    double[][] bounded = unit.allPairs(trees, 5);
+    for (int i = 0; i < trees.size(); i++) {
+      assertEquals(0, distances[i][i], 0);
+      for (int j = 0; j < trees.size(); j++) {
+        assertEquals(unit.distance(trees.get(i), trees.get(j)), distances[i][j], EPSILON);
+        assertEquals(distances[i][j] <= 5 ? distances[i][j] : Double.POSITIVE_INFINITY,
+            bounded[i][j], 0);
+      }
+    }
+    // not symmetric
+    TreeEditDistance<String, StringTree> asymmetric = new TreeEditDistance<>(
+        new EditCost<String>() {
+          @Override
+          public double delete(String obj) {
+            return 1;
+          }
+
+          @Override
+          public double insert(String obj) {
+            return 3;
+          }
+
+          @Override
+          public double rename(String obj1, String obj2) {
+            return obj1.equals(obj2) ? 0 : 1;
+          }
+        });
+    double[][] matrix = asymmetric.allPairs(Arrays.asList(trees.get(0), trees.get(1)));
+    assertEquals(asymmetric.distance(trees.get(0), trees.get(1)), matrix[0][1], EPSILON);
+    assertEquals(asymmetric.distance(trees.get(1), trees.get(0)), matrix[1][0], EPSILON);
+  }
+
+  @Test
+  public void testDeep() {
+    StringTree t1 = new StringTree("a");
+    StringTree t2 = new StringTree("a");
+    for (int i = 0; i < 1000; i++) {
+      t1 = chain(t1, "a");
+      t2 = chain(t2, i % 100 == 0 ? "b" : "a");
+    }
+    assertEquals(10, unit.distance(t1, t2), EPSILON);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooLarge() {
+    StringTree t = new StringTree("a");
+    for (int i = 0; i < 50000; i++) {
+      t = chain(t, "a");
+    }
+    unit.distance(t, t);
+  }
+
+  private static StringTree chain(StringTree child, String obj) {
+    StringTree parent = new StringTree(obj);
+    parent.add(child);
+    return parent;
+  }
+
+  private static StringTree randomTree(Random rnd, int size) {
+    return StringTree.randomNodes(rnd, size, i -> String.valueOf((char) ('a' + rnd.nextInt(3))))
+        .get(0);
+  }
+}
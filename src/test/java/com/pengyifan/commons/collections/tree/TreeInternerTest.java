@@ -0,0 +1,72 @@
+package com.pengyifan.commons.collections.tree;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TreeInternerTest {
+
+  private static final String S1 = "(S (NP (DT the) (NN dog)) (VP (VBZ sees) (NP (DT the) (NN dog))))";
+  private static final String S2 = "(S (NP (DT the) (NN cat)) (VP (VBZ sees) (NP (DT the) (NN dog))))";
+
+  @Test
+  public void testSharing() throws IOException {
+    TreeInterner<String> interner = TreeInterner.newStrongInterner();
+    InternedTree<String> t1 = interner.intern(StringTree.read(S1));
+    InternedTree<String> t2 = interner.intern(StringTree.read(S2));
+    // (NP (DT the) (NN dog)) is shared within and across trees
+    InternedTree<String> np = t1.getChild(0);
+    assertSame(np, t1.getChild(1).getChild(1));
+    assertSame(np, t2.getChild(1).getChild(1));
+    assertSame(np.getChild(0), t2.getChild(0).getChild(0));
+    assertNotSame(t1, t2);
+    assertNotEquals(t1, t2);
+    assertSame(t1, interner.intern(StringTree.read(S1)));
+    assertSame(np, interner.intern("NP", interner.intern("DT", interner.intern("the")),
+        interner.intern("NN", interner.intern("dog"))));
+  }
+
+  @Test
+  public void testEquals() throws IOException {
+    InternedTree<String> t1 = TreeInterner.<String>newStrongInterner().intern(StringTree.read(S1));
+    InternedTree<String> t2 = TreeInterner.<String>newWeakInterner().intern(StringTree.read(S1));
+    assertNotSame(t1, t2);
+    assertEquals(t1, t2);
+    assertEquals(t1.hashCode(), t2.hashCode());
+    assertNotEquals(t1, TreeInterner.<String>newStrongInterner().intern(StringTree.read(S2)));
+  }
+
+  @Test
+  public void testToTree() throws IOException {
+    InternedTree<String> t = TreeInterner.<String>newWeakInterner().intern(StringTree.read(S1));
+    assertEquals(S1, t.toString());
+    assertEquals(S1, new PennTreeWriter<String, StringTree>().toString(t.toTree(StringTree::new)));
+    assertEquals(2, t.getChildCount());
+    assertTrue(t.getChild(0).getChild(0).getChild(0).isLeaf());
+    assertEquals("the", t.getChild(0).children().get(0).getChild(0).getObject());
+  }
+
+  @Test
+  public void testDeep() throws IOException {
+    int depth = 100000;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("(X ");
+    }
+    sb.append("leaf");
+    for (int i = 0; i < depth; i++) {
+      sb.append(')');
+    }
+    InternedTree<String> t1 = TreeInterner.<String>newStrongInterner().intern(StringTree.read(sb));
+    InternedTree<String> t2 = TreeInterner.<String>newStrongInterner().intern(StringTree.read(sb));
+    assertEquals(t1, t2);
+    assertEquals(sb.toString(), t1.toString());
+    assertEquals(depth, t1.toTree(StringTree::new).getFirstLeaf().getLevel());
+  }
+}
@@ -0,0 +1,138 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TreePatternTest {
+
+  private static final String SENTENCE = "(S (NP (DT The) (JJ old) (NN dog)) "
+      + "(VP (VBZ sleeps) (PP (IN on) (NP (DT the) (NN mat)))) (. .))";
+
+  @Test
+  public void testDominates() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    assertThat(find("NP << NN", t), is(Lists.newArrayList("NP", "NP")));
+    assertThat(find("VP << NN", t), is(Lists.newArrayList("VP")));
+    assertThat(find("NN >> VP", t), is(Lists.newArrayList("NN")));
+    assertThat(find("NP < JJ", t), is(Lists.newArrayList("NP")));
+    assertThat(find("DT > (NP > PP)", t), is(Lists.newArrayList("DT")));
+    assertThat(find("S < NP < VP", t), is(Lists.newArrayList("S")));
+    assertThat(find("NP !< JJ", t), is(Lists.newArrayList("NP")));
+    assertThat(find("NP !<< IN", t), is(Lists.newArrayList("NP", "NP")));
+  }
+
+  @Test
+  public void testPrecedes() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    assertThat(find("NP . VP", t), is(Lists.newArrayList("NP")));
+    assertThat(find("NN . VBZ", t), is(Lists.newArrayList("NN")));
+    assertThat(find("DT .. VP", t), is(Lists.newArrayList("DT")));
+    assertThat(find("NN ,, VP", t), is(Lists.newArrayList()));
+    assertThat(find("NN ,, VBZ", t).size(), is(1));
+    assertThat(find("VP , NP", t), is(Lists.newArrayList("VP")));
+    assertThat(find("NN , JJ", t), is(Lists.newArrayList("NN")));
+  }
+
+  @Test
+  public void testSisters() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    assertThat(find("JJ $ DT", t), is(Lists.newArrayList("JJ")));
+    assertThat(find("DT $++ NN", t), is(Lists.newArrayList("DT", "DT")));
+    assertThat(find("NN $-- DT", t), is(Lists.newArrayList("NN", "NN")));
+    assertThat(find("DT $+ JJ", t), is(Lists.newArrayList("DT")));
+    assertThat(find("NN $- JJ", t), is(Lists.newArrayList("NN")));
+    assertThat(find("NN $- DT", t), is(Lists.newArrayList("NN")));
+    assertThat(find("S $ __", t), is(Lists.newArrayList()));
+  }
+
+  @Test
+  public void testDescriptions() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    assertThat(find("/^V/", t), is(Lists.newArrayList("VP", "VBZ")));
+    assertThat(find("JJ|IN", t), is(Lists.newArrayList("JJ", "IN")));
+    assertEquals(t.preorderList().size(), find("__", t).size());
+    assertThat(find("/^\\.$/", t), is(Lists.newArrayList(".", ".")));
+  }
+
+  @Test
+  public void testNamedNodes() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    TreeMatcher<String, StringTree> matcher = TreePattern.compile("PP=pp < (NP=np < NN=head)")
+        .matcher(t);
+    assertTrue(matcher.find());
+    assertEquals("PP", matcher.getMatch().getObject());
+    assertEquals("NP", matcher.getNode("np").getObject());
+    assertEquals("mat", matcher.getNode("head").getChild(0).getObject());
+    assertNull(matcher.getNode("vp"));
+    assertFalse(matcher.find());
+  }
+
+  @Test
+  public void testMatches() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    assertTrue(TreePattern.compile("S < VP").matcher(t).matches());
+    assertFalse(TreePattern.compile("VP").matcher(t).matches());
+    // a subtree is matched on its own
+    StringTree vp = t.getChild(1);
+    assertThat(find("NP . __", vp), is(Lists.newArrayList()));
+    assertThat(find("__ > VP", vp), is(Lists.newArrayList("VBZ", "PP")));
+  }
+
+  @Test
+  public void testParallelFindAll() throws IOException {
+    List<StringTree> trees = Lists.newArrayList();
+    for (int i = 0; i < 200; i++) {
+      trees.add(StringTree.read(i % 2 == 0 ? SENTENCE : "(S (NP (PRP It)) (VP (VBZ runs)))"));
+    }
+    List<List<StringTree>> matches = TreePattern.compile("NP < NN").parallelFindAll(trees);
+    assertEquals(trees.size(), matches.size());
+    for (int i = 0; i < trees.size(); i++) {
+      assertEquals(i % 2 == 0 ? 2 : 0, matches.get(i).size());
+    }
+  }
+
+  @Test
+  public void testAnnotationsUntouched() throws IOException {
+    StringTree t = StringTree.read(SENTENCE);
+    TreeAnnotations<String, StringTree> annotations = TreeAnnotations.of(t);
+    // matching a subtree does not re-annotate the enclosing tree
+    StringTree vp = t.getChild(1);
+    assertThat(find("NP << NN", vp), is(Lists.newArrayList("NP")));
+    assertTrue(annotations.isValid());
+    assertEquals(8, annotations.getRightEdge(t));
+
+    StringTree u = StringTree.read(SENTENCE);
+    assertThat(find("NP << NN", u), is(Lists.newArrayList("NP", "NP")));
+    assertNull(u.annotations);
+  }
+
+  @Test
+  public void testSyntaxErrors() {
+    for (String pattern : new String[] { "", "NP <", "NP < (NN", "NP ? NN", "/NP", "NP NN" }) {
+      try {
+        TreePattern.compile(pattern);
+        throw new AssertionError(pattern);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    assertEquals("NP < NN", TreePattern.compile("NP < NN").toString());
+  }
+
+  private List<String> find(String pattern, StringTree tree) {
+    return TreePattern.compile(pattern).matcher(tree).findAll().stream()
+        .map(StringTree::getObject)
+        .collect(Collectors.toList());
+  }
+}
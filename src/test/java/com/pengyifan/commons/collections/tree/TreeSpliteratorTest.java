@@ -0,0 +1,124 @@
+package com.pengyifan.commons.collections.tree;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TreeSpliteratorTest {
+
+  private final StringTree a = new StringTree("A");
+  private final StringTree b = new StringTree("B");
+  private final StringTree c = new StringTree("C");
+  private final StringTree d = new StringTree("D");
+  private final StringTree e = new StringTree("E");
+  private final StringTree f = new StringTree("F");
+
+  private StringTree large;
+
+  @Before
+  public void setUp() {
+    // A (B (C F) D E)
+    a.add(b);
+    a.add(d);
+    a.add(e);
+    b.add(c);
+    b.add(f);
+
+    large = StringTree.randomNodes(new Random(1), 5000).get(0);
+  }
+
+  @Test
+  public void testStream() {
+    assertThat(objects(a, Tree.Order.PREORDER), is(Lists.newArrayList("A", "B", "C", "F", "D", "E")));
+    assertThat(objects(a, Tree.Order.POSTORDER), is(Lists.newArrayList("C", "F", "B", "D", "E", "A")));
+    assertThat(objects(a, Tree.Order.LEAVES), is(Lists.newArrayList("C", "F", "D", "E")));
+    assertThat(objects(a, Tree.Order.BREADTH_FIRST),
+        is(Lists.newArrayList("A", "B", "D", "E", "C", "F")));
+    assertThat(objects(c, Tree.Order.PREORDER), is(Lists.newArrayList("C")));
+    assertThat(objects(c, Tree.Order.LEAVES), is(Lists.newArrayList("C")));
+  }
+
+  @Test
+  public void testParallelStream() {
+    for (Tree.Order order : Tree.Order.values()) {
+      List<StringTree> expected = large.stream(order).collect(Collectors.toList());
+      assertThat(large.parallelStream(order).collect(Collectors.toList()), is(expected));
+    }
+    assertThat(large.stream(Tree.Order.PREORDER).collect(Collectors.toList()),
+        is(large.preorderList()));
+    assertThat(large.stream(Tree.Order.POSTORDER).collect(Collectors.toList()),
+        is(toList(large.postorderIterator())));
+    assertThat(large.stream(Tree.Order.LEAVES).collect(Collectors.toList()),
+        is(large.getLeaves()));
+  }
+
+  @Test
+  public void testSplitOrder() {
+    for (Tree.Order order : Tree.Order.values()) {
+      List<StringTree> actual = new ArrayList<>();
+      traverse(large.spliterator(order), actual);
+      assertThat(actual, is(large.stream(order).collect(Collectors.toList())));
+    }
+  }
+
+  @Test
+  public void testSized() {
+    assertFalse(large.spliterator(Tree.Order.PREORDER).hasCharacteristics(Spliterator.SIZED));
+    TreeAnnotations.of(large);
+    for (Tree.Order order : Tree.Order.values()) {
+      Spliterator<StringTree> spliterator = large.spliterator(order);
+      assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+      assertEquals(large.stream(order).count(), spliterator.getExactSizeIfKnown());
+      checkSizes(spliterator);
+    }
+    assertEquals(large.getLeaves().size(), large.parallelStream(Tree.Order.LEAVES).count());
+  }
+
+  /**
+   * Splits recursively and traverses the prefix before the rest.
+   */
+  private void traverse(Spliterator<StringTree> spliterator, List<StringTree> out) {
+    Spliterator<StringTree> prefix = spliterator.trySplit();
+    if (prefix != null) {
+      traverse(prefix, out);
+      traverse(spliterator, out);
+    } else {
+      spliterator.forEachRemaining(out::add);
+    }
+  }
+
+  private void checkSizes(Spliterator<StringTree> spliterator) {
+    long size = spliterator.estimateSize();
+    Spliterator<StringTree> prefix = spliterator.trySplit();
+    if (prefix == null) {
+      long[] count = new long[1];
+      spliterator.forEachRemaining(t -> count[0]++);
+      assertEquals(size, count[0]);
+    } else {
+      assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+      checkSizes(prefix);
+      checkSizes(spliterator);
+    }
+  }
+
+  private List<String> objects(StringTree tree, Tree.Order order) {
+    return tree.stream(order).map(StringTree::getObject).collect(Collectors.toList());
+  }
+
+  private static List<StringTree> toList(Iterator<StringTree> itr) {
+    return Lists.newArrayList(itr);
+  }
+}
@@ -1,12 +1,17 @@
 package com.pengyifan.commons.collections.tree;
 
 import com.google.common.collect.Lists;
+import com.pengyifan.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
@@ -77,6 +82,27 @@ public class TreeTest {
     assertThat(dst.preorderList(), is(Lists.newArrayList(a, b, c, f, d, e)));
   }
 
+  @Test
+  public void testDeepCopyDeep() {
+    int n = 50000;
+    int[] parents = new int[n];
+    List<String> objects = Lists.newArrayList();
+    for (int v = 0; v < n; v++) {
+      parents[v] = v - 1;
+      objects.add(Integer.toString(v));
+    }
+    StringTree root = new TreeBuilder<String, StringTree>(StringTree::new)
+        .fromParents(objects, parents);
+    StringTree node = root.deepCopy(StringTree::new);
+    for (int v = 0; v < n - 1; v++) {
+      assertEquals(Integer.toString(v), node.getObject());
+      assertEquals(1, node.getChildCount());
+      node = node.getChild(0);
+    }
+    assertEquals(Integer.toString(n - 1), node.getObject());
+    assertTrue(node.isLeaf());
+  }
+
   @Test(expected = UnsupportedOperationException.class)
   public void testDepthFirstIterator() {
     assertThat(Lists.newArrayList(a.depthFirstIterator()),
@@ -286,6 +312,40 @@ public class TreeTest {
     assertEquals(c, b.getChild(1));
   }
 
+  @Test
+  public void testIndexAfterChanges() {
+    a.add(1, g);
+    assertEquals(2, a.indexOf(d));
+    assertEquals(d, g.getNextSibling());
+    assertEquals(g, a.getChildBefore(d));
+    a.remove(b);
+    assertEquals(0, a.indexOf(g));
+    assertEquals(2, a.indexOf(e));
+    assertEquals(-1, a.indexOf(b));
+    a.reversal();
+    assertEquals(0, a.indexOf(e));
+    assertEquals(g, d.getNextSibling());
+    assertNull(g.getNextSibling());
+  }
+
+  @Test
+  public void testManyChildren() {
+    StringTree root = new StringTree("R");
+    for (int i = 0; i < 100; i++) {
+      root.add(new StringTree(Integer.toString(i)));
+    }
+    root.remove(50);
+    assertEquals(99, root.getChildCount());
+    assertEquals("51", root.getChild(50).getObject());
+    assertEquals(50, root.indexOf(root.getChild(50)));
+    assertEquals("52", root.getChild(50).getNextSibling().getObject());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testChildrenUnmodifiable() {
+    a.children().add(g);
+  }
+
   @Test
   public void testSetObject() {
     assertEquals("A", a.getObject());
@@ -328,6 +388,39 @@ public class TreeTest {
     assertEquals(expected, a.toString(new Tree.PrettyPrint<>()));
   }
 
+  @Test
+  public void testPrettyPrintSubtree() throws IOException {
+    String expected = "  ├ B\n" +
+        "  │ ├ C\n" +
+        "  │ └ F\n";
+    assertEquals(expected, new Tree.PrettyPrint<String, StringTree>().apply(b));
+    StringWriter writer = new StringWriter();
+    new Tree.PrettyPrint<String, StringTree>().print(f, writer);
+    assertEquals("  │ └ F\n", writer.toString());
+  }
+
+  @Test
+  public void testPrettyPrintLarge() {
+    // the shared fixture, not the StringTree of this test
+    checkPrettyPrint(
+        com.pengyifan.commons.collections.tree.StringTree.randomNodes(new Random(1), 500).get(0));
+  }
+
+  private static <T extends Tree<String, T>> void checkPrettyPrint(T root) {
+    // one line per node, with a prefix built from the path to the root
+    StringBuilder expected = new StringBuilder();
+    for (T node : root.preorderList()) {
+      for (T p : node.getPathFromRoot()) {
+        if (p != node) {
+          expected.append(p.hasNextSiblingNode() ? StringUtils.BAR + " " : "  ");
+        }
+      }
+      expected.append(node.hasNextSiblingNode() ? StringUtils.MIDDLE : StringUtils.END)
+          .append(' ').append(node.getObject()).append('\n');
+    }
+    assertEquals(expected.toString(), new Tree.PrettyPrint<String, T>().apply(root));
+  }
+
   private class StringTree extends Tree<String, StringTree> {
     StringTree(String s) {
       setObject(s);
@@ -0,0 +1,152 @@
+package com.pengyifan.kernel.tree;
+
+import com.pengyifan.commons.collections.tree.StringTree;
+import com.pengyifan.kernel.svm.LibSVMPrintStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TreeKernelTest {
+
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  public void testSubsetTree() throws IOException {
+    StringTree t = StringTree.read("(NP (D a) (N b))");
+    // NP -> D N, D -> a, N -> b, and the 3 fragments of NP that stop at D or N
+    assertEquals(6, subsetTree(1).kernel(t, t), EPSILON);
+    // 0.5 + 0.5 + 0.5 * 1.5 * 1.5
+    assertEquals(2.125, subsetTree(0.5).kernel(t, t), EPSILON);
+    // D -> a, and NP -> D N with D expanded or not
+    assertEquals(3, subsetTree(1).kernel(t, StringTree.read("(NP (D a) (N c))")), EPSILON);
+    // N -> b twice
+    assertEquals(2, subsetTree(1).kernel(t, StringTree.read("(VP (V a) (N b) (N b))")), EPSILON);
+    assertEquals(0, subsetTree(1).kernel(t, StringTree.read("(VP (V a) (N c))")), EPSILON);
+  }
+
+  @Test
+  public void testSubtree() throws IOException {
+    StringTree t = StringTree.read("(NP (D a) (N b))");
+    assertEquals(3, subtree(1).kernel(t, t), EPSILON);
+    assertEquals(1, subtree(1).kernel(t, StringTree.read("(NP (D a) (N c))")), EPSILON);
+    assertEquals(3, subtree(1).kernel(t, StringTree.read("(S (NP (D a) (N b)) (VP v))")), EPSILON);
+  }
+
+  @Test
+  public void testLeafNotPreterminal() throws IOException {
+    // a leaf N is not the same as a preterminal N
+    StringTree t1 = StringTree.read("(NP D N)");
+    StringTree t2 = StringTree.read("(NP (D a) (N b))");
+    assertEquals(0, subsetTree(1).kernel(t1, t2), EPSILON);
+    assertEquals(1, subsetTree(1).kernel(t1, t1), EPSILON);
+  }
+
+  @Test
+  public void testRandom() {
+    Random rnd = new Random(1);
+    for (TreeKernel.Type type : TreeKernel.Type.values()) {
+      TreeKernel<String, StringTree> kernel = new TreeKernel<>(type, 0.4);
+      for (int i = 0; i < 50; i++) {
+        StringTree t1 = randomTree(rnd, 3);
+        StringTree t2 = randomTree(rnd, 3);
+        assertEquals(naive(type, 0.4, t1, t2), kernel.kernel(t1, t2), EPSILON);
+        assertEquals(kernel.kernel(t1, t2), kernel.kernel(t2, t1), EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void testGramMatrix() {
+    Random rnd = new Random(1);
+    List<StringTree> trees = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      trees.add(randomTree(rnd, 4));
+    }
+    TreeKernel<String, StringTree> kernel = new TreeKernel<>(TreeKernel.Type.SUBSET_TREE, 0.4,
+        true, String::valueOf);
+    double[][] gram = kernel.gramMatrix(trees);
+    double[][] matrix = kernel.kernelMatrix(trees, trees);
+    for (int i = 0; i < trees.size(); i++) {
+      assertEquals(1, gram[i][i], EPSILON);
+      for (int j = 0; j < trees.size(); j++) {
+        assertEquals(gram[i][j], gram[j][i], 0);
+        assertEquals(matrix[i][j], gram[i][j], EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void testPrintPrecomputedRows() throws IOException {
+    List<StringTree> trees = Arrays.asList(StringTree.read("(NP (D a) (N b))"), StringTree.read("(NP (D a) (N c))"));
+    double[][] gram = subsetTree(1).gramMatrix(trees);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TreeKernel.printPrecomputedRows(new LibSVMPrintStream(new PrintStream(bytes, true, "UTF-8")),
+        new int[] { 1, -1 }, gram);
+    String expected = "1 0:1 1:6.00 2:3.00" + System.lineSeparator()
+        + "-1 0:2 1:3.00 2:6.00" + System.lineSeparator();
+    assertEquals(expected, bytes.toString("UTF-8"));
+  }
+
+  private static TreeKernel<String, StringTree> subsetTree(double lambda) {
+    return new TreeKernel<>(TreeKernel.Type.SUBSET_TREE, lambda);
+  }
+
+  private static TreeKernel<String, StringTree> subtree(double lambda) {
+    return new TreeKernel<>(TreeKernel.Type.SUBTREE, lambda);
+  }
+
+  /**
+   * Sums Delta over all the pairs of inner nodes.
+   */
+  private static double naive(TreeKernel.Type type, double lambda, StringTree t1, StringTree t2) {
+    double sum = 0;
+    for (StringTree n1 : t1.preorderList()) {
+      for (StringTree n2 : t2.preorderList()) {
+        sum += naiveDelta(type, lambda, n1, n2);
+      }
+    }
+    return sum;
+  }
+
+  private static double naiveDelta(TreeKernel.Type type, double lambda, StringTree n1,
+      StringTree n2) {
+    if (n1.isLeaf() || n2.isLeaf() || !n1.getObject().equals(n2.getObject())
+        || n1.getChildCount() != n2.getChildCount()) {
+      return 0;
+    }
+    for (int j = 0; j < n1.getChildCount(); j++) {
+      StringTree c1 = n1.getChild(j);
+      StringTree c2 = n2.getChild(j);
+      if (!c1.getObject().equals(c2.getObject()) || c1.isLeaf() != c2.isLeaf()) {
+        return 0;
+      }
+    }
+    double delta = lambda;
+    for (int j = 0; j < n1.getChildCount(); j++) {
+      if (!n1.getChild(j).isLeaf()) {
+        double d = naiveDelta(type, lambda, n1.getChild(j), n2.getChild(j));
+        delta *= type == TreeKernel.Type.SUBSET_TREE ? 1 + d : d;
+      }
+    }
+    return delta;
+  }
+
+  private static StringTree randomTree(Random rnd, int depth) {
+    StringTree node = new StringTree(String.valueOf((char) ('A' + rnd.nextInt(2))));
+    int childCount = depth == 0 ? 0 : 1 + rnd.nextInt(2);
+    for (int i = 0; i < childCount; i++) {
+      node.add(rnd.nextInt(4) == 0
+          ? new StringTree(String.valueOf((char) ('x' + rnd.nextInt(2))))
+          : randomTree(rnd, depth - 1));
+    }
+    return node;
+  }
+}